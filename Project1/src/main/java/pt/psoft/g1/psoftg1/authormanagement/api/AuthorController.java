@@ -4,10 +4,9 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
-import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
@@ -26,8 +25,10 @@ import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.api.MultiGetResponse;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.PhotoDelivery;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 
 import java.util.ArrayList;
@@ -44,6 +45,7 @@ public class AuthorController {
     private final AuthorViewMapper authorViewMapper;
     private final ConcurrencyService concurrencyService;
     private final FileStorageService fileStorageService;
+    private final PhotoDelivery photoDelivery;
     private final BookViewMapper bookViewMapper;
 
 
@@ -106,9 +108,15 @@ public class AuthorController {
     @Operation(summary = "Know an author’s detail given its author number")
     @GetMapping(value = "/{authorNumber}")
     public ResponseEntity<AuthorView> findByAuthorNumber(
+            final WebRequest request,
             @PathVariable("authorNumber")
             @Parameter(description = "The number of the Author to find") final Long authorNumber) {
 
+        final var notModified = concurrencyService.<AuthorView>notModified(request,
+                () -> authorService.findVersionByAuthorNumber(authorNumber));
+        if (notModified.isPresent())
+            return notModified.get();
+
         final var author = authorService.findByAuthorNumber(authorNumber)
                 .orElseThrow(() -> new NotFoundException(Author.class, authorNumber));
 
@@ -117,6 +125,14 @@ public class AuthorController {
                 .body(authorViewMapper.toAuthorView(author));
     }
 
+    @Operation(summary = "Gets up to 100 authors by author number at once, keyed by author number")
+    @GetMapping(value = "/batch")
+    public MultiGetResponse<AuthorView> findAllByAuthorNumbers(@RequestParam("authorNumbers") final List<Long> authorNumbers) {
+        return MultiGetResponse.of(authorNumbers.stream().map(String::valueOf).toList(),
+                authorService.findAllByAuthorNumbers(authorNumbers),
+                author -> author.getAuthorNumber().toString(), Author::getVersion, authorViewMapper::toAuthorView);
+    }
+
     @Operation(summary = "Search authors by name")
     @GetMapping
     public ListResponse<AuthorView> findByName(@RequestParam("name") final String name) {
@@ -157,9 +173,13 @@ public class AuthorController {
     @Operation(summary= "Gets a author photo")
     @GetMapping("/{authorNumber}/photo")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<byte[]> getSpecificAuthorPhoto(@PathVariable("authorNumber")
+    public ResponseEntity<Resource> getSpecificAuthorPhoto(@PathVariable("authorNumber")
                                                              @Parameter(description = "The number of the Author to find")
-                                                             final Long authorNumber) {
+                                                             final Long authorNumber,
+                                                           @RequestParam(value = "size", required = false)
+                                                           @Parameter(description = "small or medium, for a smaller copy of the photo")
+                                                           final String size,
+                                                           final WebRequest request) {
 
         Author authorDetails = authorService.findByAuthorNumber(authorNumber)
                 .orElseThrow(() -> new NotFoundException(Author.class, authorNumber));
@@ -169,18 +189,7 @@ public class AuthorController {
             return ResponseEntity.ok().build();
         }
 
-        String photoFile = authorDetails.getPhoto().getPhotoFile();
-        byte[] image = this.fileStorageService.getFile(photoFile);
-        String fileFormat = this.fileStorageService.getExtension(authorDetails.getPhoto().getPhotoFile())
-                .orElseThrow(() -> new ValidationException("Unable to get file extension"));
-
-        if(image == null) {
-            return ResponseEntity.ok().build();
-        }
-
-        return ResponseEntity.ok()
-                .contentType(fileFormat.equals("png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG)
-                .body(image);
+        return this.photoDelivery.photo(authorDetails.getPhoto().getPhotoFile(), size, request);
     }
     //Co-authors and their respective books
     @Operation(summary = "Get co-authors and their respective books for a specific author")
@@ -189,15 +198,31 @@ public class AuthorController {
         var author = authorService.findByAuthorNumber(authorNumber)
                 .orElseThrow(() -> new NotFoundException("Author not found"));
         var coAuthors = authorService.findCoAuthorsByAuthorNumber(authorNumber);
+        var booksByCoAuthor = authorService.findBooksByAuthorNumbers(
+                coAuthors.stream().map(Author::getAuthorNumber).toList());
         List<CoAuthorView> coAuthorViews = new ArrayList<>();
         for (Author coAuthor : coAuthors ) {
-            var books = authorService.findBooksByAuthorNumber(coAuthor.getAuthorNumber());
+            var books = booksByCoAuthor.getOrDefault(coAuthor.getAuthorNumber(), List.of());
             var coAuthorView = authorViewMapper.toCoAuthorView(coAuthor,books);
             coAuthorViews.add(coAuthorView);
         }
         return authorViewMapper.toAuthorCoAuthorBooksView(author, coAuthorViews);
     }
 
+    //Authors linked by co-authorships
+    @Operation(summary = "Get the authors linked to an author by at most a number of co-authorships, closest first")
+    @GetMapping("/{authorNumber}/network")
+    public ListResponse<AuthorView> getAuthorNetwork(
+            @PathVariable("authorNumber")
+            @Parameter(description = "The number of the Author to find") final Long authorNumber,
+            @RequestParam(value = "hops", defaultValue = "2") final int hops) {
+
+        authorService.findByAuthorNumber(authorNumber)
+                .orElseThrow(() -> new NotFoundException(Author.class, authorNumber));
+
+        return new ListResponse<>(authorViewMapper.toAuthorView(authorService.findAuthorsWithinHops(authorNumber, hops)));
+    }
+
     //Delete a foto
     @Operation(summary = "Deletes a author photo")
     @DeleteMapping("/{authorNumber}/photo")
@@ -212,7 +237,6 @@ public class AuthorController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
-        this.fileStorageService.deleteFile(author.getPhoto().getPhotoFile());
         authorService.removeAuthorPhoto(author.getAuthorNumber(), author.getVersion());
 
         return ResponseEntity.ok().build();
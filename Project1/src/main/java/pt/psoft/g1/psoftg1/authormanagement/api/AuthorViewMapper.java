@@ -53,6 +53,9 @@ public abstract class AuthorViewMapper extends MapperInterface {
 
         links.put("author", authorUri);
         links.put("photo", generatePhotoUrl(author));
+        String photoContentUri = generatePhotoContentUrl(author);
+        if (photoContentUri != null)
+            links.put("photoContent", photoContentUri);
         links.put("booksByAuthor", booksByAuthorUri);
 
         return links;
@@ -2,12 +2,15 @@ package pt.psoft.g1.psoftg1.authormanagement.infrastructure.repositories.impl;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import pt.psoft.g1.psoftg1.authormanagement.api.AuthorLendingView;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorBookDTO;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +18,19 @@ public interface SpringDataAuthorRepository extends AuthorRepository, CrudReposi
     @Override
     Optional<Author> findByAuthorNumber(Long authorNumber);
 
+    @Override
+    @Query("SELECT a.version " +
+            "FROM Author a " +
+            "WHERE a.authorNumber = :authorNumber")
+    Optional<Long> findVersionByAuthorNumber(Long authorNumber);
+
+    @Override
+    @EntityGraph(Author.VIEW_GRAPH)
+    @Query("SELECT a " +
+            "FROM Author a " +
+            "WHERE a.authorNumber IN :authorNumbers")
+    List<Author> findAllByAuthorNumbers(Collection<Long> authorNumbers);
+
     @Override
     @Query("SELECT new pt.psoft.g1.psoftg1.authormanagement.api.AuthorLendingView(a.name.name, COUNT(l.pk)) " +
             "FROM Book b " +
@@ -29,5 +45,12 @@ public interface SpringDataAuthorRepository extends AuthorRepository, CrudReposi
             "WHERE b IN (SELECT b FROM Book b JOIN b.authors a WHERE a.authorNumber = :authorNumber) " +
             "AND coAuthor.authorNumber <> :authorNumber")
     List<Author> findCoAuthorsByAuthorNumber(Long authorNumber);
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.authormanagement.services.AuthorBookDTO(a.authorNumber, b.isbn.isbn) " +
+            "FROM Book b " +
+                "JOIN b.authors a " +
+            "ORDER BY b.pk")
+    List<AuthorBookDTO> listAllAuthorships();
 }
 
@@ -9,7 +9,13 @@ import pt.psoft.g1.psoftg1.shared.model.EntityWithPhoto;
 import pt.psoft.g1.psoftg1.shared.model.Name;
 
 @Entity
+@NamedEntityGraph(name = Author.VIEW_GRAPH, attributeNodes = @NamedAttributeNode("photo"))
 public class Author extends EntityWithPhoto {
+    /**
+     * Entity graph of everything an {@code AuthorView} reads, so a list of authors is loaded in a single query.
+     */
+    public static final String VIEW_GRAPH = "Author.view";
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     @Column(name = "AUTHOR_NUMBER")
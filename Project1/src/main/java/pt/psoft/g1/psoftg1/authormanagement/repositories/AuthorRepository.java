@@ -4,13 +4,17 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import pt.psoft.g1.psoftg1.authormanagement.api.AuthorLendingView;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorBookDTO;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface AuthorRepository {
 
     Optional<Author> findByAuthorNumber(Long authorNumber);
+    Optional<Long> findVersionByAuthorNumber(Long authorNumber);
+    List<Author> findAllByAuthorNumbers(Collection<Long> authorNumbers);
     List<Author> searchByNameNameStartsWith(String name);
     List<Author> searchByNameName(String name);
     Author save(Author author);
@@ -18,5 +22,9 @@ public interface AuthorRepository {
     Page<AuthorLendingView> findTopAuthorByLendings (Pageable pageableRules);
     void delete(Author author);
     List<Author> findCoAuthorsByAuthorNumber(Long authorNumber);
+    /**
+     * @return every (author, book) pair, ordered by book
+     */
+    List<AuthorBookDTO> listAllAuthorships();
 
 }
@@ -0,0 +1,14 @@
+package pt.psoft.g1.psoftg1.authormanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One edge of the {@link AuthorBookGraph}: the author wrote the book.
+ */
+@Data
+@AllArgsConstructor
+public class AuthorBookDTO {
+    private Long authorNumber;
+    private String isbn;
+}
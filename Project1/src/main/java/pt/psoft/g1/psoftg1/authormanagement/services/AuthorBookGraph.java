@@ -0,0 +1,217 @@
+package pt.psoft.g1.psoftg1.authormanagement.services;
+
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.shared.services.TransactionCallbacks;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory bipartite graph of which author wrote which book, used to answer co-authorship questions without
+ * joining {@code Book.authors}.
+ * <p>
+ * Authors and books get dense ids as they are first seen, and each side keeps, per id, a sorted {@code int[]} of the
+ * ids it is adjacent to. Co-authors are the authors two edges away from an author, so "within {@code n} hops" is a
+ * breadth-first search over at most {@code 2n} edges that only touches the part of the graph it reaches.
+ * <p>
+ * It is built from the database once the application is ready (see {@link AuthorBookGraphReconciliation}) and kept
+ * current by the book service.
+ */
+@Component
+public class AuthorBookGraph {
+    private static final int[] NONE = new int[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> authorIds = new HashMap<>();
+    private final Map<String, Integer> bookIds = new HashMap<>();
+    private long[] authorNumbers = new long[16];
+    private int[][] booksByAuthor = new int[16][];
+    private String[] isbns = new String[16];
+    private int[][] authorsByBook = new int[16][];
+    private int authorCount;
+    private int bookCount;
+    private volatile boolean loaded;
+
+    /**
+     * @return whether the graph has been built from the database, i.e. whether its answers can be trusted
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Sets the authors of the book, replacing its previous ones, once the current transaction commits.
+     */
+    public void put(final Book book) {
+        final String isbn = book.getIsbn();
+        final List<Long> authors = book.getAuthors().stream().map(Author::getAuthorNumber).toList();
+        TransactionCallbacks.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                setAuthors(isbn, authors);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void rebuild(final List<AuthorBookDTO> rows) {
+        final Map<String, List<Long>> authorsByIsbn = new LinkedHashMap<>();
+        for (AuthorBookDTO row : rows) {
+            authorsByIsbn.computeIfAbsent(row.getIsbn(), isbn -> new ArrayList<>()).add(row.getAuthorNumber());
+        }
+
+        lock.writeLock().lock();
+        try {
+            authorIds.clear();
+            bookIds.clear();
+            authorCount = 0;
+            bookCount = 0;
+            authorsByIsbn.forEach(this::setAuthors);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        loaded = true;
+    }
+
+    /**
+     * @return ISBNs of the books of the author, in the order they were first seen
+     */
+    public List<String> booksOf(final long authorNumber) {
+        lock.readLock().lock();
+        try {
+            final Integer author = authorIds.get(authorNumber);
+            if (author == null)
+                return List.of();
+            final List<String> result = new ArrayList<>();
+            for (int book : booksByAuthor[author]) {
+                result.add(isbns[book]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return numbers of the authors who wrote a book with the author, ascending
+     */
+    public List<Long> coAuthorsOf(final long authorNumber) {
+        return withinHops(authorNumber, 1);
+    }
+
+    /**
+     * @return numbers of the authors linked to the author by at most {@code hops} co-authorships, closest first and
+     * then ascending; the author is left out
+     */
+    public List<Long> withinHops(final long authorNumber, final int hops) {
+        lock.readLock().lock();
+        try {
+            final Integer start = authorIds.get(authorNumber);
+            if (start == null)
+                return List.of();
+
+            final BitSet seenAuthors = new BitSet(authorCount);
+            final BitSet seenBooks = new BitSet(bookCount);
+            final List<Long> result = new ArrayList<>();
+            seenAuthors.set(start);
+            int[] frontier = {start};
+            for (int hop = 1; hop <= hops && frontier.length > 0; hop++) {
+                int[] next = new int[8];
+                int size = 0;
+                for (int author : frontier) {
+                    for (int book : booksByAuthor[author]) {
+                        if (seenBooks.get(book))
+                            continue;
+                        seenBooks.set(book);
+                        for (int coAuthor : authorsByBook[book]) {
+                            if (seenAuthors.get(coAuthor))
+                                continue;
+                            seenAuthors.set(coAuthor);
+                            if (size == next.length)
+                                next = Arrays.copyOf(next, size * 2);
+                            next[size++] = coAuthor;
+                        }
+                    }
+                }
+                frontier = Arrays.copyOf(next, size);
+                final long[] numbers = new long[size];
+                for (int i = 0; i < size; i++) {
+                    numbers[i] = authorNumbers[frontier[i]];
+                }
+                Arrays.sort(numbers);
+                for (long number : numbers) {
+                    result.add(number);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void setAuthors(final String isbn, final List<Long> authors) {
+        final int book = bookIdFor(isbn);
+        for (int author : authorsByBook[book]) {
+            booksByAuthor[author] = without(booksByAuthor[author], book);
+        }
+        final int[] ids = authors.stream().distinct().mapToInt(this::authorIdFor).sorted().toArray();
+        authorsByBook[book] = ids;
+        for (int author : ids) {
+            booksByAuthor[author] = with(booksByAuthor[author], book);
+        }
+    }
+
+    private int bookIdFor(final String isbn) {
+        final Integer id = bookIds.get(isbn);
+        if (id != null)
+            return id;
+        if (bookCount == isbns.length) {
+            isbns = Arrays.copyOf(isbns, bookCount * 2);
+            authorsByBook = Arrays.copyOf(authorsByBook, bookCount * 2);
+        }
+        isbns[bookCount] = isbn;
+        authorsByBook[bookCount] = NONE;
+        bookIds.put(isbn, bookCount);
+        return bookCount++;
+    }
+
+    private int authorIdFor(final long authorNumber) {
+        final Integer id = authorIds.get(authorNumber);
+        if (id != null)
+            return id;
+        if (authorCount == authorNumbers.length) {
+            authorNumbers = Arrays.copyOf(authorNumbers, authorCount * 2);
+            booksByAuthor = Arrays.copyOf(booksByAuthor, authorCount * 2);
+        }
+        authorNumbers[authorCount] = authorNumber;
+        booksByAuthor[authorCount] = NONE;
+        authorIds.put(authorNumber, authorCount);
+        return authorCount++;
+    }
+
+    private static int[] with(final int[] sorted, final int id) {
+        final int index = Arrays.binarySearch(sorted, id);
+        if (index >= 0)
+            return sorted;
+        final int at = -index - 1;
+        final int[] result = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, result, 0, at);
+        result[at] = id;
+        System.arraycopy(sorted, at, result, at + 1, sorted.length - at);
+        return result;
+    }
+
+    private static int[] without(final int[] sorted, final int id) {
+        final int at = Arrays.binarySearch(sorted, id);
+        if (at < 0)
+            return sorted;
+        final int[] result = new int[sorted.length - 1];
+        System.arraycopy(sorted, 0, result, 0, at);
+        System.arraycopy(sorted, at + 1, result, at, sorted.length - at - 1);
+        return result;
+    }
+}
@@ -0,0 +1,23 @@
+package pt.psoft.g1.psoftg1.authormanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+
+/**
+ * Builds the {@link AuthorBookGraph} from the {@code Book.authors} table once the application is ready, i.e. after
+ * bootstrapping, which writes books without going through the book service.
+ */
+@Component
+@RequiredArgsConstructor
+public class AuthorBookGraphReconciliation {
+    private final AuthorRepository authorRepository;
+    private final AuthorBookGraph authorBookGraph;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        authorBookGraph.rebuild(authorRepository.listAllAuthorships());
+    }
+}
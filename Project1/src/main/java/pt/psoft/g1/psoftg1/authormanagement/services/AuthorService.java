@@ -5,6 +5,7 @@ import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface AuthorService {
@@ -13,6 +14,13 @@ public interface AuthorService {
 
     Optional<Author> findByAuthorNumber(Long authorNumber);
 
+    /**
+     * Finds the authors with the given numbers in a single query; numbers without an author are left out.
+     */
+    List<Author> findAllByAuthorNumbers(List<Long> authorNumbers);
+
+    Optional<Long> findVersionByAuthorNumber(Long authorNumber);
+
     List<Author> findByName(String name);
 
     Author create(CreateAuthorRequest resource);
@@ -23,7 +31,17 @@ public interface AuthorService {
 
     List<Book> findBooksByAuthorNumber(Long authorNumber);
 
+    /**
+     * @return the books of each of the given authors, keyed by author number
+     */
+    Map<Long, List<Book>> findBooksByAuthorNumbers(List<Long> authorNumbers);
+
     List<Author> findCoAuthorsByAuthorNumber(Long authorNumber);
 
+    /**
+     * @return the authors linked to the author by at most {@code hops} co-authorships, closest first
+     */
+    List<Author> findAuthorsWithinHops(Long authorNumber, int hops);
+
     Optional<Author> removeAuthorPhoto(Long authorNumber, long desiredVersion);
 }
@@ -1,8 +1,6 @@
 package pt.psoft.g1.psoftg1.authormanagement.services;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import pt.psoft.g1.psoftg1.authormanagement.api.AuthorLendingView;
@@ -10,19 +8,30 @@ import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookCache;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchIndex;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
-import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingLeaderboards;
+import pt.psoft.g1.psoftg1.shared.services.PhotoReferences;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class AuthorServiceImpl implements AuthorService {
+    private static final int MAX_HOPS = 6;
+    private static final int MAX_MULTI_GET_KEYS = 100;
+
     private final AuthorRepository authorRepository;
     private final BookRepository bookRepository;
     private final AuthorMapper mapper;
-    private final PhotoRepository photoRepository;
+    private final PhotoReferences photoReferences;
+    private final LendingLeaderboards lendingLeaderboards;
+    private final BookSearchIndex bookSearchIndex;
+    private final BookCache bookCache;
+    private final AuthorBookGraph authorBookGraph;
 
     @Override
     public Iterable<Author> findAll() {
@@ -34,6 +43,19 @@ public class AuthorServiceImpl implements AuthorService {
         return authorRepository.findByAuthorNumber(authorNumber);
     }
 
+    @Override
+    public List<Author> findAllByAuthorNumbers(final List<Long> authorNumbers) {
+        final List<Long> distinct = authorNumbers.stream().distinct().toList();
+        if (distinct.isEmpty() || distinct.size() > MAX_MULTI_GET_KEYS)
+            throw new IllegalArgumentException("Between 1 and " + MAX_MULTI_GET_KEYS + " author numbers must be requested");
+        return authorRepository.findAllByAuthorNumbers(distinct);
+    }
+
+    @Override
+    public Optional<Long> findVersionByAuthorNumber(final Long authorNumber) {
+        return authorRepository.findVersionByAuthorNumber(authorNumber);
+    }
+
     @Override
     public List<Author> findByName(String name) {
         return authorRepository.searchByNameNameStartsWith(name);
@@ -60,7 +82,9 @@ public class AuthorServiceImpl implements AuthorService {
             resource.setPhotoURI(null);
         }
         final Author author = mapper.create(resource);
-        return authorRepository.save(author);
+        final Author saved = authorRepository.save(author);
+        photoReferences.acquire(resource.getPhotoURI(), resource.getPhoto());
+        return saved;
     }
 
     @Override
@@ -94,22 +118,111 @@ public class AuthorServiceImpl implements AuthorService {
         // in the meantime some other user might have changed this object on the
         // database, so concurrency control will still be applied when we try to save
         // this updated object
-        return authorRepository.save(author);
+        final Author saved = authorRepository.save(author);
+        photoReferences.acquire(request.getPhotoURI(), request.getPhoto());
+        if (request.getName() != null) {
+            final var terms = bookRepository.listSearchTermsByAuthorNumber(authorNumber);
+            bookSearchIndex.putAll(terms);
+            // cached books hold the author, and with it the old name
+            terms.forEach(row -> bookCache.invalidate(row.getIsbn()));
+        }
+        return saved;
     }
     @Override
     public List<AuthorLendingView> findTopAuthorByLendings() {
-        Pageable pageableRules = PageRequest.of(0,5);
-        return authorRepository.findTopAuthorByLendings(pageableRules).getContent();
+        return lendingLeaderboards.topAuthors(5).stream()
+                .map(ranked -> new AuthorLendingView(ranked.key(), ranked.count()))
+                .toList();
     }
 
     @Override
     public List<Book> findBooksByAuthorNumber(Long authorNumber){
-        return bookRepository.findBooksByAuthorNumber(authorNumber);
+        if (!authorBookGraph.isLoaded())
+            return bookRepository.findBooksByAuthorNumber(authorNumber);
+        return findAllByIsbns(authorBookGraph.booksOf(authorNumber));
+    }
+
+    @Override
+    public Map<Long, List<Book>> findBooksByAuthorNumbers(List<Long> authorNumbers) {
+        final Map<Long, List<Book>> booksByAuthorNumber = new HashMap<>();
+        if (!authorBookGraph.isLoaded()) {
+            authorNumbers.forEach(number -> booksByAuthorNumber.put(number, bookRepository.findBooksByAuthorNumber(number)));
+            return booksByAuthorNumber;
+        }
+
+        // a single query for the books of every author
+        final Map<Long, List<String>> isbnsByAuthorNumber = new HashMap<>();
+        final Set<String> isbns = new LinkedHashSet<>();
+        for (Long number : authorNumbers) {
+            final List<String> authorIsbns = authorBookGraph.booksOf(number);
+            isbnsByAuthorNumber.put(number, authorIsbns);
+            isbns.addAll(authorIsbns);
+        }
+        final Map<String, Book> books = isbns.isEmpty() ? Map.of() : bookRepository.findAllByIsbns(isbns).stream()
+                .collect(Collectors.toMap(Book::getIsbn, Function.identity()));
+        isbnsByAuthorNumber.forEach((number, authorIsbns) -> booksByAuthorNumber.put(number, authorIsbns.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .toList()));
+        return booksByAuthorNumber;
     }
 
     @Override
     public List<Author> findCoAuthorsByAuthorNumber(Long authorNumber) {
-        return authorRepository.findCoAuthorsByAuthorNumber(authorNumber);
+        if (!authorBookGraph.isLoaded())
+            return authorRepository.findCoAuthorsByAuthorNumber(authorNumber);
+        return findAuthorsInOrder(authorBookGraph.coAuthorsOf(authorNumber));
+    }
+
+    @Override
+    public List<Author> findAuthorsWithinHops(Long authorNumber, int hops) {
+        if (hops < 1 || hops > MAX_HOPS)
+            throw new IllegalArgumentException("Hops must be between 1 and " + MAX_HOPS);
+        if (authorBookGraph.isLoaded())
+            return findAuthorsInOrder(authorBookGraph.withinHops(authorNumber, hops));
+
+        // one co-author query per author reached, until the graph is built
+        final Set<Long> seen = new HashSet<>(Set.of(authorNumber));
+        final List<Author> result = new ArrayList<>();
+        List<Long> frontierNumbers = List.of(authorNumber);
+        for (int hop = 1; hop <= hops && !frontierNumbers.isEmpty(); hop++) {
+            final List<Author> frontier = frontierNumbers.stream()
+                    .flatMap(number -> authorRepository.findCoAuthorsByAuthorNumber(number).stream())
+                    .filter(author -> seen.add(author.getAuthorNumber()))
+                    .sorted(Comparator.comparing(Author::getAuthorNumber))
+                    .toList();
+            result.addAll(frontier);
+            frontierNumbers = frontier.stream().map(Author::getAuthorNumber).toList();
+        }
+        return result;
+    }
+
+    /**
+     * Loads the books in a single query, keeping the order of {@code isbns}.
+     */
+    private List<Book> findAllByIsbns(List<String> isbns) {
+        if (isbns.isEmpty())
+            return new ArrayList<>();
+        final Map<String, Book> books = bookRepository.findAllByIsbns(isbns).stream()
+                .collect(Collectors.toMap(Book::getIsbn, Function.identity()));
+        return isbns.stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Loads the authors in a single query, keeping the order of {@code authorNumbers}.
+     */
+    private List<Author> findAuthorsInOrder(List<Long> authorNumbers) {
+        if (authorNumbers.isEmpty())
+            return new ArrayList<>();
+        final Map<Long, Author> authors = authorRepository.findAllByAuthorNumbers(authorNumbers).stream()
+                .collect(Collectors.toMap(Author::getAuthorNumber, Function.identity()));
+        return authorNumbers.stream()
+                .map(authors::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
     @Override
     public Optional<Author> removeAuthorPhoto(Long authorNumber, long desiredVersion) {
@@ -119,7 +232,7 @@ public class AuthorServiceImpl implements AuthorService {
         String photoFile = author.getPhoto().getPhotoFile();
         author.removePhoto(desiredVersion);
         Optional<Author> updatedAuthor = Optional.of(authorRepository.save(author));
-        photoRepository.deleteByPhotoFile(photoFile);
+        photoReferences.release(photoFile);
         return updatedAuthor;
     }
 
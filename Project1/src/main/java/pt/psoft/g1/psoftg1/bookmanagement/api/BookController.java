@@ -1,10 +1,11 @@
 package pt.psoft.g1.psoftg1.bookmanagement.api;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
-import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +17,8 @@ import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.services.BookService;
+import pt.psoft.g1.psoftg1.bookmanagement.services.CatalogueImportReport;
+import pt.psoft.g1.psoftg1.bookmanagement.services.CatalogueImportService;
 import pt.psoft.g1.psoftg1.bookmanagement.services.CreateBookRequest;
 import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
 import pt.psoft.g1.psoftg1.bookmanagement.services.UpdateBookRequest;
@@ -25,8 +28,12 @@ import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingService;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.api.MultiGetResponse;
+import pt.psoft.g1.psoftg1.shared.api.PagedListResponse;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.PhotoDelivery;
+import pt.psoft.g1.psoftg1.shared.services.Page;
 import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 import pt.psoft.g1.psoftg1.usermanagement.services.UserService;
@@ -43,9 +50,11 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/books")
 public class BookController {
     private final BookService bookService;
+    private final CatalogueImportService catalogueImportService;
     private final LendingService lendingService;
     private final ConcurrencyService concurrencyService;
     private final FileStorageService fileStorageService;
+    private final PhotoDelivery photoDelivery;
     private final UserService userService;
     private final ReaderService readerService;
 
@@ -82,9 +91,26 @@ public class BookController {
                 .body(bookViewMapper.toBookView(book));
     }
 
+    @Operation(summary = "Imports the books of a CSV or NDJSON catalogue file, resuming an interrupted import of the same file")
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public CatalogueImportReport importCatalogue(@RequestParam("file") final MultipartFile file) {
+        return catalogueImportService.importCatalogue(file);
+    }
+
+    @Operation(summary = "Gets up to 100 books by isbn at once, keyed by isbn")
+    @GetMapping(value = "/batch")
+    public MultiGetResponse<BookView> findAllByIsbns(@RequestParam("isbns") final List<String> isbns) {
+        return MultiGetResponse.of(isbns, bookService.findAllByIsbns(isbns),
+                Book::getIsbn, Book::getVersion, bookViewMapper::toBookView);
+    }
+
     @Operation(summary = "Gets a specific Book by isbn")
     @GetMapping(value = "/{isbn}")
-    public ResponseEntity<BookView> findByIsbn(@PathVariable final String isbn) {
+    public ResponseEntity<BookView> findByIsbn(final WebRequest request, @PathVariable final String isbn) {
+
+        final var notModified = concurrencyService.<BookView>notModified(request, () -> bookService.findVersionByIsbn(isbn));
+        if (notModified.isPresent())
+            return notModified.get();
 
         final var book = bookService.findByIsbn(isbn);
 
@@ -104,7 +130,6 @@ public class BookController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
-        fileStorageService.deleteFile(book.getPhoto().getPhotoFile());
         bookService.removeBookPhoto(book.getIsbn(), book.getVersion());
 
         return ResponseEntity.ok().build();
@@ -113,7 +138,11 @@ public class BookController {
     @Operation(summary= "Gets a book photo")
     @GetMapping("/{isbn}/photo")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<byte[]> getSpecificBookPhoto(@PathVariable("isbn") final String isbn){
+    public ResponseEntity<Resource> getSpecificBookPhoto(@PathVariable("isbn") final String isbn,
+                                                         @RequestParam(value = "size", required = false)
+                                                         @Parameter(description = "small or medium, for a smaller copy of the photo")
+                                                         final String size,
+                                                         final WebRequest request){
 
         Book book = bookService.findByIsbn(isbn);
 
@@ -122,16 +151,7 @@ public class BookController {
             return ResponseEntity.ok().build();
         }
 
-        String photoFile = book.getPhoto().getPhotoFile();
-        byte[] image = fileStorageService.getFile(photoFile);
-        String fileFormat = fileStorageService.getExtension(book.getPhoto().getPhotoFile()).orElseThrow(() -> new ValidationException("Unable to get file extension"));
-
-        if(image == null) {
-            return ResponseEntity.ok().build();
-        }
-
-        return ResponseEntity.ok().contentType(fileFormat.equals("png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG).body(image);
-
+        return photoDelivery.photo(book.getPhoto().getPhotoFile(), size, request);
     }
 
 
@@ -206,6 +226,21 @@ public class BookController {
         return new ListResponse<>(bookViewMapper.toBookView(books));
     }
 
+    @Operation(summary = "Gets a page of Books by title, genre or author name, ordered by title")
+    @GetMapping(params = "page")
+    public PagedListResponse<BookView> findBooksPaged(@RequestParam(value = "title", required = false) final String title,
+                                                      @RequestParam(value = "genre", required = false) final String genre,
+                                                      @RequestParam(value = "authorName", required = false) final String authorName,
+                                                      @RequestParam("page") final int page,
+                                                      @RequestParam(value = "limit", defaultValue = "10") final int limit) {
+        final var slice = bookService.findBooks(title, genre, authorName, new Page(page, limit));
+
+        if(slice.getTotal() == 0)
+            throw new NotFoundException("No books found with the provided criteria");
+
+        return new PagedListResponse<>(bookViewMapper.toBookView(slice.getItems()), slice.getTotal());
+    }
+
     @Operation(summary = "Gets the top 5 books lent")
     @GetMapping("top5")
     public ListResponse<BookCountView> getTop5BooksLent() {
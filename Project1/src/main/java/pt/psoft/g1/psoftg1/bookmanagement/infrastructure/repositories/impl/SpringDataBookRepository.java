@@ -6,6 +6,7 @@ import jakarta.persistence.criteria.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -13,13 +14,16 @@ import org.springframework.util.StringUtils;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.services.BookCountDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchTermsDTO;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Isbn;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.shared.services.PagedSlice;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,9 +31,72 @@ public interface SpringDataBookRepository  extends BookRepository, BookRepoCusto
 
     @Query("SELECT b " +
             "FROM Book b " +
+                "LEFT JOIN FETCH b.authors " +
             "WHERE b.isbn.isbn = :isbn")
     Optional<Book> findByIsbn(@Param("isbn") String isbn);
 
+    @Override
+    @Query("SELECT b.version " +
+            "FROM Book b " +
+            "WHERE b.isbn.isbn = :isbn")
+    Optional<Long> findVersionByIsbn(@Param("isbn") String isbn);
+
+    @Override
+    @EntityGraph(Book.VIEW_GRAPH)
+    @Query("SELECT b " +
+            "FROM Book b " +
+            "WHERE b.isbn.isbn IN :isbns")
+    List<Book> findAllByIsbns(@Param("isbns") Collection<String> isbns);
+
+    @Override
+    @Query("SELECT b.isbn.isbn " +
+            "FROM Book b " +
+            "WHERE b.isbn.isbn IN :isbns")
+    List<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    @Override
+    @Query("SELECT s.isbn " +
+            "FROM (SELECT g.genre AS genre, b.isbn.isbn AS isbn, " +
+                    "ROW_NUMBER() OVER (PARTITION BY g.pk ORDER BY b.title.title, b.isbn.isbn) AS position " +
+                "FROM ReaderDetails r " +
+                    "JOIN r.interestList g " +
+                    "JOIN Book b ON b.genre = g " +
+                "WHERE r.readerNumber.readerNumber = :readerNumber " +
+                    "AND NOT EXISTS (SELECT 1 FROM Lending l WHERE l.book = b AND l.readerDetails = r)) s " +
+            "WHERE s.position <= :limit " +
+            "ORDER BY s.genre, s.position")
+    List<String> listSuggestionsForReader(@Param("readerNumber") String readerNumber, @Param("limit") long limit);
+
+    @Override
+    @Query("SELECT b.isbn.isbn FROM Book b")
+    List<String> listAllIsbns();
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchTermsDTO(" +
+                "b.isbn.isbn, b.title.title, g.genre, a.name.name) " +
+            "FROM Book b " +
+                "JOIN b.genre g " +
+                "LEFT JOIN b.authors a")
+    List<BookSearchTermsDTO> listAllSearchTerms();
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchTermsDTO(" +
+                "b.isbn.isbn, b.title.title, g.genre, a.name.name) " +
+            "FROM Book b " +
+                "JOIN b.genre g " +
+                "LEFT JOIN b.authors a " +
+            "WHERE b.isbn.isbn = :isbn")
+    List<BookSearchTermsDTO> listSearchTermsByIsbn(@Param("isbn") String isbn);
+
+    @Override
+    @Query("SELECT new pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchTermsDTO(" +
+                "b.isbn.isbn, b.title.title, g.genre, a.name.name) " +
+            "FROM Book b " +
+                "JOIN b.genre g " +
+                "LEFT JOIN b.authors a " +
+            "WHERE b IN (SELECT b2 FROM Book b2 JOIN b2.authors a2 WHERE a2.authorNumber = :authorNumber)")
+    List<BookSearchTermsDTO> listSearchTermsByAuthorNumber(@Param("authorNumber") Long authorNumber);
+
     @Override
     @Query("SELECT new pt.psoft.g1.psoftg1.bookmanagement.services.BookCountDTO(b, COUNT(l)) " +
                 "FROM Book b " +
@@ -61,20 +128,20 @@ public interface SpringDataBookRepository  extends BookRepository, BookRepoCusto
     List<Book> findByAuthorName(@Param("authorName") String authorName);
 
     @Override
-    @Query(value =
-            "SELECT b.* " +
+    @EntityGraph(Book.VIEW_GRAPH)
+    @Query("SELECT b " +
             "FROM Book b " +
-            "JOIN BOOK_AUTHORS on b.pk = BOOK_AUTHORS.BOOK_PK " +
-            "JOIN AUTHOR a on BOOK_AUTHORS.AUTHORS_AUTHOR_NUMBER = a.AUTHOR_NUMBER " +
-            "WHERE a.AUTHOR_NUMBER = :authorNumber "
-            , nativeQuery = true)
-    List<Book> findBooksByAuthorNumber(Long authorNumber);
+            "WHERE b.pk IN (SELECT ab.pk FROM Book ab JOIN ab.authors a WHERE a.authorNumber = :authorNumber) " +
+            "ORDER BY b.pk")
+    List<Book> findBooksByAuthorNumber(@Param("authorNumber") Long authorNumber);
 
 }
 
 
 interface BookRepoCustom {
     List<Book> searchBooks(pt.psoft.g1.psoftg1.shared.services.Page page, SearchBooksQuery query);
+    PagedSlice<Book> findBooks(pt.psoft.g1.psoftg1.shared.services.Page page, String title, String genre, String authorName);
+    void insertAll(List<Book> books);
 
 }
 
@@ -84,6 +151,16 @@ class BookRepoCustomImpl implements BookRepoCustom {
     // injection
     private final EntityManager em;
 
+    /**
+     * Hibernate groups the inserts into JDBC batches of {@code hibernate.jdbc.batch_size} on flush.
+     */
+    @Override
+    public void insertAll(List<Book> books) {
+        books.forEach(em::persist);
+        em.flush();
+        books.forEach(em::detach);
+    }
+
     @Override
     public List<Book> searchBooks(pt.psoft.g1.psoftg1.shared.services.Page page, SearchBooksQuery query)
     {
@@ -118,4 +195,55 @@ class BookRepoCustomImpl implements BookRepoCustom {
 
         return q.getResultList();
     }
+
+    @Override
+    public PagedSlice<Book> findBooks(pt.psoft.g1.psoftg1.shared.services.Page page, String title, String genre, String authorName)
+    {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Book> cq = cb.createQuery(Book.class);
+        final Root<Book> root = cq.from(Book.class);
+        cq.select(root);
+        cq.where(anyOf(cb, cq, root, title, genre, authorName));
+        cq.orderBy(cb.asc(root.get("title").get("title")), cb.asc(root.get("isbn").get("isbn")));
+
+        final List<Book> items = em.createQuery(cq)
+                .setFirstResult((page.getNumber() - 1) * page.getLimit())
+                .setMaxResults(page.getLimit())
+                .getResultList();
+        // a first page that is not full already holds every match
+        if (page.getNumber() == 1 && items.size() < page.getLimit())
+            return new PagedSlice<>(items, items.size());
+
+        final CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+        final Root<Book> countRoot = countQuery.from(Book.class);
+        countQuery.select(cb.count(countRoot));
+        countQuery.where(anyOf(cb, countQuery, countRoot, title, genre, authorName));
+        return new PagedSlice<>(items, em.createQuery(countQuery).getSingleResult());
+    }
+
+    /**
+     * Authors are matched in a subquery rather than joined, so a book with several matching authors is
+     * still a single row.
+     */
+    private static Predicate anyOf(CriteriaBuilder cb, AbstractQuery<?> query, Root<Book> root, String title, String genre, String authorName)
+    {
+        final List<Predicate> any = new ArrayList<>();
+
+        if (StringUtils.hasText(title))
+            any.add(cb.like(root.get("title").get("title"), "%" + title + "%"));
+
+        if (StringUtils.hasText(genre))
+            any.add(cb.like(root.get("genre").get("genre"), "%" + genre + "%"));
+
+        if (StringUtils.hasText(authorName)) {
+            final Subquery<Integer> authored = query.subquery(Integer.class);
+            final Root<Book> authoredRoot = authored.from(Book.class);
+            final Join<Book, Author> authorJoin = authoredRoot.join("authors");
+            authored.select(cb.literal(1));
+            authored.where(cb.equal(authoredRoot, root), cb.like(authorJoin.get("name").get("name"), authorName + "%"));
+            any.add(cb.exists(authored));
+        }
+
+        return any.isEmpty() ? cb.disjunction() : cb.or(any.toArray(new Predicate[0]));
+    }
 }
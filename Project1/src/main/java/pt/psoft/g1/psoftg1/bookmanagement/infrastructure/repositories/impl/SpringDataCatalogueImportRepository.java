@@ -0,0 +1,8 @@
+package pt.psoft.g1.psoftg1.bookmanagement.infrastructure.repositories.impl;
+
+import org.springframework.data.repository.CrudRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.model.CatalogueImport;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.CatalogueImportRepository;
+
+public interface SpringDataCatalogueImportRepository extends CatalogueImportRepository, CrudRepository<CatalogueImport, String> {
+}
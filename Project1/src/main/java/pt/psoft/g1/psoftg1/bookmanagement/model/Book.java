@@ -6,6 +6,8 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import org.hibernate.StaleObjectStateException;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookCacheListener;
+import pt.psoft.g1.psoftg1.bookmanagement.services.IsbnFilterListener;
 import pt.psoft.g1.psoftg1.bookmanagement.services.UpdateBookRequest;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
@@ -16,10 +18,21 @@ import java.util.List;
 import java.util.Objects;
 
 @Entity
+@EntityListeners({BookCacheListener.class, IsbnFilterListener.class})
+@NamedEntityGraph(name = Book.VIEW_GRAPH, attributeNodes = {
+        @NamedAttributeNode("genre"),
+        @NamedAttributeNode("photo"),
+        @NamedAttributeNode(value = "authors", subgraph = "authors")},
+        subgraphs = @NamedSubgraph(name = "authors", attributeNodes = @NamedAttributeNode("photo")))
 @Table(name = "Book", uniqueConstraints = {
         @UniqueConstraint(name = "uc_book_isbn", columnNames = {"ISBN"})
 })
 public class Book extends EntityWithPhoto {
+    /**
+     * Entity graph of everything a {@code BookView} reads, so a list of books is loaded in a single query.
+     */
+    public static final String VIEW_GRAPH = "Book.view";
+
     @Id
     @GeneratedValue(strategy= GenerationType.AUTO)
     long pk;
@@ -0,0 +1,54 @@
+package pt.psoft.g1.psoftg1.bookmanagement.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+/**
+ * The {@code CatalogueImport} class is the checkpoint of a catalogue file being imported, identified by the
+ * SHA-256 of its contents.
+ * <p>
+ * It is advanced in the same transaction that inserts each chunk of books, so it always tells exactly how many
+ * lines of the file have been handled, and importing the same file again resumes after them.
+ */
+@Entity
+@Getter
+@Table(name = "CATALOGUE_IMPORT")
+public class CatalogueImport {
+    @Id
+    @Column(name = "IMPORT_ID", length = 64)
+    private String importId;
+
+    /**
+     * Number of lines of the file already handled, header included.
+     */
+    @Column(name = "LINES_DONE", nullable = false)
+    private long linesDone;
+
+    @Column(name = "IMPORTED", nullable = false)
+    private long imported;
+
+    @Column(name = "REJECTED", nullable = false)
+    private long rejected;
+
+    @Column(name = "FINISHED", nullable = false)
+    private boolean finished;
+
+    public CatalogueImport(final String importId) {
+        this.importId = importId;
+    }
+
+    public void advance(final long linesDone, final long imported, final long rejected) {
+        if (linesDone < this.linesDone)
+            throw new IllegalArgumentException("An import cannot go back");
+        this.linesDone = linesDone;
+        this.imported += imported;
+        this.rejected += rejected;
+    }
+
+    public void finish() {
+        this.finished = true;
+    }
+
+    /**Protected empty constructor for ORM only.*/
+    protected CatalogueImport() {}
+}
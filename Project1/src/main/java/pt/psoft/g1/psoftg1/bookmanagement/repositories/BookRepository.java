@@ -5,9 +5,13 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.query.Param;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.services.BookCountDTO;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchTermsDTO;
 import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
 
+import pt.psoft.g1.psoftg1.shared.services.PagedSlice;
+
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,11 +26,35 @@ public interface BookRepository {
     List<Book> findByTitle(@Param("title") String title);
     List<Book> findByAuthorName(@Param("authorName") String authorName);
     Optional<Book> findByIsbn(@Param("isbn") String isbn);
+    Optional<Long> findVersionByIsbn(@Param("isbn") String isbn);
+    List<Book> findAllByIsbns(@Param("isbns") Collection<String> isbns);
+    /**
+     * @return those of the given ISBNs that already have a book
+     */
+    List<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+    /**
+     * @return ISBNs of the first {@code limit} books by title of each genre the reader is interested in, leaving out
+     * the books the reader already borrowed; ordered by genre, then by title
+     */
+    List<String> listSuggestionsForReader(@Param("readerNumber") String readerNumber, @Param("limit") long limit);
     Page<BookCountDTO> findTop5BooksLent(@Param("oneYearAgo") LocalDate oneYearAgo, Pageable pageable);
     List<Book> findBooksByAuthorNumber(Long authorNumber);
+    List<String> listAllIsbns();
+    List<BookSearchTermsDTO> listAllSearchTerms();
+    List<BookSearchTermsDTO> listSearchTermsByIsbn(String isbn);
+    List<BookSearchTermsDTO> listSearchTermsByAuthorNumber(Long authorNumber);
 
     List<Book> searchBooks(pt.psoft.g1.psoftg1.shared.services.Page page, SearchBooksQuery query);
+    /**
+     * @return a page of the books matching any of the criteria of {@link pt.psoft.g1.psoftg1.bookmanagement.services.BookService#findBooks},
+     * with the number of books matching them
+     */
+    PagedSlice<Book> findBooks(pt.psoft.g1.psoftg1.shared.services.Page page, String title, String genre, String authorName);
 
     Book save(Book book);
+    /**
+     * Inserts new books in JDBC batches and detaches them, so the persistence context does not grow with them.
+     */
+    void insertAll(List<Book> books);
     void delete(Book book);
 }
@@ -0,0 +1,11 @@
+package pt.psoft.g1.psoftg1.bookmanagement.repositories;
+
+import pt.psoft.g1.psoftg1.bookmanagement.model.CatalogueImport;
+
+import java.util.Optional;
+
+public interface CatalogueImportRepository {
+    Optional<CatalogueImport> findByImportId(String importId);
+
+    CatalogueImport save(CatalogueImport catalogueImport);
+}
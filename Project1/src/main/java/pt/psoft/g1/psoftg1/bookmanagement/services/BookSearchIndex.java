@@ -0,0 +1,243 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.shared.services.TransactionCallbacks;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index of the books' titles, genres and author names, used to find the ISBNs matching a
+ * search before any book is loaded.
+ * <p>
+ * Each field keeps its distinct values sorted, so prefix matches are a range of the sorted values, and a posting
+ * list of the values containing each trigram, so substring matches only check the values that contain every
+ * trigram of the searched text. Matching is case-sensitive, like the {@code LIKE} queries it replaces.
+ * <p>
+ * It is built from the database once the application is ready (see {@link BookSearchIndexReconciliation}) and kept
+ * current by the book and author services.
+ */
+@Component
+public class BookSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    public enum Field {
+        TITLE, GENRE, AUTHOR_NAME
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Terms> termsByIsbn = new HashMap<>();
+    private final Map<Field, FieldIndex> fields = new EnumMap<>(Field.class);
+    private volatile boolean loaded;
+
+    public BookSearchIndex() {
+        for (Field field : Field.values()) {
+            fields.put(field, new FieldIndex());
+        }
+    }
+
+    /**
+     * @return whether the index has been built from the database, i.e. whether its answers can be trusted
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Indexes the book, replacing its previous terms, once the current transaction commits.
+     */
+    public void put(final Book book) {
+        final Terms terms = new Terms(book.getTitle().toString(), book.getGenre().getGenre(),
+                book.getAuthors().stream().map(Author::getName).distinct().toList());
+        final Map<String, Terms> byIsbn = Map.of(book.getIsbn(), terms);
+        TransactionCallbacks.afterCommit(() -> setAll(byIsbn, false));
+    }
+
+    /**
+     * Indexes the books of the given rows, replacing their previous terms, once the current transaction commits.
+     */
+    public void putAll(final List<BookSearchTermsDTO> rows) {
+        final Map<String, Terms> byIsbn = group(rows);
+        TransactionCallbacks.afterCommit(() -> setAll(byIsbn, false));
+    }
+
+    public void rebuild(final List<BookSearchTermsDTO> rows) {
+        setAll(group(rows), true);
+        loaded = true;
+    }
+
+    /**
+     * @return ISBNs of the books whose {@code field} contains {@code text}
+     */
+    public Set<String> containing(final Field field, final String text) {
+        lock.readLock().lock();
+        try {
+            return fields.get(field).containing(text);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return ISBNs of the books whose {@code field} starts with {@code prefix}
+     */
+    public Set<String> startingWith(final Field field, final String prefix) {
+        lock.readLock().lock();
+        try {
+            return fields.get(field).startingWith(prefix);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return ISBNs of every indexed book
+     */
+    public Set<String> all() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(termsByIsbn.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the given ISBNs ordered by title, then by ISBN; unknown ISBNs are left out
+     */
+    public List<String> sortByTitle(final Collection<String> isbns) {
+        lock.readLock().lock();
+        try {
+            return isbns.stream()
+                    .filter(termsByIsbn::containsKey)
+                    .sorted(Comparator.comparing((String isbn) -> termsByIsbn.get(isbn).title())
+                            .thenComparing(Comparator.naturalOrder()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void setAll(final Map<String, Terms> byIsbn, final boolean replaceEverything) {
+        lock.writeLock().lock();
+        try {
+            if (replaceEverything) {
+                termsByIsbn.clear();
+                fields.values().forEach(FieldIndex::clear);
+            }
+            byIsbn.forEach(this::set);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Map<String, Terms> group(final List<BookSearchTermsDTO> rows) {
+        final Map<String, Terms> byIsbn = new HashMap<>();
+        for (BookSearchTermsDTO row : rows) {
+            final Terms terms = byIsbn.computeIfAbsent(row.getIsbn(),
+                    isbn -> new Terms(row.getTitle(), row.getGenre(), new ArrayList<>()));
+            if (row.getAuthorName() != null && !terms.authorNames().contains(row.getAuthorName()))
+                terms.authorNames().add(row.getAuthorName());
+        }
+        return byIsbn;
+    }
+
+    private void set(final String isbn, final Terms terms) {
+        final Terms previous = termsByIsbn.put(isbn, terms);
+        if (previous != null) {
+            fields.get(Field.TITLE).remove(previous.title(), isbn);
+            fields.get(Field.GENRE).remove(previous.genre(), isbn);
+            previous.authorNames().forEach(name -> fields.get(Field.AUTHOR_NAME).remove(name, isbn));
+        }
+        fields.get(Field.TITLE).add(terms.title(), isbn);
+        fields.get(Field.GENRE).add(terms.genre(), isbn);
+        terms.authorNames().forEach(name -> fields.get(Field.AUTHOR_NAME).add(name, isbn));
+    }
+
+    private record Terms(String title, String genre, List<String> authorNames) {
+    }
+
+    private static final class FieldIndex {
+        private final NavigableMap<String, Set<String>> isbnsByValue = new TreeMap<>();
+        private final Map<String, Set<String>> valuesByGram = new HashMap<>();
+
+        void add(final String value, final String isbn) {
+            final Set<String> isbns = isbnsByValue.get(value);
+            if (isbns != null) {
+                isbns.add(isbn);
+                return;
+            }
+            isbnsByValue.put(value, new HashSet<>(Set.of(isbn)));
+            grams(value).forEach(gram -> valuesByGram.computeIfAbsent(gram, g -> new HashSet<>()).add(value));
+        }
+
+        void remove(final String value, final String isbn) {
+            final Set<String> isbns = isbnsByValue.get(value);
+            if (isbns == null || !isbns.remove(isbn) || !isbns.isEmpty())
+                return;
+            isbnsByValue.remove(value);
+            grams(value).forEach(gram -> {
+                final Set<String> values = valuesByGram.get(gram);
+                values.remove(value);
+                if (values.isEmpty())
+                    valuesByGram.remove(gram);
+            });
+        }
+
+        Set<String> startingWith(final String prefix) {
+            final Set<String> result = new HashSet<>();
+            for (Map.Entry<String, Set<String>> entry : isbnsByValue.tailMap(prefix, true).entrySet()) {
+                if (!entry.getKey().startsWith(prefix))
+                    break;
+                result.addAll(entry.getValue());
+            }
+            return result;
+        }
+
+        Set<String> containing(final String text) {
+            final Set<String> result = new HashSet<>();
+            for (String value : candidatesContaining(text)) {
+                if (value.contains(text))
+                    result.addAll(isbnsByValue.get(value));
+            }
+            return result;
+        }
+
+        /**
+         * @return the values that contain every trigram of {@code text}; every value if it is too short to have any
+         */
+        private Collection<String> candidatesContaining(final String text) {
+            if (text.length() < GRAM_LENGTH)
+                return isbnsByValue.keySet();
+            final List<Set<String>> postings = new ArrayList<>();
+            for (String gram : grams(text)) {
+                final Set<String> values = valuesByGram.get(gram);
+                if (values == null)
+                    return List.of();
+                postings.add(values);
+            }
+            postings.sort(Comparator.comparingInt(Set::size));
+            final Set<String> candidates = new HashSet<>(postings.get(0));
+            for (int i = 1; i < postings.size() && !candidates.isEmpty(); i++) {
+                candidates.retainAll(postings.get(i));
+            }
+            return candidates;
+        }
+
+        void clear() {
+            isbnsByValue.clear();
+            valuesByGram.clear();
+        }
+
+        private static Set<String> grams(final String value) {
+            final Set<String> grams = new HashSet<>();
+            for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+                grams.add(value.substring(i, i + GRAM_LENGTH));
+            }
+            return grams;
+        }
+    }
+}
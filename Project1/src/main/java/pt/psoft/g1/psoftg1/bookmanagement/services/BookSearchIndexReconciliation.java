@@ -0,0 +1,23 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+
+/**
+ * Builds the {@link BookSearchIndex} from the {@code Book} table once the application is ready, i.e. after
+ * bootstrapping, which writes books without going through the book service.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookSearchIndexReconciliation {
+    private final BookRepository bookRepository;
+    private final BookSearchIndex bookSearchIndex;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        bookSearchIndex.rebuild(bookRepository.listAllSearchTerms());
+    }
+}
@@ -0,0 +1,16 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * The searchable terms of a book, with one of its authors ({@code null} if it has none).
+ */
+@Data
+@AllArgsConstructor
+public class BookSearchTermsDTO {
+    private String isbn;
+    private String title;
+    private String genre;
+    private String authorName;
+}
@@ -3,8 +3,10 @@ package pt.psoft.g1.psoftg1.bookmanagement.services;
 
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PagedSlice;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  *
@@ -13,6 +15,11 @@ public interface BookService {
     Book create(CreateBookRequest request, String isbn);
     Book save(Book book);
     Book findByIsbn(String isbn);
+    /**
+     * Finds the books with the given ISBNs in a single query; ISBNs without a book are left out.
+     */
+    List<Book> findAllByIsbns(List<String> isbns);
+    Optional<Long> findVersionByIsbn(String isbn);
     Book update(UpdateBookRequest request, String currentVersion);
     List<Book> findByGenre(String genre);
     List<Book> findByTitle(String title);
@@ -21,4 +28,9 @@ public interface BookService {
     Book removeBookPhoto(String isbn, long desiredVersion);
     List<Book> getBooksSuggestionsForReader(String readerNumber);
     List<Book> searchBooks(Page page, SearchBooksQuery query);
+    /**
+     * Finds the books whose title or genre contains the given text, or that have an author whose name starts with
+     * the given text, ordered by title. Blank criteria are ignored.
+     */
+    PagedSlice<Book> findBooks(String title, String genre, String authorName, Page page);
 }
@@ -2,9 +2,8 @@ package pt.psoft.g1.psoftg1.bookmanagement.services;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.PropertySource;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
 import org.springframework.web.multipart.MultipartFile;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
@@ -13,29 +12,41 @@ import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import lombok.RequiredArgsConstructor;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
 import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorBookGraph;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreBookCounts;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingLeaderboards;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
-import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.PhotoReferences;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PagedSlice;
+import pt.psoft.g1.psoftg1.shared.services.TopKCounter;
 
-import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @PropertySource({"classpath:config/library.properties"})
 public class BookServiceImpl implements BookService {
+	private static final int MAX_MULTI_GET_KEYS = 100;
 
 	private final BookRepository bookRepository;
 	private final GenreRepository genreRepository;
 	private final AuthorRepository authorRepository;
-	private final PhotoRepository photoRepository;
+	private final PhotoReferences photoReferences;
 	private final ReaderRepository readerRepository;
+	private final LendingLeaderboards lendingLeaderboards;
+	private final GenreBookCounts genreBookCounts;
+	private final BookSearchIndex bookSearchIndex;
+	private final AuthorBookGraph authorBookGraph;
+	private final BookCache bookCache;
+	private final IsbnFilter isbnFilter;
+	private final ReaderSuggestionsCache readerSuggestionsCache;
 
 	@Value("${suggestionsLimitPerGenre}")
 	private long suggestionsLimitPerGenre;
@@ -43,7 +54,10 @@ public class BookServiceImpl implements BookService {
 	@Override
 	public Book create(CreateBookRequest request, String isbn) {
 
-		if(bookRepository.findByIsbn(isbn).isPresent()){
+		// most new ISBNs are known to be absent, so only the others are looked up
+		final IsbnFilter.Membership membership = isbnFilter.check(isbn);
+		if(membership == IsbnFilter.Membership.PRESENT
+				|| membership == IsbnFilter.Membership.UNKNOWN && bookRepository.findByIsbn(isbn).isPresent()){
 			throw new ConflictException("Book with ISBN " + isbn + " already exists");
 		}
 
@@ -72,14 +86,19 @@ public class BookServiceImpl implements BookService {
 
 		Book newBook = new Book(isbn, request.getTitle(), request.getDescription(), genre, authors, photoURI);
 
-        return bookRepository.save(newBook);
+		final Book saved = bookRepository.save(newBook);
+		photoReferences.acquire(photoURI, photo);
+		genreBookCounts.added(genre.getGenre());
+		bookSearchIndex.put(saved);
+		authorBookGraph.put(saved);
+		return saved;
 	}
 
 
 	@Override
 	public Book update(UpdateBookRequest request, String currentVersion) {
 
-        var book = findByIsbn(request.getIsbn());
+        var book = loadByIsbn(request.getIsbn());
         if(request.getAuthors()!= null) {
             List<Long> authorNumbers = request.getAuthors();
             List<Author> authors = new ArrayList<>();
@@ -110,10 +129,14 @@ public class BookServiceImpl implements BookService {
             request.setGenreObj(genre.get());
         }
 
+        final String previousGenre = book.getGenre().getGenre();
         book.applyPatch(Long.parseLong(currentVersion), request);
 
 		bookRepository.save(book);
-
+		photoReferences.acquire(photoURI, photo);
+		genreBookCounts.moved(previousGenre, book.getGenre().getGenre());
+		bookSearchIndex.putAll(bookRepository.listSearchTermsByIsbn(book.getIsbn()));
+		authorBookGraph.put(book);
 
 		return book;
 	}
@@ -125,14 +148,20 @@ public class BookServiceImpl implements BookService {
 
 	@Override
 	public List<BookCountDTO> findTop5BooksLent(){
-		LocalDate oneYearAgo = LocalDate.now().minusYears(1);
-		Pageable pageableRules = PageRequest.of(0,5);
-		return this.bookRepository.findTop5BooksLent(oneYearAgo, pageableRules).getContent();
+		final List<TopKCounter.Ranked<String>> top = lendingLeaderboards.topBooks(5);
+		if (top.isEmpty())
+			return List.of();
+		final Map<String, Book> books = bookRepository.findAllByIsbns(top.stream().map(TopKCounter.Ranked::key).toList())
+				.stream().collect(Collectors.toMap(Book::getIsbn, Function.identity()));
+		return top.stream()
+				.filter(ranked -> books.containsKey(ranked.key()))
+				.map(ranked -> new BookCountDTO(books.get(ranked.key()), ranked.count()))
+				.toList();
 	}
 
 	@Override
 	public Book removeBookPhoto(String isbn, long desiredVersion) {
-		Book book = this.findByIsbn(isbn);
+		Book book = loadByIsbn(isbn);
 		String photoFile;
 		try {
 			photoFile = book.getPhoto().getPhotoFile();
@@ -142,59 +171,77 @@ public class BookServiceImpl implements BookService {
 
 		book.removePhoto(desiredVersion);
 		var updatedBook = bookRepository.save(book);
-		photoRepository.deleteByPhotoFile(photoFile);
+		photoReferences.release(photoFile);
 		return updatedBook;
 	}
 
 	@Override
 	public List<Book> findByGenre(String genre) {
-		return this.bookRepository.findByGenre(genre);
+		if (!bookSearchIndex.isLoaded())
+			return this.bookRepository.findByGenre(genre);
+		return findAllInOrder(bookSearchIndex.sortByTitle(bookSearchIndex.containing(BookSearchIndex.Field.GENRE, genre)));
 	}
 
 	public List<Book> findByTitle(String title) {
-		return bookRepository.findByTitle(title);
+		if (!bookSearchIndex.isLoaded())
+			return bookRepository.findByTitle(title);
+		return findAllInOrder(bookSearchIndex.sortByTitle(bookSearchIndex.containing(BookSearchIndex.Field.TITLE, title)));
 	}
 
 	@Override
 	public List<Book> findByAuthorName(String authorName) {
-		return bookRepository.findByAuthorName(authorName + "%");
+		if (!bookSearchIndex.isLoaded())
+			return bookRepository.findByAuthorName(authorName + "%");
+		return findAllInOrder(bookSearchIndex.sortByTitle(bookSearchIndex.startingWith(BookSearchIndex.Field.AUTHOR_NAME, authorName)));
 	}
 
+	/**
+	 * @return the cached snapshot of the book, which must not be modified
+	 */
 	public Book findByIsbn(String isbn) {
+		return bookCache.get(isbn, bookRepository::findByIsbn)
+				.orElseThrow(() -> new NotFoundException(Book.class, isbn));
+	}
+
+	@Override
+	public List<Book> findAllByIsbns(List<String> isbns) {
+		final List<String> distinct = isbns.stream().distinct().toList();
+		if (distinct.isEmpty() || distinct.size() > MAX_MULTI_GET_KEYS)
+			throw new IllegalArgumentException("Between 1 and " + MAX_MULTI_GET_KEYS + " ISBNs must be requested");
+		return bookRepository.findAllByIsbns(distinct);
+	}
+
+	@Override
+	public Optional<Long> findVersionByIsbn(String isbn) {
+		return bookRepository.findVersionByIsbn(isbn);
+	}
+
+	/**
+	 * Loads a copy of the book that can be modified and saved.
+	 */
+	private Book loadByIsbn(String isbn) {
 		return this.bookRepository.findByIsbn(isbn)
 				.orElseThrow(() -> new NotFoundException(Book.class, isbn));
 	}
 
+	/**
+	 * Suggests up to {@code suggestionsLimitPerGenre} books of each genre the reader is interested in, which the
+	 * reader has not borrowed yet. The suggestions of every genre come from a single windowed query and are cached
+	 * per reader.
+	 */
 	public List<Book> getBooksSuggestionsForReader(String readerNumber) {
-		List<Book> books = new ArrayList<>();
+		return findAllInOrder(readerSuggestionsCache.get(readerNumber, () -> suggestIsbns(readerNumber)));
+	}
 
+	private List<String> suggestIsbns(String readerNumber) {
 		ReaderDetails readerDetails = readerRepository.findByReaderNumber(readerNumber)
 				.orElseThrow(() -> new NotFoundException("Reader not found with provided login"));
-		List<Genre> interestList = readerDetails.getInterestList();
 
-		if(interestList.isEmpty()) {
+		if(readerDetails.getInterestList().isEmpty()) {
 			throw new NotFoundException("Reader has no interests");
 		}
 
-		for(Genre genre : interestList) {
-			List<Book> tempBooks = bookRepository.findByGenre(genre.toString());
-			if(tempBooks.isEmpty()) {
-				continue;
-			}
-
-			long genreBookCount = 0;
-
-            for (Book loopBook : tempBooks) {
-                if (genreBookCount >= suggestionsLimitPerGenre) {
-                    break;
-                }
-
-                books.add(loopBook);
-				genreBookCount++;
-            }
-		}
-
-		return books;
+		return bookRepository.listSuggestionsForReader(readerNumber, suggestionsLimitPerGenre);
 	}
 
 	@Override
@@ -205,6 +252,69 @@ public class BookServiceImpl implements BookService {
 		if (query == null) {
 			query = new SearchBooksQuery("", "", "");
 		}
-		return bookRepository.searchBooks(page, query);
+		if (!bookSearchIndex.isLoaded())
+			return bookRepository.searchBooks(page, query);
+
+		Set<String> isbns = null;
+		if (StringUtils.hasText(query.getTitle()))
+			isbns = retainOrSet(isbns, bookSearchIndex.startingWith(BookSearchIndex.Field.TITLE, query.getTitle()));
+		if (StringUtils.hasText(query.getGenre()))
+			isbns = retainOrSet(isbns, bookSearchIndex.startingWith(BookSearchIndex.Field.GENRE, query.getGenre()));
+		if (StringUtils.hasText(query.getAuthorName()))
+			isbns = retainOrSet(isbns, bookSearchIndex.startingWith(BookSearchIndex.Field.AUTHOR_NAME, query.getAuthorName()));
+		if (isbns == null)
+			isbns = bookSearchIndex.all();
+
+		return findAllInOrder(bookSearchIndex.sortByTitle(isbns).stream()
+				.skip((long) (page.getNumber() - 1) * page.getLimit())
+				.limit(page.getLimit())
+				.toList());
+	}
+
+	@Override
+	public PagedSlice<Book> findBooks(String title, String genre, String authorName, Page page) {
+		if (page == null)
+			page = new Page(1, 10);
+		if (page.getNumber() < 1)
+			throw new IllegalArgumentException("Paging must start with page 1");
+		if (page.getLimit() < 1 || page.getLimit() > 100)
+			throw new IllegalArgumentException("Limit must be between 1 and 100");
+		if (!bookSearchIndex.isLoaded())
+			return bookRepository.findBooks(page, title, genre, authorName);
+
+		final Set<String> isbns = new HashSet<>();
+		if (StringUtils.hasText(title))
+			isbns.addAll(bookSearchIndex.containing(BookSearchIndex.Field.TITLE, title));
+		if (StringUtils.hasText(genre))
+			isbns.addAll(bookSearchIndex.containing(BookSearchIndex.Field.GENRE, genre));
+		if (StringUtils.hasText(authorName))
+			isbns.addAll(bookSearchIndex.startingWith(BookSearchIndex.Field.AUTHOR_NAME, authorName));
+
+		final List<String> sorted = bookSearchIndex.sortByTitle(isbns);
+		return new PagedSlice<>(findAllInOrder(sorted.stream()
+				.skip((long) (page.getNumber() - 1) * page.getLimit())
+				.limit(page.getLimit())
+				.toList()), sorted.size());
+	}
+
+	private static Set<String> retainOrSet(Set<String> isbns, Set<String> matching) {
+		if (isbns == null)
+			return matching;
+		isbns.retainAll(matching);
+		return isbns;
+	}
+
+	/**
+	 * Loads the books in a single query, keeping the order of {@code isbns}.
+	 */
+	private List<Book> findAllInOrder(List<String> isbns) {
+		if (isbns.isEmpty())
+			return new ArrayList<>();
+		final Map<String, Book> books = bookRepository.findAllByIsbns(isbns).stream()
+				.collect(Collectors.toMap(Book::getIsbn, Function.identity()));
+		return isbns.stream()
+				.map(books::get)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList());
 	}
 }
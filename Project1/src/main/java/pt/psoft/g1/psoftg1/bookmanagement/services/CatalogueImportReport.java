@@ -0,0 +1,24 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Outcome of importing a catalogue file. The counters cover every run of the same file; {@code errors} only has
+ * the first rejections of this run, as {@code "line <n>: <reason>"}.
+ */
+@Data
+@AllArgsConstructor
+public class CatalogueImportReport {
+    private String importId;
+    /**
+     * Number of lines that had been handled by earlier runs, and were skipped by this one.
+     */
+    private long resumedAfterLine;
+    private long imported;
+    private long rejected;
+    private boolean finished;
+    private List<String> errors;
+}
@@ -0,0 +1,12 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import org.springframework.web.multipart.MultipartFile;
+
+public interface CatalogueImportService {
+    /**
+     * Creates the books of a CSV or NDJSON catalogue file, chunk by chunk. Rows that are invalid, refer to an
+     * unknown genre or author, or whose ISBN already exists are rejected without stopping the import; importing
+     * the same file again resumes after the last chunk that was stored.
+     */
+    CatalogueImportReport importCatalogue(MultipartFile file);
+}
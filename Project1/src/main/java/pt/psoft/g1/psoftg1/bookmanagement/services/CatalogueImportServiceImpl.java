@@ -0,0 +1,227 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorBookGraph;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.model.CatalogueImport;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.CatalogueImportRepository;
+import pt.psoft.g1.psoftg1.exceptions.FileStorageException;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreBookCounts;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Imports catalogue files in chunks of {@code catalogueImportChunkSize} rows.
+ * <p>
+ * Genres and authors are resolved through dictionaries kept for the whole import: genres are all loaded up front,
+ * and the authors a chunk refers to that were not seen before are loaded with a single query. The rows of a chunk
+ * are then turned into books in parallel, which validates their ISBN, title and description; the chunk's ISBNs
+ * that the {@link IsbnFilter} cannot rule out are checked with a single query, and the new books are inserted in
+ * JDBC batches in one transaction, together with the {@link CatalogueImport} checkpoint of the file.
+ */
+@Service
+@PropertySource({"classpath:config/library.properties"})
+public class CatalogueImportServiceImpl implements CatalogueImportService {
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final BookRepository bookRepository;
+    private final GenreRepository genreRepository;
+    private final AuthorRepository authorRepository;
+    private final CatalogueImportRepository catalogueImportRepository;
+    private final GenreBookCounts genreBookCounts;
+    private final BookSearchIndex bookSearchIndex;
+    private final AuthorBookGraph authorBookGraph;
+    private final IsbnFilter isbnFilter;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaction;
+    private final int chunkSize;
+
+    public CatalogueImportServiceImpl(final BookRepository bookRepository,
+                                      final GenreRepository genreRepository,
+                                      final AuthorRepository authorRepository,
+                                      final CatalogueImportRepository catalogueImportRepository,
+                                      final GenreBookCounts genreBookCounts,
+                                      final BookSearchIndex bookSearchIndex,
+                                      final AuthorBookGraph authorBookGraph,
+                                      final IsbnFilter isbnFilter,
+                                      final ObjectMapper objectMapper,
+                                      final PlatformTransactionManager transactionManager,
+                                      @Value("${catalogueImportChunkSize}") final int chunkSize) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("Catalogue import chunk size must be at least 1");
+        this.bookRepository = bookRepository;
+        this.genreRepository = genreRepository;
+        this.authorRepository = authorRepository;
+        this.catalogueImportRepository = catalogueImportRepository;
+        this.genreBookCounts = genreBookCounts;
+        this.bookSearchIndex = bookSearchIndex;
+        this.authorBookGraph = authorBookGraph;
+        this.isbnFilter = isbnFilter;
+        this.objectMapper = objectMapper;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public CatalogueImportReport importCatalogue(final MultipartFile file) {
+        final CatalogueReader.Format format = CatalogueReader.Format.of(file.getOriginalFilename(), file.getContentType());
+        final String importId = checksum(file);
+        final CatalogueImport progress = catalogueImportRepository.findByImportId(importId)
+                .orElseGet(() -> new CatalogueImport(importId));
+        final long resumedAfterLine = progress.getLinesDone();
+        final List<String> errors = new ArrayList<>();
+
+        if (!progress.isFinished()) {
+            final Map<String, Genre> genres = new HashMap<>();
+            genreRepository.findAll().forEach(genre -> genres.put(genre.getGenre(), genre));
+            final Map<Long, Optional<Author>> authors = new HashMap<>();
+            final Set<String> seen = new HashSet<>();
+
+            try (InputStream in = file.getInputStream();
+                 CatalogueReader reader = new CatalogueReader(in, format, objectMapper)) {
+                reader.skipTo(resumedAfterLine);
+                for (List<CatalogueReader.Line> lines = reader.read(chunkSize); !lines.isEmpty(); lines = reader.read(chunkSize)) {
+                    importChunk(progress, reader.lineNumber(), lines, genres, authors, seen, errors);
+                }
+            } catch (IOException e) {
+                throw new FileStorageException("Could not read the catalogue file", e);
+            }
+            transaction.executeWithoutResult(status -> {
+                progress.finish();
+                catalogueImportRepository.save(progress);
+            });
+        }
+
+        return new CatalogueImportReport(importId, resumedAfterLine, progress.getImported(), progress.getRejected(),
+                progress.isFinished(), errors);
+    }
+
+    private void importChunk(final CatalogueImport progress, final long linesDone, final List<CatalogueReader.Line> lines,
+                             final Map<String, Genre> genres, final Map<Long, Optional<Author>> authors,
+                             final Set<String> seen, final List<String> errors) {
+        loadUnknownAuthors(lines, authors);
+
+        // building the books validates them, which is CPU-bound and independent per row
+        final List<Outcome> outcomes = lines.parallelStream()
+                .map(line -> toBook(line, genres, authors))
+                .toList();
+
+        // only the ISBNs the filter cannot rule out are looked up
+        final Set<String> existing = new HashSet<>();
+        final List<String> isbns = new ArrayList<>();
+        for (Outcome outcome : outcomes) {
+            if (outcome.book() == null)
+                continue;
+            switch (isbnFilter.check(outcome.book().getIsbn())) {
+                case PRESENT -> existing.add(outcome.book().getIsbn());
+                case UNKNOWN -> isbns.add(outcome.book().getIsbn());
+                case ABSENT -> { }
+            }
+        }
+        if (!isbns.isEmpty())
+            existing.addAll(bookRepository.findExistingIsbns(isbns));
+
+        final List<Book> books = new ArrayList<>();
+        long rejected = 0;
+        for (Outcome outcome : outcomes) {
+            String error = outcome.error();
+            if (error == null && (existing.contains(outcome.book().getIsbn()) || !seen.add(outcome.book().getIsbn())))
+                error = "a book with ISBN " + outcome.book().getIsbn() + " already exists";
+            if (error == null) {
+                books.add(outcome.book());
+                continue;
+            }
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS)
+                errors.add("line " + outcome.line() + ": " + error);
+        }
+
+        final long chunkRejected = rejected;
+        transaction.executeWithoutResult(status -> {
+            bookRepository.insertAll(books);
+            for (Book book : books) {
+                genreBookCounts.added(book.getGenre().getGenre());
+                bookSearchIndex.put(book);
+                authorBookGraph.put(book);
+            }
+            progress.advance(linesDone, books.size(), chunkRejected);
+            catalogueImportRepository.save(progress);
+        });
+    }
+
+    private void loadUnknownAuthors(final List<CatalogueReader.Line> lines, final Map<Long, Optional<Author>> authors) {
+        final Set<Long> unknown = new HashSet<>();
+        for (CatalogueReader.Line line : lines) {
+            if (line.row() != null && line.row().getAuthors() != null)
+                line.row().getAuthors().stream()
+                        .filter(number -> number != null && !authors.containsKey(number))
+                        .forEach(unknown::add);
+        }
+        if (unknown.isEmpty())
+            return;
+        unknown.forEach(number -> authors.put(number, Optional.empty()));
+        authorRepository.findAllByAuthorNumbers(unknown)
+                .forEach(author -> authors.put(author.getAuthorNumber(), Optional.of(author)));
+    }
+
+    private static Outcome toBook(final CatalogueReader.Line line, final Map<String, Genre> genres,
+                                  final Map<Long, Optional<Author>> authors) {
+        if (line.error() != null)
+            return new Outcome(line.number(), null, line.error());
+        final CatalogueRow row = line.row();
+
+        final Genre genre = genres.get(row.getGenre());
+        if (genre == null)
+            return new Outcome(line.number(), null, "genre " + row.getGenre() + " not found");
+        if (row.getAuthors() == null || row.getAuthors().isEmpty())
+            return new Outcome(line.number(), null, "a book needs at least one author");
+        final List<Author> bookAuthors = new ArrayList<>();
+        for (Long number : row.getAuthors().stream().distinct().toList()) {
+            final Optional<Author> author = number == null ? Optional.empty() : authors.get(number);
+            if (author.isEmpty())
+                return new Outcome(line.number(), null, "author " + number + " not found");
+            bookAuthors.add(author.get());
+        }
+
+        try {
+            return new Outcome(line.number(),
+                    new Book(row.getIsbn(), row.getTitle(), row.getDescription(), genre, bookAuthors, null), null);
+        } catch (IllegalArgumentException e) {
+            return new Outcome(line.number(), null, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the SHA-256 of the file, which identifies its checkpoint
+     */
+    private static String checksum(final MultipartFile file) {
+        try (DigestInputStream in = new DigestInputStream(file.getInputStream(), MessageDigest.getInstance("SHA-256"))) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(in.getMessageDigest().digest());
+        } catch (IOException e) {
+            throw new FileStorageException("Could not read the catalogue file", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Outcome(long line, Book book, String error) {
+    }
+}
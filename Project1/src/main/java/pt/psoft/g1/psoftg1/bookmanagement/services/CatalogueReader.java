@@ -0,0 +1,167 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Reads a catalogue file a line at a time, so files of any size are imported in constant memory.
+ * <p>
+ * CSV files start with a header naming the {@code isbn}, {@code title}, {@code genre}, {@code authors} and,
+ * optionally, {@code description} columns, in any order; fields may be double-quoted and the author numbers are
+ * separated by {@code ;}. NDJSON files have one {@link CatalogueRow} object per line. Blank lines are ignored.
+ */
+class CatalogueReader implements Closeable {
+    private static final List<String> REQUIRED_COLUMNS = List.of("isbn", "title", "genre", "authors");
+
+    enum Format {
+        CSV, NDJSON;
+
+        static Format of(final String fileName, final String contentType) {
+            final String name = fileName == null ? "" : fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv") || "text/csv".equals(contentType))
+                return CSV;
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl") || "application/x-ndjson".equals(contentType))
+                return NDJSON;
+            throw new IllegalArgumentException("Catalogue files must be CSV (.csv) or NDJSON (.ndjson, .jsonl)");
+        }
+    }
+
+    /**
+     * A non-blank line of the file: either its row or why it could not be read.
+     */
+    record Line(long number, CatalogueRow row, String error) {
+    }
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private long lineNumber;
+
+    CatalogueReader(final InputStream in, final Format format, final ObjectMapper objectMapper) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.format = format;
+        this.objectMapper = objectMapper;
+        if (format == Format.CSV)
+            readHeader();
+    }
+
+    /**
+     * @return number of lines read so far, header included
+     */
+    long lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Skips the lines up to {@code line}, which were handled by an earlier import of the same file.
+     */
+    void skipTo(final long line) throws IOException {
+        while (lineNumber < line && reader.readLine() != null) {
+            lineNumber++;
+        }
+    }
+
+    /**
+     * @return the next {@code max} non-blank lines; empty at the end of the file
+     */
+    List<Line> read(final int max) throws IOException {
+        final List<Line> lines = new ArrayList<>(max);
+        String text;
+        while (lines.size() < max && (text = reader.readLine()) != null) {
+            lineNumber++;
+            if (!text.isBlank())
+                lines.add(parse(text));
+        }
+        return lines;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void readHeader() throws IOException {
+        final String header = reader.readLine();
+        if (header == null)
+            throw new IllegalArgumentException("The catalogue file is empty");
+        lineNumber++;
+        final List<String> names = split(header.startsWith("\uFEFF") ? header.substring(1) : header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(column))
+                throw new IllegalArgumentException("The catalogue header has no " + column + " column");
+        }
+    }
+
+    private Line parse(final String text) {
+        try {
+            final CatalogueRow row = format == Format.CSV ? parseCsv(text) : objectMapper.readValue(text, CatalogueRow.class);
+            return new Line(lineNumber, row, null);
+        } catch (JsonProcessingException e) {
+            return new Line(lineNumber, null, "not a valid JSON object");
+        } catch (IllegalArgumentException e) {
+            return new Line(lineNumber, null, e.getMessage());
+        }
+    }
+
+    private CatalogueRow parseCsv(final String text) {
+        final List<String> fields = split(text);
+        if (fields.size() != columns.size())
+            throw new IllegalArgumentException("expected " + columns.size() + " fields but found " + fields.size());
+
+        final List<Long> authors = new ArrayList<>();
+        for (String number : field(fields, "authors").split(";")) {
+            if (number.isBlank())
+                continue;
+            try {
+                authors.add(Long.parseLong(number.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("invalid author number " + number.trim());
+            }
+        }
+        return new CatalogueRow(field(fields, "isbn"), field(fields, "title"), field(fields, "description"),
+                field(fields, "genre"), authors);
+    }
+
+    private String field(final List<String> fields, final String column) {
+        final Integer index = columns.get(column);
+        return index == null ? null : fields.get(index);
+    }
+
+    private static List<String> split(final String line) {
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted)
+            throw new IllegalArgumentException("unterminated quoted field");
+        fields.add(field.toString());
+        return fields;
+    }
+}
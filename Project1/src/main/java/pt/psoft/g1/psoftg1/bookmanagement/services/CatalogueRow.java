@@ -0,0 +1,21 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One book of a catalogue file. Authors are given by author number, as in {@link CreateBookRequest}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogueRow {
+    private String isbn;
+    private String title;
+    private String description;
+    private String genre;
+    private List<Long> authors;
+}
@@ -0,0 +1,100 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.shared.services.TransactionCallbacks;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the ISBNs suggested to each reader, holding the suggestions of at most {@code suggestionsCacheMaxSize}
+ * readers and evicting the least recently served one when full ({@code 0} disables it).
+ * <p>
+ * A reader's suggestions change when they borrow a book or change their interests, which evicts that reader, and
+ * when any book is written, which evicts everyone (see {@link BookCacheListener}). As in {@link BookCache}, every
+ * eviction bumps a generation and suggestions computed while it changed are not stored.
+ */
+@Component
+@PropertySource({"classpath:config/library.properties"})
+public class ReaderSuggestionsCache {
+    private final int maxSize;
+    private final Map<String, List<String>> isbnsByReaderNumber;
+    private long generation;
+
+    public ReaderSuggestionsCache(@Value("${suggestionsCacheMaxSize}") final int maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("Suggestions cache size cannot be negative");
+        this.maxSize = maxSize;
+        this.isbnsByReaderNumber = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, List<String>> eldest) {
+                return size() > ReaderSuggestionsCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param compute computes the suggestions when they are not cached
+     * @return ISBNs of the books suggested to the reader
+     */
+    public List<String> get(final String readerNumber, final Supplier<List<String>> compute) {
+        final long computeGeneration;
+        synchronized (this) {
+            final List<String> cached = isbnsByReaderNumber.get(readerNumber);
+            if (cached != null)
+                return cached;
+            computeGeneration = generation;
+        }
+
+        final List<String> computed = List.copyOf(compute.get());
+        synchronized (this) {
+            if (maxSize > 0 && generation == computeGeneration)
+                isbnsByReaderNumber.put(readerNumber, computed);
+        }
+        return computed;
+    }
+
+    /**
+     * Evicts the reader's suggestions, now and again once the surrounding transaction completes.
+     */
+    public void evict(final String readerNumber) {
+        afterCompletion(() -> doEvict(readerNumber));
+    }
+
+    /**
+     * Evicts every reader's suggestions, now and again once the surrounding transaction completes. Only the first
+     * call of a transaction does so, which covers the following ones: a bulk insert writing hundreds of books
+     * clears the cache twice, not twice per book.
+     */
+    public void clear() {
+        TransactionCallbacks.nowAndAfterCompletion(this, this::doClear);
+    }
+
+    private static void afterCompletion(final Runnable action) {
+        action.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private synchronized void doEvict(final String readerNumber) {
+        generation++;
+        isbnsByReaderNumber.remove(readerNumber);
+    }
+
+    private synchronized void doClear() {
+        generation++;
+        isbnsByReaderNumber.clear();
+    }
+}
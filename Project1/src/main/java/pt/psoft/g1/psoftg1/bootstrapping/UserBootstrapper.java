@@ -11,6 +11,7 @@ import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.readermanagement.services.ReaderNumberSequence;
 import pt.psoft.g1.psoftg1.usermanagement.model.Librarian;
 import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
@@ -29,10 +30,10 @@ import java.util.Optional;
 @Profile("bootstrap")
 @Order(1)
 public class UserBootstrapper implements CommandLineRunner {
-
     private final UserRepository userRepository;
     private final ReaderRepository readerRepository;
     private final GenreRepository genreRepository;
+    private final ReaderNumberSequence readerNumberSequence;
     private final JdbcTemplate jdbcTemplate;
     private List<String> queriesToExecute = new ArrayList<>();
 
@@ -40,6 +41,8 @@ public class UserBootstrapper implements CommandLineRunner {
     @Transactional
     public void run(final String... args)  {
         createReaders();
+        //readers above are created with fixed numbers of the current year
+        readerNumberSequence.claimExisting(LocalDate.now().getYear());
         createLibrarian();
         executeQueries();
     }
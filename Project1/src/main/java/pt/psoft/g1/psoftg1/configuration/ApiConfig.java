@@ -25,6 +25,9 @@ public class ApiConfig {
 
     /*
      * Etags
+     *
+     * Entities fetched by id answer If-None-Match from their version before loading anything (see
+     * ConcurrencyService#notModified); this filter still provides ETags for the other responses.
      */
     @Bean
     public ShallowEtagHeaderFilter shallowEtagHeaderFilter() {
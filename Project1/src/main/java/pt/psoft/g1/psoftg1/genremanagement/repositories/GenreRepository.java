@@ -5,7 +5,6 @@ import org.springframework.data.domain.Pageable;
 import pt.psoft.g1.psoftg1.bookmanagement.services.GenreBookCountDTO;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsDTO;
-import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsPerMonthDTO;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -17,8 +16,18 @@ public interface GenreRepository {
     Optional<Genre> findByString(String genreName);
     Genre save(Genre genre);
     Page<GenreBookCountDTO> findTop5GenreByBookCount(Pageable pageable);
-    List<GenreLendingsDTO> getAverageLendingsInMonth(LocalDate month, pt.psoft.g1.psoftg1.shared.services.Page page);
-    List<GenreLendingsPerMonthDTO> getLendingsPerMonthLastYearByGenre();
-    List<GenreLendingsPerMonthDTO> getLendingsAverageDurationPerMonth(LocalDate startDate, LocalDate endDate);
+    /**
+     * @return number of books of every genre that has any
+     */
+    List<GenreBookCountDTO> countBooksByGenre();
+    /**
+     * @return number of lendings started between {@code startDate} and {@code endDate} (inclusive), per genre
+     */
+    List<GenreLendingsDTO> getLendingCountsByGenre(LocalDate startDate, LocalDate endDate);
+    /**
+     * @return average duration, in days, of the returned lendings started between {@code startDate} and
+     * {@code endDate} (inclusive), per genre
+     */
+    List<GenreLendingsDTO> getLendingsAverageDurationByGenre(LocalDate startDate, LocalDate endDate);
     void delete(Genre genre);
 }
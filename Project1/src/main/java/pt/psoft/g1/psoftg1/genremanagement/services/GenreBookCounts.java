@@ -0,0 +1,49 @@
+package pt.psoft.g1.psoftg1.genremanagement.services;
+
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.bookmanagement.services.GenreBookCountDTO;
+import pt.psoft.g1.psoftg1.shared.services.TopKCounter;
+import pt.psoft.g1.psoftg1.shared.services.TransactionCallbacks;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live number of books of each genre, behind the "top 5 genres" endpoint.
+ * <p>
+ * Changes are counted once their transaction commits. Books written some other way (e.g. bootstrapping) are
+ * picked up by the periodic {@link GenreBookCountsReconciliation}.
+ */
+@Component
+public class GenreBookCounts {
+    private final TopKCounter<String> booksByGenre = new TopKCounter<>();
+
+    public void added(final String genre) {
+        TransactionCallbacks.afterCommit(() -> booksByGenre.add(genre, 1));
+    }
+
+    public void moved(final String fromGenre, final String toGenre) {
+        if (fromGenre.equals(toGenre))
+            return;
+        TransactionCallbacks.afterCommit(() -> {
+            booksByGenre.add(fromGenre, -1);
+            booksByGenre.add(toGenre, 1);
+        });
+    }
+
+    /**
+     * @return the genres with the most books, most books first
+     */
+    public List<GenreBookCountDTO> top(final int k) {
+        return booksByGenre.top(k).stream()
+                .map(ranked -> new GenreBookCountDTO(ranked.key(), ranked.count()))
+                .toList();
+    }
+
+    public void rebuild(final List<GenreBookCountDTO> counts) {
+        final Map<String, Long> byGenre = new HashMap<>();
+        counts.forEach(count -> byGenre.put(count.getGenre(), count.getBookCount()));
+        booksByGenre.reset(byGenre);
+    }
+}
@@ -0,0 +1,28 @@
+package pt.psoft.g1.psoftg1.genremanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+
+/**
+ * Recomputes the {@link GenreBookCounts} from the {@code Book} table once the application is ready
+ * (i.e. after bootstrapping) and then every {@code leaderboardsReconciliationIntervalInMillis}.
+ */
+@Component
+@RequiredArgsConstructor
+@PropertySource({"classpath:config/library.properties"})
+public class GenreBookCountsReconciliation {
+    private final GenreRepository genreRepository;
+    private final GenreBookCounts genreBookCounts;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${leaderboardsReconciliationIntervalInMillis}",
+            initialDelayString = "${leaderboardsReconciliationIntervalInMillis}")
+    public void reconcile() {
+        genreBookCounts.rebuild(genreRepository.countBooksByGenre());
+    }
+}
@@ -0,0 +1,96 @@
+package pt.psoft.g1.psoftg1.genremanagement.services;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Month-granular cache of the genre lending reports.
+ * <p>
+ * The statistics of a month only change when a lending that started in that month is created or returned, so
+ * entries are kept until such a change evicts them; in practice only the current month (and the start months of
+ * returned lendings) are ever recomputed.
+ * <p>
+ * Each month has a version that every eviction bumps. A result is only stored if the version did not change while
+ * it was being computed, so a report read before a change committed is never cached after it.
+ */
+@Component
+public class GenreReportCache {
+    public enum Report { LENDING_COUNT, AVERAGE_DURATION }
+
+    private record Key(Report report, YearMonth month) {
+    }
+
+    private final Map<Key, List<GenreLendingsDTO>> reports = new ConcurrentHashMap<>();
+    private final Map<YearMonth, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * @param compute computes the report when it is not cached
+     * @return the report of {@code month}, one value per genre
+     */
+    public List<GenreLendingsDTO> get(final Report report, final YearMonth month, final Supplier<List<GenreLendingsDTO>> compute) {
+        final Key key = new Key(report, month);
+        final List<GenreLendingsDTO> cached = reports.get(key);
+        if (cached != null)
+            return cached;
+
+        final long version = versionOf(month).get();
+        final List<GenreLendingsDTO> computed = List.copyOf(compute.get());
+        synchronized (versionOf(month)) {
+            if (versionOf(month).get() == version)
+                reports.put(key, computed);
+        }
+        return computed;
+    }
+
+    /**
+     * Evicts the reports of {@code month}, now and again once the surrounding transaction completes.
+     */
+    public void evict(final YearMonth month) {
+        doEvict(month);
+        afterCompletion(() -> doEvict(month));
+    }
+
+    /**
+     * Evicts every report, now and again once the surrounding transaction completes.
+     */
+    public void clear() {
+        doClear();
+        afterCompletion(this::doClear);
+    }
+
+    private void afterCompletion(final Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    private void doClear() {
+        versions.keySet().forEach(this::doEvict);
+    }
+
+    private void doEvict(final YearMonth month) {
+        synchronized (versionOf(month)) {
+            versionOf(month).incrementAndGet();
+            for (Report report : Report.values()) {
+                reports.remove(new Key(report, month));
+            }
+        }
+    }
+
+    private AtomicLong versionOf(final YearMonth month) {
+        return versions.computeIfAbsent(month, key -> new AtomicLong());
+    }
+}
@@ -1,17 +1,18 @@
 package pt.psoft.g1.psoftg1.genremanagement.services;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import pt.psoft.g1.psoftg1.bookmanagement.services.GenreBookCountDTO;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFactStore;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +21,9 @@ import java.util.Optional;
 public class GenreServiceImpl implements GenreService {
 
     private final GenreRepository genreRepository;
+    private final GenreReportCache genreReportCache;
+    private final GenreBookCounts genreBookCounts;
+    private final LendingFactStore lendingFactStore;
 
 
     public Optional<Genre> findByString(String name) {
@@ -33,8 +37,7 @@ public class GenreServiceImpl implements GenreService {
 
     @Override
     public List<GenreBookCountDTO> findTopGenreByBooks(){
-        Pageable pageableRules = PageRequest.of(0,5);
-        return this.genreRepository.findTop5GenreByBookCount(pageableRules).getContent();
+        return genreBookCounts.top(5);
     }
 
     @Override
@@ -44,7 +47,8 @@ public class GenreServiceImpl implements GenreService {
 
     @Override
     public List<GenreLendingsPerMonthDTO> getLendingsPerMonthLastYearByGenre() {
-        return genreRepository.getLendingsPerMonthLastYearByGenre();
+        final LocalDate now = LocalDate.now();
+        return getPerMonth(GenreReportCache.Report.LENDING_COUNT, now.minusMonths(12), now);
     }
 
     @Override
@@ -52,9 +56,14 @@ public class GenreServiceImpl implements GenreService {
         if (page == null)
             page = new Page(1, 10);
 
-        final var month = LocalDate.of(query.getYear(), query.getMonth(), 1);
+        final var month = YearMonth.of(query.getYear(), query.getMonth());
+        final int days = month.lengthOfMonth();
 
-        return genreRepository.getAverageLendingsInMonth(month, page);
+        return getMonth(GenreReportCache.Report.LENDING_COUNT, month).stream()
+                .map(count -> new GenreLendingsDTO(count.getGenre(), count.getValue().doubleValue() / days))
+                .skip((long) (page.getNumber() - 1) * page.getLimit())
+                .limit(page.getLimit())
+                .toList();
     }
 
     @Override
@@ -72,11 +81,51 @@ public class GenreServiceImpl implements GenreService {
         if(startDate.isAfter(endDate))
             throw new IllegalArgumentException("Start date cannot be after end date");
 
-        final var list = genreRepository.getLendingsAverageDurationPerMonth(startDate, endDate);
+        final var list = getPerMonth(GenreReportCache.Report.AVERAGE_DURATION, startDate, endDate);
 
         if (list.isEmpty())
             throw new NotFoundException("No objects match the provided criteria");
 
         return list;
     }
+
+    /**
+     * Builds a per-month report between {@code startDate} and {@code endDate} (inclusive), leaving out months
+     * without values. Whole months come from the cache; a month only partially covered by the range is queried.
+     */
+    private List<GenreLendingsPerMonthDTO> getPerMonth(GenreReportCache.Report report, LocalDate startDate, LocalDate endDate) {
+        final List<GenreLendingsPerMonthDTO> perMonth = new ArrayList<>();
+        for (YearMonth month = YearMonth.from(startDate); !month.isAfter(YearMonth.from(endDate)); month = month.plusMonths(1)) {
+            final LocalDate from = startDate.isAfter(month.atDay(1)) ? startDate : month.atDay(1);
+            final LocalDate to = endDate.isBefore(month.atEndOfMonth()) ? endDate : month.atEndOfMonth();
+            // lendings cannot start in the future, so the current month up to today is the whole month
+            final boolean wholeMonth = from.equals(month.atDay(1))
+                    && (to.equals(month.atEndOfMonth()) || !to.isBefore(LocalDate.now()));
+
+            final List<GenreLendingsDTO> values = wholeMonth ? getMonth(report, month) : query(report, from, to);
+            if (!values.isEmpty())
+                perMonth.add(new GenreLendingsPerMonthDTO(month.getYear(), month.getMonthValue(), values));
+        }
+        return perMonth;
+    }
+
+    private List<GenreLendingsDTO> getMonth(GenreReportCache.Report report, YearMonth month) {
+        return genreReportCache.get(report, month, () -> query(report, month.atDay(1), month.atEndOfMonth()));
+    }
+
+    /**
+     * Scans the {@link LendingFactStore}, or queries the lending rollups until the store has been loaded.
+     */
+    private List<GenreLendingsDTO> query(GenreReportCache.Report report, LocalDate startDate, LocalDate endDate) {
+        if (lendingFactStore.isLoaded()) {
+            return switch (report) {
+                case LENDING_COUNT -> lendingFactStore.getLendingCountsByGenre(startDate, endDate);
+                case AVERAGE_DURATION -> lendingFactStore.getLendingsAverageDurationByGenre(startDate, endDate);
+            };
+        }
+        return switch (report) {
+            case LENDING_COUNT -> genreRepository.getLendingCountsByGenre(startDate, endDate);
+            case AVERAGE_DURATION -> genreRepository.getLendingsAverageDurationByGenre(startDate, endDate);
+        };
+    }
 }
@@ -0,0 +1,18 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.api;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+@Schema(description = "The outcome of one item of a batch of Lendings")
+public class LendingBatchItemView {
+    @NotNull
+    @Schema(description = "HTTP status the item would have had as a single request")
+    private Integer status;
+
+    @Schema(description = "Why the item was rejected (if applicable)")
+    private String message;
+
+    private LendingView lending;
+}
@@ -17,12 +17,15 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.CreateLendingRequest;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.CreateLendingsRequest;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingService;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.SearchLendingQuery;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.SetLendingReturnedRequest;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.SetLendingsReturnedRequest;
 import pt.psoft.g1.psoftg1.readermanagement.api.ReaderLendingsAvgPerMonthView;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
+import pt.psoft.g1.psoftg1.shared.api.KeysetListResponse;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.Page;
@@ -63,9 +66,24 @@ public class LendingController {
                 .body(lendingViewMapper.toLendingView(lending));
     }
 
+    @Operation(summary = "Creates several Lendings at once, reporting the outcome of each one")
+    @PostMapping(value = "/batch")
+    public ListResponse<LendingBatchItemView> createAll(@Valid @RequestBody final CreateLendingsRequest resource) {
+        final var results = lendingService.createAll(resource.getLendings());
+        return new ListResponse<>(lendingViewMapper.toLendingBatchItemView(results));
+    }
+
+    @Operation(summary = "Sets several Lendings as returned at once, reporting the outcome of each one")
+    @PatchMapping(value = "/batch")
+    public ListResponse<LendingBatchItemView> setReturnedAll(@Valid @RequestBody final SetLendingsReturnedRequest resource) {
+        final var results = lendingService.setReturnedAll(resource.getLendings());
+        return new ListResponse<>(lendingViewMapper.toLendingBatchItemView(results));
+    }
+
     @Operation(summary = "Gets a specific Lending")
     @GetMapping(value = "/{year}/{seq}")
     public ResponseEntity<LendingView> findByLendingNumber(
+            final WebRequest request,
             Authentication authentication,
             @PathVariable("year")
                 @Parameter(description = "The year of the Lending to find")
@@ -75,20 +93,27 @@ public class LendingController {
                 final Integer seq) {
 
         String ln = year + "/" + seq;
-        final var lending = lendingService.findByLendingNumber(ln)
-                .orElseThrow(() -> new NotFoundException(Lending.class, ln));
-
         User loggedUser = userService.getAuthenticatedUser(authentication);
 
-        //if Librarian is logged in, skip ahead
-        if (!(loggedUser instanceof Librarian)) {
-            final var loggedReaderDetails = readerService.findByUsername(loggedUser.getUsername())
-                    .orElseThrow(() -> new NotFoundException(ReaderDetails.class, loggedUser.getUsername()));
+        //if Librarian is logged in, every lending is visible
+        final String visibleToReaderNumber = loggedUser instanceof Librarian ? null
+                : readerService.findByUsername(loggedUser.getUsername())
+                    .orElseThrow(() -> new NotFoundException(ReaderDetails.class, loggedUser.getUsername()))
+                    .getReaderNumber();
+
+        // a reader only gets a 304 for their own lendings, like they only get a 200
+        final var notModified = concurrencyService.<LendingView>notModified(request,
+                () -> lendingService.findVersionByLendingNumber(ln, visibleToReaderNumber));
+        if (notModified.isPresent())
+            return notModified.get();
 
-            //if logged Reader matches the one associated with the lending, skip ahead
-            if (!Objects.equals(loggedReaderDetails.getReaderNumber(), lending.getReaderDetails().getReaderNumber())) {
-                throw new AccessDeniedException("Reader does not have permission to view this lending");
-            }
+        final var lending = lendingService.findByLendingNumber(ln)
+                .orElseThrow(() -> new NotFoundException(Lending.class, ln));
+
+        //if logged Reader matches the one associated with the lending, skip ahead
+        if (visibleToReaderNumber != null
+                && !Objects.equals(visibleToReaderNumber, lending.getReaderDetails().getReaderNumber())) {
+            throw new AccessDeniedException("Reader does not have permission to view this lending");
         }
         final var lendingUri = ServletUriComponentsBuilder.fromCurrentRequestUri()
                 .build().toUri();
@@ -154,6 +179,16 @@ public class LendingController {
         return new ListResponse<>(lendingViewMapper.toLendingView(overdueLendings));
     }
 
+    @Operation(summary = "Get overdue lendings by cursor, oldest limit date first")
+    @GetMapping(value = "/overdue", params = "cursor")
+    public KeysetListResponse<LendingView> getOverdueLendingsByCursor(
+            @RequestParam("cursor") @Parameter(description = "Token returned with the previous page, empty for the first page")
+                final String cursor,
+            @RequestParam(value = "limit", defaultValue = "10") final int limit) {
+        final var slice = lendingService.getOverdue(cursor, limit);
+        return new KeysetListResponse<>(lendingViewMapper.toLendingView(slice.getItems()), slice.getNext());
+    }
+
     @PostMapping("/search")
     public ListResponse<LendingView> searchReaders(
             @RequestBody final SearchRequest<SearchLendingQuery> request) {
@@ -161,6 +196,17 @@ public class LendingController {
         return new ListResponse<>(lendingViewMapper.toLendingView(readerList));
     }
 
+    @Operation(summary = "Search lendings by cursor, ordered by lending number")
+    @PostMapping(value = "/search", params = "cursor")
+    public KeysetListResponse<LendingView> searchLendingsByCursor(
+            @RequestParam("cursor") @Parameter(description = "Token returned with the previous page, empty for the first page")
+                final String cursor,
+            @RequestParam(value = "limit", defaultValue = "10") final int limit,
+            @RequestBody final SearchRequest<SearchLendingQuery> request) {
+        final var slice = lendingService.searchLendings(cursor, limit, request.getQuery());
+        return new KeysetListResponse<>(lendingViewMapper.toLendingView(slice.getItems()), slice.getNext());
+    }
+
 /*    @Operation(summary = "Get list monthly average lendings per reader")
     @GetMapping(value = "/averageMonthlyPerReader")
     public ListResponse<ReaderLendingsAvgPerMonthView>getAverageMonthlyPerReader(
@@ -3,8 +3,10 @@ package pt.psoft.g1.psoftg1.lendingmanagement.api;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Named;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingBatchResult;
 import pt.psoft.g1.psoftg1.shared.api.MapperInterface;
 
 import java.util.*;
@@ -30,4 +32,22 @@ public abstract class LendingViewMapper extends MapperInterface {
     public abstract List<LendingView> toLendingView(List<Lending> lendings);
 
     public abstract LendingsAverageDurationView toLendingsAverageDurationView(Double lendingsAverageDuration);
+
+    public LendingBatchItemView toLendingBatchItemView(LendingBatchResult result) {
+        final LendingBatchItemView view = new LendingBatchItemView();
+        view.setStatus(switch (result.getOutcome()) {
+            case CREATED -> HttpStatus.CREATED.value();
+            case RETURNED -> HttpStatus.OK.value();
+            case NOT_FOUND -> HttpStatus.NOT_FOUND.value();
+            case FORBIDDEN -> HttpStatus.FORBIDDEN.value();
+            case CONFLICT -> HttpStatus.CONFLICT.value();
+            case INVALID -> HttpStatus.BAD_REQUEST.value();
+        });
+        view.setMessage(result.getMessage());
+        if (result.isSuccess())
+            view.setLending(toLendingView(result.getLending()));
+        return view;
+    }
+
+    public abstract List<LendingBatchItemView> toLendingBatchItemView(List<LendingBatchResult> results);
 }
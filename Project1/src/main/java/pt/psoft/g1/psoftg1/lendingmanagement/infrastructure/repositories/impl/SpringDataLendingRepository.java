@@ -5,6 +5,7 @@ import jakarta.persistence.Tuple;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -14,15 +15,22 @@ import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsDTO;
 import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsPerMonthDTO;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingCountDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFactDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.OutstandingLendingDTO;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderAverageDto;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderLendingsAvgPerMonthDto;
+import pt.psoft.g1.psoftg1.shared.services.KeysetCursor;
+import pt.psoft.g1.psoftg1.shared.services.KeysetSlice;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 import pt.psoft.g1.psoftg1.usermanagement.model.User;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Function;
 
 public interface SpringDataLendingRepository extends LendingRepository, LendingRepoCustom, CrudRepository<Lending, Long> {
     @Override
@@ -31,9 +39,24 @@ public interface SpringDataLendingRepository extends LendingRepository, LendingR
             "WHERE l.lendingNumber.lendingNumber = :lendingNumber")
     Optional<Lending> findByLendingNumber(String lendingNumber);
 
+    @Override
+    @Query("SELECT l.version " +
+            "FROM Lending l " +
+            "WHERE l.lendingNumber.lendingNumber = :lendingNumber " +
+                "AND (:readerNumber IS NULL OR l.readerDetails.readerNumber.readerNumber = :readerNumber)")
+    Optional<Long> findVersionByLendingNumber(String lendingNumber, String readerNumber);
+
+    @Override
+    @EntityGraph(Lending.VIEW_GRAPH)
+    @Query("SELECT l " +
+            "FROM Lending l " +
+            "WHERE l.lendingNumber.lendingNumber IN :lendingNumbers")
+    List<Lending> findAllByLendingNumbers(@Param("lendingNumbers") Collection<String> lendingNumbers);
+
     //http://www.h2database.com/html/commands.html
 
     @Override
+    @EntityGraph(Lending.VIEW_GRAPH)
     @Query("SELECT l " +
             "FROM Lending l " +
             "JOIN Book b ON l.book.pk = b.pk " +
@@ -48,6 +71,12 @@ public interface SpringDataLendingRepository extends LendingRepository, LendingR
             "WHERE YEAR(l.startDate) = YEAR(CURRENT_DATE)")
     int getCountFromCurrentYear();
 
+    @Override
+    @Query("SELECT COALESCE(MAX(CAST(SUBSTRING(l.lendingNumber.lendingNumber, 6) AS Integer)), 0) " +
+            "FROM Lending l " +
+            "WHERE l.lendingNumber.lendingNumber LIKE CONCAT(CAST(:year AS String), '/%')")
+    int getMaxSequentialFromYear(@Param("year") int year);
+
     @Override
     @Query("SELECT l " +
             "FROM Lending l " +
@@ -56,6 +85,59 @@ public interface SpringDataLendingRepository extends LendingRepository, LendingR
                 "AND l.returnedDate IS NULL")
     List<Lending> listOutstandingByReaderNumber(@Param("readerNumber") String readerNumber);
 
+    @Override
+    @Query("SELECT NEW pt.psoft.g1.psoftg1.lendingmanagement.services.OutstandingLendingDTO(" +
+                "r.readerNumber.readerNumber, l.lendingNumber.lendingNumber, l.limitDate) " +
+            "FROM Lending l " +
+                "JOIN ReaderDetails r ON l.readerDetails.pk = r.pk " +
+            "WHERE l.returnedDate IS NULL")
+    List<OutstandingLendingDTO> listAllOutstanding();
+
+    @Override
+    @Query("SELECT NEW pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFactDTO(" +
+                "l.lendingNumber.lendingNumber, b.isbn.isbn, g.genre, r.readerNumber.readerNumber, " +
+                "l.startDate, l.returnedDate) " +
+            "FROM Lending l " +
+                "JOIN Book b ON l.book.pk = b.pk " +
+                "JOIN Genre g ON b.genre.pk = g.pk " +
+                "JOIN ReaderDetails r ON l.readerDetails.pk = r.pk")
+    List<LendingFactDTO> listAllFacts();
+
+    @Override
+    @Query("SELECT NEW pt.psoft.g1.psoftg1.lendingmanagement.services.LendingCountDTO(" +
+                "b.isbn.isbn, l.startDate, COUNT(l)) " +
+            "FROM Lending l " +
+                "JOIN Book b ON l.book.pk = b.pk " +
+            "WHERE l.startDate > :after " +
+            "GROUP BY b.isbn.isbn, l.startDate")
+    List<LendingCountDTO> countByIsbnAndDaySince(@Param("after") LocalDate after);
+
+    @Override
+    @Query("SELECT NEW pt.psoft.g1.psoftg1.lendingmanagement.services.LendingCountDTO(a.name.name, COUNT(l)) " +
+            "FROM Lending l " +
+                "JOIN l.book b " +
+                "JOIN b.authors a " +
+            "GROUP BY a.name.name")
+    List<LendingCountDTO> countByAuthorName();
+
+    @Override
+    @Query("SELECT NEW pt.psoft.g1.psoftg1.lendingmanagement.services.LendingCountDTO(" +
+                "r.readerNumber.readerNumber, COUNT(l)) " +
+            "FROM Lending l " +
+                "JOIN ReaderDetails r ON l.readerDetails.pk = r.pk " +
+            "GROUP BY r.readerNumber.readerNumber")
+    List<LendingCountDTO> countByReaderNumber();
+
+    @Override
+    @Query("SELECT NEW pt.psoft.g1.psoftg1.lendingmanagement.services.LendingCountDTO(" +
+                "g.genre, r.readerNumber.readerNumber, l.startDate, COUNT(l)) " +
+            "FROM Lending l " +
+                "JOIN ReaderDetails r ON l.readerDetails.pk = r.pk " +
+                "JOIN Book b ON l.book.pk = b.pk " +
+                "JOIN Genre g ON b.genre.pk = g.pk " +
+            "GROUP BY g.genre, r.readerNumber.readerNumber, l.startDate")
+    List<LendingCountDTO> countByGenreReaderNumberAndDay();
+
     @Override
     @Query(value =
             "SELECT AVG(DATEDIFF(day, l.start_date, l.returned_date)) " +
@@ -77,13 +159,17 @@ public interface SpringDataLendingRepository extends LendingRepository, LendingR
 
 interface LendingRepoCustom {
     List<Lending> getOverdue(Page page);
+    KeysetSlice<Lending> getOverdue(KeysetCursor after, int limit);
     List<Lending> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
+    KeysetSlice<Lending> searchLendings(KeysetCursor after, int limit, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
 //    List<ReaderAverageDto> getAverageMonthlyPerReader(LocalDate startDate, LocalDate endDate);
 
 }
 
 @RequiredArgsConstructor
 class LendingRepoCustomImpl implements LendingRepoCustom {
+    private static final String LOAD_GRAPH = "jakarta.persistence.loadgraph";
+
     // get the underlying JPA Entity Manager via spring thru constructor dependency
     // injection
     private final EntityManager em;
@@ -109,24 +195,99 @@ class LendingRepoCustomImpl implements LendingRepoCustom {
         final TypedQuery<Lending> q = em.createQuery(cq);
         q.setFirstResult((page.getNumber() - 1) * page.getLimit());
         q.setMaxResults(page.getLimit());
+        q.setHint(LOAD_GRAPH, em.getEntityGraph(Lending.VIEW_GRAPH));
 
         return q.getResultList();
     }
 
+    /**
+     * Keyset variant of {@link #getOverdue(Page)}: seeks past {@code after} on ({@code limitDate}, {@code pk})
+     * instead of skipping rows, so every page costs the same regardless of its depth.
+     */
+    @Override
+    public KeysetSlice<Lending> getOverdue(KeysetCursor after, int limit)
+    {
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        final Root<Lending> root = cq.from(Lending.class);
+        cq.multiselect(root, root.get("pk"));
+
+        final List<Predicate> where = new ArrayList<>();
+        where.add(cb.isNull(root.get("returnedDate")));
+        where.add(cb.lessThan(root.get("limitDate"), LocalDate.now()));
+        if (after != null) {
+            final LocalDate limitDate;
+            try {
+                limitDate = LocalDate.parse(after.getKey());
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            where.add(cb.or(
+                    cb.greaterThan(root.get("limitDate"), limitDate),
+                    cb.and(cb.equal(root.get("limitDate"), limitDate), cb.greaterThan(root.get("pk"), after.getPk()))));
+        }
+
+        cq.where(where.toArray(new Predicate[0]));
+        cq.orderBy(cb.asc(root.get("limitDate")), cb.asc(root.get("pk")));
+
+        return toKeysetSlice(cq, limit, lending -> lending.getLimitDate().toString());
+    }
+
     public List<Lending> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate){
         final CriteriaBuilder cb = em.getCriteriaBuilder();
         final CriteriaQuery<Lending> cq = cb.createQuery(Lending.class);
         final Root<Lending> lendingRoot = cq.from(Lending.class);
-        final Join<Lending, Book> bookJoin = lendingRoot.join("book");
-        final Join<Lending, ReaderDetails> readerDetailsJoin = lendingRoot.join("readerDetails");
         cq.select(lendingRoot);
 
+        final List<Predicate> where = searchPredicates(cb, lendingRoot, readerNumber, isbn, returned, startDate, endDate);
+
+        cq.where(where.toArray(new Predicate[0]));
+        cq.orderBy(cb.asc(lendingRoot.get("lendingNumber")));
+
+        final TypedQuery<Lending> q = em.createQuery(cq);
+        q.setFirstResult((page.getNumber() - 1) * page.getLimit());
+        q.setMaxResults(page.getLimit());
+        q.setHint(LOAD_GRAPH, em.getEntityGraph(Lending.VIEW_GRAPH));
+
+        return q.getResultList();
+    }
+
+    /**
+     * Keyset variant of {@link #searchLendings(Page, String, String, Boolean, LocalDate, LocalDate)}: seeks past
+     * {@code after} on ({@code lendingNumber}, {@code pk}), which is backed by the lending number's unique index.
+     */
+    @Override
+    public KeysetSlice<Lending> searchLendings(KeysetCursor after, int limit, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate){
+        final CriteriaBuilder cb = em.getCriteriaBuilder();
+        final CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        final Root<Lending> lendingRoot = cq.from(Lending.class);
+        cq.multiselect(lendingRoot, lendingRoot.get("pk"));
+
+        final List<Predicate> where = searchPredicates(cb, lendingRoot, readerNumber, isbn, returned, startDate, endDate);
+        final Path<String> lendingNumber = lendingRoot.get("lendingNumber").get("lendingNumber");
+        if (after != null) {
+            where.add(cb.or(
+                    cb.greaterThan(lendingNumber, after.getKey()),
+                    cb.and(cb.equal(lendingNumber, after.getKey()), cb.greaterThan(lendingRoot.get("pk"), after.getPk()))));
+        }
+
+        cq.where(where.toArray(new Predicate[0]));
+        cq.orderBy(cb.asc(lendingNumber), cb.asc(lendingRoot.get("pk")));
+
+        return toKeysetSlice(cq, limit, Lending::getLendingNumber);
+    }
+
+    private List<Predicate> searchPredicates(CriteriaBuilder cb, Root<Lending> lendingRoot, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate){
         final List<Predicate> where = new ArrayList<>();
 
-        if (StringUtils.hasText(readerNumber))
+        if (StringUtils.hasText(readerNumber)) {
+            final Join<Lending, ReaderDetails> readerDetailsJoin = lendingRoot.join("readerDetails");
             where.add(cb.like(readerDetailsJoin.get("readerNumber").get("readerNumber"), readerNumber));
-        if (StringUtils.hasText(isbn))
+        }
+        if (StringUtils.hasText(isbn)) {
+            final Join<Lending, Book> bookJoin = lendingRoot.join("book");
             where.add(cb.like(bookJoin.get("isbn").get("isbn"), isbn));
+        }
         if (returned != null){
             if(returned){
                 where.add(cb.isNotNull(lendingRoot.get("returnedDate")));
@@ -139,14 +300,31 @@ class LendingRepoCustomImpl implements LendingRepoCustom {
         if(endDate!=null)
             where.add(cb.lessThanOrEqualTo(lendingRoot.get("startDate"), endDate));
 
-        cq.where(where.toArray(new Predicate[0]));
-        cq.orderBy(cb.asc(lendingRoot.get("lendingNumber")));
+        return where;
+    }
 
-        final TypedQuery<Lending> q = em.createQuery(cq);
-        q.setFirstResult((page.getNumber() - 1) * page.getLimit());
-        q.setMaxResults(page.getLimit());
+    /**
+     * Fetches one row more than {@code limit} to know whether there is a next page, and builds
+     * its cursor from the last row returned.
+     */
+    private KeysetSlice<Lending> toKeysetSlice(CriteriaQuery<Tuple> cq, int limit, Function<Lending, String> sortKey){
+        final List<Tuple> rows = em.createQuery(cq)
+                .setMaxResults(limit + 1)
+                .setHint(LOAD_GRAPH, em.getEntityGraph(Lending.VIEW_GRAPH))
+                .getResultList();
+
+        final List<Lending> items = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, rows.size()); i++) {
+            items.add(rows.get(i).get(0, Lending.class));
+        }
 
-        return q.getResultList();
+        String next = null;
+        if (rows.size() > limit) {
+            final Tuple last = rows.get(limit - 1);
+            final Lending lending = last.get(0, Lending.class);
+            next = new KeysetCursor(sortKey.apply(lending), last.get(1, Long.class)).encode();
+        }
+        return new KeysetSlice<>(items, next);
     }
 
 /*
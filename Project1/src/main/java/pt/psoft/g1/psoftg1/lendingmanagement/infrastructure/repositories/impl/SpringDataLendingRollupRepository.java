@@ -0,0 +1,67 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.infrastructure.repositories.impl;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingRollup;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.LendingRollupKey;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRollupRepository;
+
+import java.time.LocalDate;
+
+public interface SpringDataLendingRollupRepository extends LendingRollupRepository, CrudRepository<LendingRollup, LendingRollupKey> {
+    @Override
+    @Modifying
+    @Query("UPDATE LendingRollup r " +
+            "SET r.lendingCount = r.lendingCount + :lendingCount, " +
+                "r.returnedCount = r.returnedCount + :returnedCount, " +
+                "r.durationSum = r.durationSum + :durationSum " +
+            "WHERE r.key.day = :day " +
+                "AND r.key.isbn = :isbn " +
+                "AND r.key.genre = :genre " +
+                "AND r.key.readerNumber = :readerNumber")
+    int increment(@Param("day") LocalDate day, @Param("isbn") String isbn, @Param("genre") String genre,
+                  @Param("readerNumber") String readerNumber, @Param("lendingCount") long lendingCount,
+                  @Param("returnedCount") long returnedCount, @Param("durationSum") long durationSum);
+
+    @Override
+    @Modifying
+    @Query(value =
+            "INSERT INTO LENDING_ROLLUP (ROLLUP_DAY, ISBN, GENRE, READER_NUMBER, LENDING_COUNT, RETURNED_COUNT, DURATION_SUM) " +
+            "VALUES (:day, :isbn, :genre, :readerNumber, :lendingCount, :returnedCount, :durationSum)"
+            , nativeQuery = true)
+    void insert(@Param("day") LocalDate day, @Param("isbn") String isbn, @Param("genre") String genre,
+                @Param("readerNumber") String readerNumber, @Param("lendingCount") long lendingCount,
+                @Param("returnedCount") long returnedCount, @Param("durationSum") long durationSum);
+
+    @Override
+    @Modifying
+    @Query("DELETE FROM LendingRollup")
+    void deleteAllRollups();
+
+    @Override
+    @Modifying
+    @Query(value =
+            "INSERT INTO LENDING_ROLLUP (ROLLUP_DAY, ISBN, GENRE, READER_NUMBER, LENDING_COUNT, RETURNED_COUNT, DURATION_SUM) " +
+            "SELECT l.START_DATE, b.ISBN, g.GENRE, r.READER_NUMBER, COUNT(*), COUNT(l.RETURNED_DATE), " +
+                "COALESCE(SUM(DATEDIFF(day, l.START_DATE, l.RETURNED_DATE)), 0) " +
+            "FROM LENDING l " +
+                "JOIN BOOK b ON l.BOOK_PK = b.PK " +
+                "JOIN GENRE g ON b.GENRE_PK = g.PK " +
+                "JOIN READER_DETAILS r ON l.READER_DETAILS_PK = r.PK " +
+            "GROUP BY l.START_DATE, b.ISBN, g.GENRE, r.READER_NUMBER"
+            , nativeQuery = true)
+    void insertAllFromLendings();
+
+    @Override
+    @Query("SELECT CAST(SUM(r.durationSum) AS Double) / NULLIF(SUM(r.returnedCount), 0) " +
+            "FROM LendingRollup r")
+    Double getAverageDuration();
+
+    @Override
+    @Query("SELECT CAST(SUM(r.durationSum) AS Double) / NULLIF(SUM(r.returnedCount), 0) " +
+            "FROM LendingRollup r " +
+            "WHERE r.key.isbn = :isbn")
+    Double getAvgLendingDurationByIsbn(@Param("isbn") String isbn);
+}
@@ -7,6 +7,9 @@ import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import org.hibernate.StaleObjectStateException;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFactsListener;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.OutstandingLendingsListener;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.ReaderSuggestionsListener;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 
 import java.time.LocalDate;
@@ -24,9 +27,24 @@ import java.util.Optional;
  * natural key ({@code LendingNumber}) with its own business rules.
  * @author  rmfranca*/
 @Entity
+@EntityListeners({OutstandingLendingsListener.class, LendingFactsListener.class, ReaderSuggestionsListener.class})
+@NamedEntityGraph(name = Lending.VIEW_GRAPH, attributeNodes = {
+        @NamedAttributeNode(value = "book", subgraph = "book"),
+        @NamedAttributeNode(value = "readerDetails", subgraph = "readerDetails")},
+        subgraphs = {
+        @NamedSubgraph(name = "book", attributeNodes = {@NamedAttributeNode("genre"), @NamedAttributeNode("photo")}),
+        @NamedSubgraph(name = "readerDetails", attributeNodes = {@NamedAttributeNode("reader"), @NamedAttributeNode("photo")})})
 @Table(uniqueConstraints = {
-        @UniqueConstraint(columnNames={"LENDING_NUMBER"})})
+        @UniqueConstraint(columnNames={"LENDING_NUMBER"})},
+        indexes = {
+        @Index(name = "IDX_LENDING_LIMIT_DATE", columnList = "LIMIT_DATE, PK")})
 public class Lending {
+    /**
+     * Entity graph of the eager associations a {@code LendingView} is built from, so a list of lendings is loaded
+     * in a single query instead of one more select per book and reader.
+     */
+    public static final String VIEW_GRAPH = "Lending.view";
+
 
     /**
      * Database primary key. Since this field is autogenerated by the database there
@@ -130,13 +148,27 @@ public class Lending {
      * @throws      NullPointerException if any of the arguments is {@code null}
      * */
     public Lending(Book book, ReaderDetails readerDetails, int seq, int lendingDuration, int fineValuePerDayInCents){
+        this(book, readerDetails, LocalDate.now().getYear(), seq, lendingDuration, fineValuePerDayInCents);
+    }
+
+    /**
+     * Constructs a new {@code Lending} object to be persisted in the database, with an explicit
+     * {@code year} component for its {@code LendingNumber}.
+     *
+     * @param       book {@code Book} object, which should be retrieved from the database.
+     * @param       readerDetails {@code Reader} object, which should be retrieved from the database.
+     * @param       year year component of the lending number, for which {@code seq} was allocated.
+     * @param       seq sequential number, which should be allocated from the year's lending sequence.
+     * @throws      NullPointerException if any of the arguments is {@code null}
+     * */
+    public Lending(Book book, ReaderDetails readerDetails, int year, int seq, int lendingDuration, int fineValuePerDayInCents){
         try {
             this.book = Objects.requireNonNull(book);
             this.readerDetails = Objects.requireNonNull(readerDetails);
         }catch (NullPointerException e){
             throw new IllegalArgumentException("Null objects passed to lending");
         }
-        this.lendingNumber = new LendingNumber(seq);
+        this.lendingNumber = new LendingNumber(year, seq);
         this.startDate = LocalDate.now();
         this.limitDate = LocalDate.now().plusDays(lendingDuration);
         this.returnedDate = null;
@@ -0,0 +1,41 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+/**
+ * The {@code LendingRollup} class holds pre-aggregated lending statistics for one {@link LendingRollupKey}.
+ * <p>
+ * Rows are never loaded to be changed: counters are incremented in place by the lending operations, inside
+ * their own transaction, so statistics are read without going through the {@code Lending} table.
+ */
+@Entity
+@Getter
+@Table(name = "LENDING_ROLLUP", indexes = {
+        @Index(name = "IDX_LENDING_ROLLUP_ISBN", columnList = "ISBN"),
+        @Index(name = "IDX_LENDING_ROLLUP_DAY", columnList = "ROLLUP_DAY, GENRE")})
+public class LendingRollup {
+    @EmbeddedId
+    private LendingRollupKey key;
+
+    /**
+     * Number of lendings started.
+     */
+    @Column(name = "LENDING_COUNT", nullable = false)
+    private long lendingCount;
+
+    /**
+     * Number of those lendings that were already returned.
+     */
+    @Column(name = "RETURNED_COUNT", nullable = false)
+    private long returnedCount;
+
+    /**
+     * Sum of the duration, in days, of the lendings that were already returned.
+     */
+    @Column(name = "DURATION_SUM", nullable = false)
+    private long durationSum;
+
+    /**Protected empty constructor for ORM only.*/
+    protected LendingRollup() {}
+}
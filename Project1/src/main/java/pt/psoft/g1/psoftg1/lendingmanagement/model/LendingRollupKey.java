@@ -0,0 +1,39 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Identifies a {@code LendingRollup}: the day the lendings started, and the book, genre and reader they refer to.
+ */
+@Embeddable
+@Getter
+@EqualsAndHashCode
+public class LendingRollupKey implements Serializable {
+    @Column(name = "ROLLUP_DAY", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "ISBN", nullable = false, length = 16)
+    private String isbn;
+
+    @Column(name = "GENRE", nullable = false, length = 100)
+    private String genre;
+
+    @Column(name = "READER_NUMBER", nullable = false, length = 32)
+    private String readerNumber;
+
+    public LendingRollupKey(LocalDate day, String isbn, String genre, String readerNumber) {
+        this.day = day;
+        this.isbn = isbn;
+        this.genre = genre;
+        this.readerNumber = readerNumber;
+    }
+
+    /**Protected empty constructor for ORM only.*/
+    protected LendingRollupKey() {}
+}
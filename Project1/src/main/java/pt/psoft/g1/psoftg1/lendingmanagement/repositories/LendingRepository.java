@@ -1,23 +1,55 @@
 package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
 
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingCountDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFactDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.OutstandingLendingDTO;
+import pt.psoft.g1.psoftg1.shared.services.KeysetCursor;
+import pt.psoft.g1.psoftg1.shared.services.KeysetSlice;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface LendingRepository {
     Optional<Lending> findByLendingNumber(String lendingNumber);
+    /**
+     * @param readerNumber only looks among the lendings of this reader, or among every lending if {@code null}
+     */
+    Optional<Long> findVersionByLendingNumber(String lendingNumber, String readerNumber);
+    List<Lending> findAllByLendingNumbers(Collection<String> lendingNumbers);
     List<Lending> listByReaderNumberAndIsbn(String readerNumber, String isbn);
     int getCountFromCurrentYear();
+    int getMaxSequentialFromYear(int year);
     List<Lending> listOutstandingByReaderNumber(String readerNumber);
+    List<OutstandingLendingDTO> listAllOutstanding();
+    List<LendingFactDTO> listAllFacts();
     Double getAverageDuration();
     Double getAvgLendingDurationByIsbn(String isbn);
+    /**
+     * @return number of lendings started after {@code after}, per ISBN and start day
+     */
+    List<LendingCountDTO> countByIsbnAndDaySince(LocalDate after);
+    /**
+     * @return number of lendings, per author name
+     */
+    List<LendingCountDTO> countByAuthorName();
+    /**
+     * @return number of lendings, per reader number
+     */
+    List<LendingCountDTO> countByReaderNumber();
+    /**
+     * @return number of lendings, per genre, reader number and start day
+     */
+    List<LendingCountDTO> countByGenreReaderNumberAndDay();
 
 
     List<Lending> getOverdue(Page page);
+    KeysetSlice<Lending> getOverdue(KeysetCursor after, int limit);
     List<Lending> searchLendings(Page page, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
+    KeysetSlice<Lending> searchLendings(KeysetCursor after, int limit, String readerNumber, String isbn, Boolean returned, LocalDate startDate, LocalDate endDate);
 
     Lending save(Lending lending);
 
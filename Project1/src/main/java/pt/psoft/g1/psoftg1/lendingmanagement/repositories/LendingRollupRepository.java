@@ -0,0 +1,33 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.repositories;
+
+import java.time.LocalDate;
+
+public interface LendingRollupRepository {
+    /**
+     * Adds to the counters of an existing rollup.
+     *
+     * @return number of rows changed, {@code 0} if the rollup does not exist yet
+     */
+    int increment(LocalDate day, String isbn, String genre, String readerNumber,
+                  long lendingCount, long returnedCount, long durationSum);
+
+    void insert(LocalDate day, String isbn, String genre, String readerNumber,
+                long lendingCount, long returnedCount, long durationSum);
+
+    void deleteAllRollups();
+
+    /**
+     * Recomputes every rollup from the {@code Lending} table. Expects the rollups to be empty.
+     */
+    void insertAllFromLendings();
+
+    /**
+     * @return average duration, in days, of the returned lendings; {@code null} if there are none
+     */
+    Double getAverageDuration();
+
+    /**
+     * @return average duration, in days, of the returned lendings of a book; {@code null} if there are none
+     */
+    Double getAvgLendingDurationByIsbn(String isbn);
+}
@@ -0,0 +1,32 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+
+/**
+ * Outcome of one item of a batch operation: either the {@code lending} that was written,
+ * or the reason why the item was rejected.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class LendingBatchResult {
+    public enum Outcome { CREATED, RETURNED, NOT_FOUND, FORBIDDEN, CONFLICT, INVALID }
+
+    private final Outcome outcome;
+    private final Lending lending;
+    private final String message;
+
+    public static LendingBatchResult success(final Outcome outcome, final Lending lending) {
+        return new LendingBatchResult(outcome, lending, null);
+    }
+
+    public static LendingBatchResult failure(final Outcome outcome, final String message) {
+        return new LendingBatchResult(outcome, null, message);
+    }
+
+    public boolean isSuccess() {
+        return lending != null;
+    }
+}
@@ -0,0 +1,27 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Number of lendings of a key (e.g. an ISBN or a reader number), optionally per start day and per group
+ * (e.g. a genre).
+ */
+@Data
+@AllArgsConstructor
+public class LendingCountDTO {
+    private String group;
+    private String key;
+    private LocalDate day;
+    private long count;
+
+    public LendingCountDTO(String key, long count) {
+        this(null, key, null, count);
+    }
+
+    public LendingCountDTO(String key, LocalDate day, long count) {
+        this(null, key, day, count);
+    }
+}
@@ -0,0 +1,27 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+public class LendingFactDTO {
+    private String lendingNumber;
+    private String isbn;
+    private String genre;
+    private String readerNumber;
+    private LocalDate startDate;
+    private LocalDate returnedDate;
+
+    public static LendingFactDTO of(final Lending lending) {
+        return new LendingFactDTO(lending.getLendingNumber(),
+                lending.getBook().getIsbn(),
+                lending.getBook().getGenre().getGenre(),
+                lending.getReaderDetails().getReaderNumber(),
+                lending.getStartDate(),
+                lending.getReturnedDate());
+    }
+}
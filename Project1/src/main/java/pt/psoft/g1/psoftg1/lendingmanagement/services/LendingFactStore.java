@@ -0,0 +1,389 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsDTO;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory, column-oriented copy of every lending, used to run the lending analytics as scans over primitive
+ * arrays instead of database queries.
+ * <p>
+ * Each lending is a row spread over one array per column: start and return day (as epoch days), and book, genre
+ * and reader ids. Ids are dense and assigned on first sight, so per-genre totals are plain arrays indexed by id.
+ * Scans over more than {@code lendingFactsParallelThreshold} rows are split into fork/join tasks.
+ * <p>
+ * Like the {@link OutstandingLendingsIndex}, changes are applied as soon as a lending is written (see
+ * {@link LendingFactsListener}) and undone if the surrounding transaction does not commit.
+ */
+@Component
+@PropertySource({"classpath:config/library.properties"})
+public class LendingFactStore {
+    private static final int NOT_RETURNED = Integer.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int parallelThreshold;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong changeCounter = new AtomicLong();
+    private final Dictionary isbns = new Dictionary();
+    private final Dictionary genres = new Dictionary();
+    private final Dictionary readerNumbers = new Dictionary();
+    private final Map<String, Integer> rowByLendingNumber = new HashMap<>();
+
+    private String[] lendingNumbers = new String[INITIAL_CAPACITY];
+    private int[] startDays = new int[INITIAL_CAPACITY];
+    private int[] returnDays = new int[INITIAL_CAPACITY];
+    private int[] bookIds = new int[INITIAL_CAPACITY];
+    private int[] genreIds = new int[INITIAL_CAPACITY];
+    private int[] readerIds = new int[INITIAL_CAPACITY];
+    private int size;
+    private volatile boolean loaded;
+
+    public LendingFactStore(@Value("${lendingFactsParallelThreshold}") final int parallelThreshold) {
+        if (parallelThreshold < 0)
+            throw new IllegalArgumentException("Parallel threshold cannot be negative");
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * @return whether the store has been loaded from the database, i.e. whether its reports can be trusted
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Adds the lending, or replaces it if it is already known.
+     */
+    public void put(final LendingFactDTO fact) {
+        apply(fact.getLendingNumber(), fact);
+    }
+
+    public void remove(final String lendingNumber) {
+        apply(lendingNumber, null);
+    }
+
+    /**
+     * Replaces every row with the given lendings.
+     */
+    public void rebuild(final Collection<LendingFactDTO> facts) {
+        lock.writeLock().lock();
+        try {
+            isbns.clear();
+            genres.clear();
+            readerNumbers.clear();
+            rowByLendingNumber.clear();
+            size = 0;
+            facts.forEach(fact -> set(fact.getLendingNumber(), fact));
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of lendings started between {@code startDate} and {@code endDate} (inclusive), per genre,
+     * ordered by genre
+     */
+    public List<GenreLendingsDTO> getLendingCountsByGenre(final LocalDate startDate, final LocalDate endDate) {
+        final int from = (int) startDate.toEpochDay();
+        final int to = (int) endDate.toEpochDay();
+        lock.readLock().lock();
+        try {
+            final int[] starts = startDays;
+            final int[] genreOf = genreIds;
+            final long[] counts = scan(genres.size(), (first, last, totals) -> {
+                for (int row = first; row < last; row++) {
+                    if (starts[row] >= from && starts[row] <= to)
+                        totals[genreOf[row]]++;
+                }
+            });
+
+            final List<GenreLendingsDTO> result = new ArrayList<>();
+            for (int genre = 0; genre < counts.length; genre++) {
+                if (counts[genre] > 0)
+                    result.add(new GenreLendingsDTO(genres.valueOf(genre), counts[genre]));
+            }
+            result.sort(Comparator.comparing(GenreLendingsDTO::getGenre));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return average duration, in days, of the returned lendings started between {@code startDate} and
+     * {@code endDate} (inclusive), per genre, ordered by genre
+     */
+    public List<GenreLendingsDTO> getLendingsAverageDurationByGenre(final LocalDate startDate, final LocalDate endDate) {
+        final int from = (int) startDate.toEpochDay();
+        final int to = (int) endDate.toEpochDay();
+        lock.readLock().lock();
+        try {
+            final int[] starts = startDays;
+            final int[] returns = returnDays;
+            final int[] genreOf = genreIds;
+            // returned count and duration sum of each genre, side by side
+            final long[] totals = scan(2 * genres.size(), (first, last, partial) -> {
+                for (int row = first; row < last; row++) {
+                    if (returns[row] != NOT_RETURNED && starts[row] >= from && starts[row] <= to) {
+                        partial[2 * genreOf[row]]++;
+                        partial[2 * genreOf[row] + 1] += returns[row] - starts[row];
+                    }
+                }
+            });
+
+            final List<GenreLendingsDTO> result = new ArrayList<>();
+            for (int genre = 0; genre < genres.size(); genre++) {
+                if (totals[2 * genre] > 0)
+                    result.add(new GenreLendingsDTO(genres.valueOf(genre), (double) totals[2 * genre + 1] / totals[2 * genre]));
+            }
+            result.sort(Comparator.comparing(GenreLendingsDTO::getGenre));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return average duration, in days, of the returned lendings, {@code null} if there are none
+     */
+    public Double getAverageDuration() {
+        lock.readLock().lock();
+        try {
+            return averageDuration(-1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return average duration, in days, of the returned lendings of the book, {@code null} if there are none
+     */
+    public Double getAvgLendingDurationByIsbn(final String isbn) {
+        lock.readLock().lock();
+        try {
+            final Integer bookId = isbns.idOf(isbn);
+            return bookId == null ? null : averageDuration(bookId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param bookId id of the book to average, {@code -1} for every book
+     */
+    private Double averageDuration(final int bookId) {
+        final int[] starts = startDays;
+        final int[] returns = returnDays;
+        final int[] bookOf = bookIds;
+        final long[] totals = scan(2, (first, last, partial) -> {
+            for (int row = first; row < last; row++) {
+                if (returns[row] != NOT_RETURNED && (bookId < 0 || bookOf[row] == bookId)) {
+                    partial[0]++;
+                    partial[1] += returns[row] - starts[row];
+                }
+            }
+        });
+        return totals[0] == 0 ? null : (double) totals[1] / totals[0];
+    }
+
+    /**
+     * Runs {@code aggregator} over every row, in fork/join tasks of at most {@code parallelThreshold} rows if
+     * there are more than that. Must be called with the read lock held.
+     */
+    private long[] scan(final int width, final RangeAggregator aggregator) {
+        if (parallelThreshold == 0 || size <= parallelThreshold) {
+            final long[] totals = new long[width];
+            aggregator.aggregate(0, size, totals);
+            return totals;
+        }
+        return ForkJoinPool.commonPool().invoke(new ScanTask(0, size, width, aggregator));
+    }
+
+    private void apply(final String lendingNumber, final LendingFactDTO fact) {
+        final LendingFactDTO previous;
+        lock.writeLock().lock();
+        try {
+            previous = set(lendingNumber, fact);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (!Objects.equals(previous, fact) && TransactionSynchronizationManager.isSynchronizationActive()) {
+            // later changes get a lower order, so they are undone first on rollback
+            final int order = (int) -(changeCounter.incrementAndGet() % Integer.MAX_VALUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public int getOrder() {
+                    return order;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        lock.writeLock().lock();
+                        try {
+                            set(lendingNumber, previous);
+                        } finally {
+                            lock.writeLock().unlock();
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Must be called with the write lock held.
+     *
+     * @param fact the lending's new row, {@code null} to remove it
+     * @return the lending's previous row, {@code null} if it was not known
+     */
+    private LendingFactDTO set(final String lendingNumber, final LendingFactDTO fact) {
+        final Integer existing = rowByLendingNumber.get(lendingNumber);
+        final LendingFactDTO previous = existing == null ? null : factAt(existing);
+        if (fact == null) {
+            if (existing != null)
+                removeRow(existing);
+            return previous;
+        }
+
+        final int row;
+        if (existing == null) {
+            ensureCapacity(size + 1);
+            row = size++;
+            lendingNumbers[row] = lendingNumber;
+            rowByLendingNumber.put(lendingNumber, row);
+        } else {
+            row = existing;
+        }
+        startDays[row] = (int) fact.getStartDate().toEpochDay();
+        returnDays[row] = fact.getReturnedDate() == null ? NOT_RETURNED : (int) fact.getReturnedDate().toEpochDay();
+        bookIds[row] = isbns.idFor(fact.getIsbn());
+        genreIds[row] = genres.idFor(fact.getGenre());
+        readerIds[row] = readerNumbers.idFor(fact.getReaderNumber());
+        return previous;
+    }
+
+    /**
+     * Moves the last row into the removed one, so the columns never have holes.
+     */
+    private void removeRow(final int row) {
+        final int last = --size;
+        rowByLendingNumber.remove(lendingNumbers[row]);
+        if (row != last) {
+            lendingNumbers[row] = lendingNumbers[last];
+            startDays[row] = startDays[last];
+            returnDays[row] = returnDays[last];
+            bookIds[row] = bookIds[last];
+            genreIds[row] = genreIds[last];
+            readerIds[row] = readerIds[last];
+            rowByLendingNumber.put(lendingNumbers[row], row);
+        }
+        lendingNumbers[last] = null;
+    }
+
+    private LendingFactDTO factAt(final int row) {
+        return new LendingFactDTO(lendingNumbers[row],
+                isbns.valueOf(bookIds[row]),
+                genres.valueOf(genreIds[row]),
+                readerNumbers.valueOf(readerIds[row]),
+                LocalDate.ofEpochDay(startDays[row]),
+                returnDays[row] == NOT_RETURNED ? null : LocalDate.ofEpochDay(returnDays[row]));
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity <= startDays.length)
+            return;
+        final int grown = Math.max(capacity, startDays.length * 2);
+        lendingNumbers = Arrays.copyOf(lendingNumbers, grown);
+        startDays = Arrays.copyOf(startDays, grown);
+        returnDays = Arrays.copyOf(returnDays, grown);
+        bookIds = Arrays.copyOf(bookIds, grown);
+        genreIds = Arrays.copyOf(genreIds, grown);
+        readerIds = Arrays.copyOf(readerIds, grown);
+    }
+
+    @FunctionalInterface
+    private interface RangeAggregator {
+        /**
+         * Adds rows {@code first} (inclusive) to {@code last} (exclusive) to {@code totals}.
+         */
+        void aggregate(int first, int last, long[] totals);
+    }
+
+    private final class ScanTask extends RecursiveTask<long[]> {
+        private final int first;
+        private final int last;
+        private final int width;
+        private final RangeAggregator aggregator;
+
+        private ScanTask(final int first, final int last, final int width, final RangeAggregator aggregator) {
+            this.first = first;
+            this.last = last;
+            this.width = width;
+            this.aggregator = aggregator;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (last - first <= parallelThreshold) {
+                final long[] totals = new long[width];
+                aggregator.aggregate(first, last, totals);
+                return totals;
+            }
+            final int middle = (first + last) >>> 1;
+            final ScanTask left = new ScanTask(first, middle, width, aggregator);
+            left.fork();
+            final long[] totals = new ScanTask(middle, last, width, aggregator).compute();
+            final long[] leftTotals = left.join();
+            for (int i = 0; i < width; i++) {
+                totals[i] += leftTotals[i];
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * Assigns dense ids to the values of a column, in order of first sight.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int idFor(final String value) {
+            return ids.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+
+        Integer idOf(final String value) {
+            return ids.get(value);
+        }
+
+        String valueOf(final int id) {
+            return values.get(id);
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        void clear() {
+            ids.clear();
+            values.clear();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+
+/**
+ * Loads the {@link LendingFactStore} from the {@code Lending} table once the application has started, before any
+ * {@code CommandLineRunner} (e.g. bootstrapping) runs. From then on it is kept current by {@link LendingFactsListener}.
+ */
+@Component
+@RequiredArgsConstructor
+public class LendingFactStoreReconciliation {
+    private final LendingRepository lendingRepository;
+    private final LendingFactStore lendingFactStore;
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void reconcile() {
+        lendingFactStore.rebuild(lendingRepository.listAllFacts());
+    }
+}
@@ -0,0 +1,30 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreRemove;
+import jakarta.persistence.PreUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+
+/**
+ * JPA entity listener that mirrors every write to a {@code Lending} into the {@link LendingFactStore}.
+ * <p>
+ * Like {@link OutstandingLendingsListener}, the store is optional so that JPA-only slices still work.
+ */
+@RequiredArgsConstructor
+public class LendingFactsListener {
+    private final ObjectProvider<LendingFactStore> lendingFactStore;
+
+    @PrePersist
+    @PreUpdate
+    void onSave(final Lending lending) {
+        final LendingFactDTO fact = LendingFactDTO.of(lending);
+        lendingFactStore.ifAvailable(store -> store.put(fact));
+    }
+
+    @PreRemove
+    void onRemove(final Lending lending) {
+        lendingFactStore.ifAvailable(store -> store.remove(lending.getLendingNumber()));
+    }
+}
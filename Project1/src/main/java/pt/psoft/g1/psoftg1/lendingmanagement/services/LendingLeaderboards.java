@@ -0,0 +1,108 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.shared.services.DailyTopKCounter;
+import pt.psoft.g1.psoftg1.shared.services.TopKCounter;
+import pt.psoft.g1.psoftg1.shared.services.TransactionCallbacks;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live lending counters behind the "top 5" endpoints: books lent in the last year, authors and readers by lendings,
+ * and readers by lendings of each genre.
+ * <p>
+ * Lendings are counted once their transaction commits. Changes that do not go through {@link #created(Lending)}
+ * (e.g. bootstrapping, deleted lendings or books whose authors changed) are picked up by the periodic
+ * {@link LendingLeaderboardsReconciliation}.
+ */
+@Component
+public class LendingLeaderboards {
+    public static final Period BOOKS_WINDOW = Period.ofYears(1);
+
+    private final DailyTopKCounter<String> booksByIsbn = new DailyTopKCounter<>(BOOKS_WINDOW);
+    private final TopKCounter<String> authorsByName = new TopKCounter<>();
+    private final TopKCounter<String> readersByReaderNumber = new TopKCounter<>();
+    private final Map<String, DailyTopKCounter<String>> readersByGenre = new ConcurrentHashMap<>();
+
+    public void created(final Lending lending) {
+        final LocalDate day = lending.getStartDate();
+        final String isbn = lending.getBook().getIsbn();
+        final List<String> authorNames = lending.getBook().getAuthors().stream().map(Author::getName).distinct().toList();
+        final String genre = lending.getBook().getGenre().getGenre();
+        final String readerNumber = lending.getReaderDetails().getReaderNumber();
+
+        TransactionCallbacks.afterCommit(() -> {
+            booksByIsbn.add(isbn, day, 1);
+            authorNames.forEach(name -> authorsByName.add(name, 1));
+            readersByReaderNumber.add(readerNumber, 1);
+            readersOf(genre).add(readerNumber, day, 1);
+        });
+    }
+
+    /**
+     * @return ISBNs of the books lent the most in the last year, most lent first
+     */
+    public List<TopKCounter.Ranked<String>> topBooks(final int k) {
+        return booksByIsbn.top(k);
+    }
+
+    /**
+     * @return names of the authors whose books were lent the most, most lent first
+     */
+    public List<TopKCounter.Ranked<String>> topAuthors(final int k) {
+        return authorsByName.top(k);
+    }
+
+    /**
+     * @return reader numbers of the readers with the most lendings, most lendings first
+     */
+    public List<TopKCounter.Ranked<String>> topReaders(final int k) {
+        return readersByReaderNumber.top(k);
+    }
+
+    /**
+     * @return reader numbers of the readers with the most lendings of {@code genre} started between
+     * {@code startDate} and {@code endDate} (inclusive), most lendings first
+     */
+    public List<TopKCounter.Ranked<String>> topReadersByGenre(final String genre, final LocalDate startDate,
+                                                               final LocalDate endDate, final int k) {
+        final DailyTopKCounter<String> readers = readersByGenre.get(genre);
+        return readers == null ? List.of() : readers.top(k, startDate, endDate);
+    }
+
+    public void rebuild(final List<LendingCountDTO> booksByIsbnAndDay,
+                        final List<LendingCountDTO> byAuthorName,
+                        final List<LendingCountDTO> byReaderNumber,
+                        final List<LendingCountDTO> byGenreReaderNumberAndDay) {
+        booksByIsbn.reset(perDay(booksByIsbnAndDay));
+        authorsByName.reset(perKey(byAuthorName));
+        readersByReaderNumber.reset(perKey(byReaderNumber));
+
+        final Map<String, List<LendingCountDTO>> byGenre = new HashMap<>();
+        byGenreReaderNumberAndDay.forEach(count -> byGenre.computeIfAbsent(count.getGroup(), g -> new ArrayList<>()).add(count));
+        readersByGenre.keySet().retainAll(byGenre.keySet());
+        byGenre.forEach((genre, counts) -> readersOf(genre).reset(perDay(counts)));
+    }
+
+    private DailyTopKCounter<String> readersOf(final String genre) {
+        return readersByGenre.computeIfAbsent(genre, g -> new DailyTopKCounter<>(null));
+    }
+
+    private static Map<String, Long> perKey(final List<LendingCountDTO> counts) {
+        final Map<String, Long> perKey = new HashMap<>();
+        counts.forEach(count -> perKey.merge(count.getKey(), count.getCount(), Long::sum));
+        return perKey;
+    }
+
+    private static Map<LocalDate, Map<String, Long>> perDay(final List<LendingCountDTO> counts) {
+        final Map<LocalDate, Map<String, Long>> perDay = new HashMap<>();
+        counts.forEach(count -> perDay.computeIfAbsent(count.getDay(), d -> new HashMap<>())
+                .merge(count.getKey(), count.getCount(), Long::sum));
+        return perDay;
+    }
+}
@@ -0,0 +1,36 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+
+import java.time.LocalDate;
+
+/**
+ * Recomputes the {@link LendingLeaderboards} from the {@code Lending} table once the application is ready
+ * (i.e. after bootstrapping) and then every {@code leaderboardsReconciliationIntervalInMillis}.
+ * <p>
+ * Lendings committed while the counts are being read may be missed until the next run.
+ */
+@Component
+@RequiredArgsConstructor
+@PropertySource({"classpath:config/library.properties"})
+public class LendingLeaderboardsReconciliation {
+    private final LendingRepository lendingRepository;
+    private final LendingLeaderboards lendingLeaderboards;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${leaderboardsReconciliationIntervalInMillis}",
+            initialDelayString = "${leaderboardsReconciliationIntervalInMillis}")
+    public void reconcile() {
+        lendingLeaderboards.rebuild(
+                lendingRepository.countByIsbnAndDaySince(LocalDate.now().minus(LendingLeaderboards.BOOKS_WINDOW)),
+                lendingRepository.countByAuthorName(),
+                lendingRepository.countByReaderNumber(),
+                lendingRepository.countByGenreReaderNumberAndDay());
+    }
+}
@@ -0,0 +1,76 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreReportCache;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRollupRepository;
+
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Keeps the {@code LendingRollup} counters up to date as lendings are created and returned.
+ * <p>
+ * Counters are incremented in the caller's transaction, so they are only changed if the lending is.
+ * The first time a rollup is needed its (empty) row is created in a transaction of its own, so that concurrent
+ * callers never lose increments and a failed insert does not doom the caller's transaction.
+ * <p>
+ * The genre reports of the lending's start month are evicted from the {@link GenreReportCache} on every change.
+ */
+@Component
+public class LendingRollups {
+    private final LendingRollupRepository rollupRepository;
+    private final GenreReportCache genreReportCache;
+    private final TransactionTemplate newTransaction;
+
+    public LendingRollups(final LendingRollupRepository rollupRepository,
+                          final GenreReportCache genreReportCache,
+                          final PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.genreReportCache = genreReportCache;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Transactional
+    public void created(final Lending lending) {
+        add(lending, 1, 0, 0);
+    }
+
+    @Transactional
+    public void returned(final Lending lending) {
+        add(lending, 0, 1, ChronoUnit.DAYS.between(lending.getStartDate(), lending.getReturnedDate()));
+    }
+
+    /**
+     * Replaces every rollup with the ones computed from the {@code Lending} table.
+     */
+    @Transactional
+    public void rebuild() {
+        rollupRepository.deleteAllRollups();
+        rollupRepository.insertAllFromLendings();
+        genreReportCache.clear();
+    }
+
+    private void add(final Lending lending, final long lendingCount, final long returnedCount, final long durationSum) {
+        final var day = lending.getStartDate();
+        final String isbn = lending.getBook().getIsbn();
+        final String genre = lending.getBook().getGenre().getGenre();
+        final String readerNumber = lending.getReaderDetails().getReaderNumber();
+        genreReportCache.evict(YearMonth.from(day));
+
+        if (rollupRepository.increment(day, isbn, genre, readerNumber, lendingCount, returnedCount, durationSum) > 0)
+            return;
+        try {
+            newTransaction.executeWithoutResult(status -> rollupRepository.insert(day, isbn, genre, readerNumber, 0, 0, 0));
+        } catch (DataIntegrityViolationException e) {
+            // another transaction created the row in the meantime
+        }
+        rollupRepository.increment(day, isbn, genre, readerNumber, lendingCount, returnedCount, durationSum);
+    }
+}
@@ -0,0 +1,21 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rebuilds the lending rollups from the {@code Lending} table once the application is ready, i.e. after
+ * bootstrapping, which writes lendings without going through {@link LendingRollups}.
+ */
+@Component
+@RequiredArgsConstructor
+public class LendingRollupsReconciliation {
+    private final LendingRollups lendingRollups;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        lendingRollups.rebuild();
+    }
+}
@@ -1,6 +1,7 @@
 package pt.psoft.g1.psoftg1.lendingmanagement.services;
 
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+import pt.psoft.g1.psoftg1.shared.services.KeysetSlice;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.util.List;
@@ -12,6 +13,11 @@ public interface LendingService {
      * @return {@code Optional<Lending>}
      */
     Optional<Lending> findByLendingNumber(String lendingNumber);
+    /**
+     * @param readerNumber only looks among the lendings of this reader, or among every lending if {@code null}
+     * @return current version of the lending, without loading it
+     */
+    Optional<Long> findVersionByLendingNumber(String lendingNumber, String readerNumber);
     /**
      * @param readerNumber - Reader Number of the Reader associated with the lending
      * @param isbn         - ISBN of the book associated with the lending
@@ -20,11 +26,39 @@ public interface LendingService {
      */
     List<Lending> listByReaderNumberAndIsbn(String readerNumber, String isbn, Optional<Boolean> returned);
     Lending create(CreateLendingRequest resource); //No ID passed, as it is auto generated
+
+    /**
+     * Creates several lendings in a single transaction, applying the same business rules as
+     * {@link #create(CreateLendingRequest)} to each of them (earlier items count towards the limits of later ones).
+     * @param resources - Lendings to create
+     * @return one {@code LendingBatchResult} per resource, in the same order
+     */
+    List<LendingBatchResult> createAll(List<CreateLendingRequest> resources);
     Lending setReturned(String id, SetLendingReturnedRequest resource, long desiredVersion);
+
+    /**
+     * Sets several lendings as returned in a single transaction.
+     * @param resources - Lendings to set as returned, each with the version it is expected to have
+     * @return one {@code LendingBatchResult} per resource, in the same order
+     */
+    List<LendingBatchResult> setReturnedAll(List<ReturnLendingRequest> resources);
     Double getAverageDuration();
     List<Lending> getOverdue(Page page);
+    /**
+     * @param cursor - Opaque token returned with the previous page, blank for the first page
+     * @param limit  - Maximum number of lendings to return (1 to 100)
+     * @return {@code KeysetSlice<Lending>} with the overdue lendings after {@code cursor}, oldest first
+     */
+    KeysetSlice<Lending> getOverdue(String cursor, int limit);
     Double getAvgLendingDurationByIsbn(String isbn);
     List<Lending> searchLendings(Page page, SearchLendingQuery request);
+    /**
+     * @param cursor - Opaque token returned with the previous page, blank for the first page
+     * @param limit  - Maximum number of lendings to return (1 to 100)
+     * @param request - Search filters
+     * @return {@code KeysetSlice<Lending>} with the matching lendings after {@code cursor}, by lending number
+     */
+    KeysetSlice<Lending> searchLendings(String cursor, int limit, SearchLendingQuery request);
 
 
 }
@@ -1,33 +1,56 @@
 package pt.psoft.g1.psoftg1.lendingmanagement.services;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.StaleObjectStateException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookCache;
 import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Fine;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.FineRepository;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRollupRepository;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.shared.services.KeysetCursor;
+import pt.psoft.g1.psoftg1.shared.services.KeysetSlice;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.YearlySequenceService;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 @PropertySource({"classpath:config/library.properties"})
 public class LendingServiceImpl implements LendingService{
+    private static final String LENDING_SEQUENCE = "lending";
+
     private final LendingRepository lendingRepository;
     private final FineRepository fineRepository;
     private final BookRepository bookRepository;
+    private final BookCache bookCache;
     private final ReaderRepository readerRepository;
+    private final YearlySequenceService sequenceService;
+    private final OutstandingLendingsIndex outstandingLendingsIndex;
+    private final OverdueLendingsTracker overdueLendingsTracker;
+    private final LendingRollupRepository lendingRollupRepository;
+    private final LendingRollups lendingRollups;
+    private final LendingLeaderboards lendingLeaderboards;
+    private final LendingFactStore lendingFactStore;
 
     @Value("${lendingDurationInDays}")
     private int lendingDurationInDays;
@@ -39,6 +62,11 @@ public class LendingServiceImpl implements LendingService{
         return lendingRepository.findByLendingNumber(lendingNumber);
     }
 
+    @Override
+    public Optional<Long> findVersionByLendingNumber(String lendingNumber, String readerNumber){
+        return lendingRepository.findVersionByLendingNumber(lendingNumber, readerNumber);
+    }
+
     @Override
     public List<Lending> listByReaderNumberAndIsbn(String readerNumber, String isbn, Optional<Boolean> returned){
         List<Lending> lendings = lendingRepository.listByReaderNumberAndIsbn(readerNumber, isbn);
@@ -56,39 +84,91 @@ public class LendingServiceImpl implements LendingService{
     }
 
     @Override
+    @Transactional
     public Lending create(final CreateLendingRequest resource) {
-        int count = 0;
-
-        Iterable<Lending> lendingList = lendingRepository.listOutstandingByReaderNumber(resource.getReaderNumber());
-        for (Lending lending : lendingList) {
-            //Business rule: cannot create a lending if user has late outstanding books to return.
-            if (lending.getDaysDelayed() > 0) {
-                throw new LendingForbiddenException("Reader has book(s) past their due date");
-            }
-            count++;
-            //Business rule: cannot create a lending if user already has 3 outstanding books to return.
-            if (count >= 3) {
-                throw new LendingForbiddenException("Reader has three books outstanding already");
-            }
+        final OutstandingLendings outstanding = outstandingLendingsIndex.get(resource.getReaderNumber());
+        //Business rule: cannot create a lending if user has late outstanding books to return.
+        if (overdueLendingsTracker.hasOverdue(resource.getReaderNumber())) {
+            throw new LendingForbiddenException("Reader has book(s) past their due date");
+        }
+        //Business rule: cannot create a lending if user already has 3 outstanding books to return.
+        if (outstanding.count() >= 3) {
+            throw new LendingForbiddenException("Reader has three books outstanding already");
         }
 
-        final var b = bookRepository.findByIsbn(resource.getIsbn())
+        final var b = bookCache.get(resource.getIsbn(), bookRepository::findByIsbn)
                 .orElseThrow(() -> new NotFoundException("Book not found"));
         final var r = readerRepository.findByReaderNumber(resource.getReaderNumber())
                 .orElseThrow(() -> new NotFoundException("Reader not found"));
-        int seq = lendingRepository.getCountFromCurrentYear()+1;
-        final Lending l = new Lending(b,r,seq, lendingDurationInDays, fineValuePerDayInCents );
+        final int year = LocalDate.now().getYear();
+        final int seq = sequenceService.next(LENDING_SEQUENCE, year,
+                () -> lendingRepository.getMaxSequentialFromYear(year));
+        final Lending l = new Lending(b,r,year,seq, lendingDurationInDays, fineValuePerDayInCents );
+        lendingRollups.created(l);
+        lendingLeaderboards.created(l);
 
         return lendingRepository.save(l);
     }
 
     @Override
+    @Transactional
+    public List<LendingBatchResult> createAll(final List<CreateLendingRequest> resources) {
+        final Map<String, Book> books = new HashMap<>();
+        for (Book book : bookRepository.findAllByIsbns(resources.stream().map(CreateLendingRequest::getIsbn).toList())) {
+            books.put(book.getIsbn(), book);
+        }
+        final Map<String, ReaderDetails> readers = new HashMap<>();
+        for (ReaderDetails reader : readerRepository.findAllByReaderNumbers(resources.stream().map(CreateLendingRequest::getReaderNumber).toList())) {
+            readers.put(reader.getReaderNumber(), reader);
+        }
+
+        final LendingBatchResult[] results = new LendingBatchResult[resources.size()];
+        final Map<String, Integer> acceptedByReaderNumber = new HashMap<>();
+        final List<Integer> accepted = new ArrayList<>();
+        for (int i = 0; i < resources.size(); i++) {
+            final String readerNumber = resources.get(i).getReaderNumber();
+            if (overdueLendingsTracker.hasOverdue(readerNumber)) {
+                results[i] = LendingBatchResult.failure(LendingBatchResult.Outcome.FORBIDDEN, "Reader has book(s) past their due date");
+            } else if (outstandingLendingsIndex.get(readerNumber).count() + acceptedByReaderNumber.getOrDefault(readerNumber, 0) >= 3) {
+                results[i] = LendingBatchResult.failure(LendingBatchResult.Outcome.FORBIDDEN, "Reader has three books outstanding already");
+            } else if (!books.containsKey(resources.get(i).getIsbn())) {
+                results[i] = LendingBatchResult.failure(LendingBatchResult.Outcome.NOT_FOUND, "Book not found");
+            } else if (!readers.containsKey(readerNumber)) {
+                results[i] = LendingBatchResult.failure(LendingBatchResult.Outcome.NOT_FOUND, "Reader not found");
+            } else {
+                acceptedByReaderNumber.merge(readerNumber, 1, Integer::sum);
+                accepted.add(i);
+            }
+        }
+        if (accepted.isEmpty())
+            return Arrays.asList(results);
+
+        final int year = LocalDate.now().getYear();
+        final int first = sequenceService.nextBlock(LENDING_SEQUENCE, year, accepted.size(),
+                () -> lendingRepository.getMaxSequentialFromYear(year));
+        for (int k = 0; k < accepted.size(); k++) {
+            final CreateLendingRequest resource = resources.get(accepted.get(k));
+            final Lending l = new Lending(books.get(resource.getIsbn()), readers.get(resource.getReaderNumber()),
+                    year, first + k, lendingDurationInDays, fineValuePerDayInCents);
+            lendingRollups.created(l);
+            lendingLeaderboards.created(l);
+            results[accepted.get(k)] = LendingBatchResult.success(LendingBatchResult.Outcome.CREATED, lendingRepository.save(l));
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    @Transactional
     public Lending setReturned(final String lendingNumber, final SetLendingReturnedRequest resource, final long desiredVersion) {
 
         var lending = lendingRepository.findByLendingNumber(lendingNumber)
                 .orElseThrow(() -> new NotFoundException("Cannot update lending with this lending number"));
 
         lending.setReturned(desiredVersion, resource.getCommentary());
+        // the entity listeners only see the change on flush, so it is applied right away
+        outstandingLendingsIndex.closed(lending.getReaderDetails().getReaderNumber(), lending.getLendingNumber());
+        lendingFactStore.put(LendingFactDTO.of(lending));
+        lendingRollups.returned(lending);
 
         if(lending.getDaysDelayed() > 0){
             final var fine = new Fine(lending);
@@ -98,9 +178,47 @@ public class LendingServiceImpl implements LendingService{
         return lendingRepository.save(lending);
     }
 
+    @Override
+    @Transactional
+    public List<LendingBatchResult> setReturnedAll(final List<ReturnLendingRequest> resources) {
+        final Map<String, Lending> lendings = new HashMap<>();
+        for (Lending lending : lendingRepository.findAllByLendingNumbers(resources.stream().map(ReturnLendingRequest::getLendingNumber).toList())) {
+            lendings.put(lending.getLendingNumber(), lending);
+        }
+
+        final List<LendingBatchResult> results = new ArrayList<>();
+        for (ReturnLendingRequest resource : resources) {
+            final Lending lending = lendings.get(resource.getLendingNumber());
+            if (lending == null) {
+                results.add(LendingBatchResult.failure(LendingBatchResult.Outcome.NOT_FOUND, "Lending not found"));
+                continue;
+            }
+            try {
+                lending.setReturned(resource.getVersion(), resource.getCommentary());
+            } catch (StaleObjectStateException e) {
+                results.add(LendingBatchResult.failure(LendingBatchResult.Outcome.CONFLICT, "Object was already modified by another user"));
+                continue;
+            } catch (IllegalArgumentException e) {
+                results.add(LendingBatchResult.failure(LendingBatchResult.Outcome.INVALID, e.getMessage()));
+                continue;
+            }
+            outstandingLendingsIndex.closed(lending.getReaderDetails().getReaderNumber(), lending.getLendingNumber());
+            lendingFactStore.put(LendingFactDTO.of(lending));
+            lendingRollups.returned(lending);
+
+            if(lending.getDaysDelayed() > 0){
+                fineRepository.save(new Fine(lending));
+            }
+            results.add(LendingBatchResult.success(LendingBatchResult.Outcome.RETURNED, lendingRepository.save(lending)));
+        }
+        return results;
+    }
+
     @Override
     public Double getAverageDuration(){
-        Double avg = lendingRepository.getAverageDuration();
+        Double avg = lendingFactStore.isLoaded()
+                ? lendingFactStore.getAverageDuration()
+                : lendingRollupRepository.getAverageDuration();
         return Double.valueOf(String.format(Locale.US,"%.1f", avg));
     }
 
@@ -109,48 +227,89 @@ public class LendingServiceImpl implements LendingService{
         if (page == null) {
             page = new Page(1, 10);
         }
-        return lendingRepository.getOverdue(page);
+        final List<String> overdue = overdueLendingsTracker.listOverdue((page.getNumber() - 1) * page.getLimit(), page.getLimit());
+        if (overdue.isEmpty())
+            return new ArrayList<>();
+
+        final Map<String, Lending> lendings = new HashMap<>();
+        for (Lending lending : lendingRepository.findAllByLendingNumbers(overdue)) {
+            lendings.put(lending.getLendingNumber(), lending);
+        }
+        // keep the tracker's order (oldest limit date first)
+        final List<Lending> result = new ArrayList<>();
+        for (String lendingNumber : overdue) {
+            final Lending lending = lendings.get(lendingNumber);
+            if (lending != null)
+                result.add(lending);
+        }
+        return result;
+    }
+
+    @Override
+    public KeysetSlice<Lending> getOverdue(String cursor, int limit) {
+        validateLimit(limit);
+        return lendingRepository.getOverdue(KeysetCursor.decode(cursor), limit);
     }
 
     @Override
     public Double getAvgLendingDurationByIsbn(String isbn){
-        Double avg = lendingRepository.getAvgLendingDurationByIsbn(isbn);
+        Double avg = lendingFactStore.isLoaded()
+                ? lendingFactStore.getAvgLendingDurationByIsbn(isbn)
+                : lendingRollupRepository.getAvgLendingDurationByIsbn(isbn);
         return Double.valueOf(String.format(Locale.US,"%.1f", avg));
     }
 
     @Override
     public List<Lending> searchLendings(Page page, SearchLendingQuery query){
-        LocalDate startDate = null;
-        LocalDate endDate = null;
-
         if (page == null) {
             page = new Page(1, 10);
         }
         if (query == null)
-            query = new SearchLendingQuery("",
-                    "",
-                    null,
-                    LocalDate.now().minusDays(10L).toString(),
-                    null);
-
-        try {
-            if(query.getStartDate()!=null)
-                startDate = LocalDate.parse(query.getStartDate());
-            if(query.getEndDate()!=null)
-                endDate = LocalDate.parse(query.getEndDate());
-        } catch (DateTimeParseException e) {
-            throw new IllegalArgumentException("Expected format is YYYY-MM-DD");
-        }
+            query = defaultSearchQuery();
 
         return lendingRepository.searchLendings(page,
                 query.getReaderNumber(),
                 query.getIsbn(),
                 query.getReturned(),
-                startDate,
-                endDate);
+                parseDate(query.getStartDate()),
+                parseDate(query.getEndDate()));
+
+    }
+
+    @Override
+    public KeysetSlice<Lending> searchLendings(String cursor, int limit, SearchLendingQuery query){
+        validateLimit(limit);
+        if (query == null)
+            query = defaultSearchQuery();
+
+        return lendingRepository.searchLendings(KeysetCursor.decode(cursor),
+                limit,
+                query.getReaderNumber(),
+                query.getIsbn(),
+                query.getReturned(),
+                parseDate(query.getStartDate()),
+                parseDate(query.getEndDate()));
+    }
 
+    private SearchLendingQuery defaultSearchQuery() {
+        return new SearchLendingQuery("",
+                "",
+                null,
+                LocalDate.now().minusDays(10L).toString(),
+                null);
     }
 
+    private LocalDate parseDate(String date) {
+        try {
+            return date == null ? null : LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Expected format is YYYY-MM-DD");
+        }
+    }
 
+    private void validateLimit(int limit) {
+        if (limit < 1 || limit > 100)
+            throw new IllegalArgumentException("Limit must be between 1 and 100");
+    }
 
 }
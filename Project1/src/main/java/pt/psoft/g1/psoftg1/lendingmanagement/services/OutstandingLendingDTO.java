@@ -0,0 +1,14 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+public class OutstandingLendingDTO {
+    private String readerNumber;
+    private String lendingNumber;
+    private LocalDate limitDate;
+}
@@ -0,0 +1,44 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the lendings a reader has not returned yet, keyed by lending number.
+ * <p>
+ * Readers can only have a handful of outstanding lendings, so every change copies the (tiny) map
+ * instead of locking it.
+ */
+public final class OutstandingLendings {
+    public static final OutstandingLendings NONE = new OutstandingLendings(Collections.emptyMap());
+
+    private final Map<String, LocalDate> limitDates;
+
+    private OutstandingLendings(Map<String, LocalDate> limitDates) {
+        this.limitDates = limitDates;
+    }
+
+    public int count() {
+        return limitDates.size();
+    }
+
+    LocalDate limitDateOf(String lendingNumber) {
+        return limitDates.get(lendingNumber);
+    }
+
+    OutstandingLendings with(String lendingNumber, LocalDate limitDate) {
+        final Map<String, LocalDate> copy = new HashMap<>(limitDates);
+        copy.put(lendingNumber, limitDate);
+        return new OutstandingLendings(copy);
+    }
+
+    OutstandingLendings without(String lendingNumber) {
+        if (!limitDates.containsKey(lendingNumber))
+            return this;
+        final Map<String, LocalDate> copy = new HashMap<>(limitDates);
+        copy.remove(lendingNumber);
+        return copy.isEmpty() ? NONE : new OutstandingLendings(copy);
+    }
+}
@@ -0,0 +1,109 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory index of the lendings each reader has not returned yet.
+ * <p>
+ * It lets the checkout business rules (maximum outstanding lendings, no overdue lendings) be evaluated
+ * without loading the reader's lendings. Changes are applied as soon as a lending is written, and undone
+ * if the surrounding transaction does not commit.
+ * <p>
+ * Every change is mirrored into the {@link OverdueLendingsTracker}, so both always agree.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutstandingLendingsIndex {
+    private final OverdueLendingsTracker overdueLendingsTracker;
+    private final Map<String, OutstandingLendings> byReaderNumber = new ConcurrentHashMap<>();
+    private final AtomicLong changeCounter = new AtomicLong();
+
+    /**
+     * @param readerNumber reader number of the reader
+     * @return the reader's outstanding lendings, {@link OutstandingLendings#NONE} if there are none
+     */
+    public OutstandingLendings get(final String readerNumber) {
+        return byReaderNumber.getOrDefault(readerNumber, OutstandingLendings.NONE);
+    }
+
+    /**
+     * Registers a lending that has not been returned yet.
+     */
+    public void opened(final String readerNumber, final String lendingNumber, final LocalDate limitDate) {
+        apply(readerNumber, lendingNumber, Objects.requireNonNull(limitDate));
+    }
+
+    /**
+     * Removes a lending that was returned or deleted.
+     */
+    public void closed(final String readerNumber, final String lendingNumber) {
+        apply(readerNumber, lendingNumber, null);
+    }
+
+    /**
+     * Replaces the whole index with the given outstanding lendings.
+     */
+    public void rebuild(final Iterable<OutstandingLendingDTO> outstanding) {
+        final Map<String, OutstandingLendings> rebuilt = new HashMap<>();
+        for (OutstandingLendingDTO lending : outstanding) {
+            final OutstandingLendings current = rebuilt.getOrDefault(lending.getReaderNumber(), OutstandingLendings.NONE);
+            rebuilt.put(lending.getReaderNumber(), current.with(lending.getLendingNumber(), lending.getLimitDate()));
+        }
+        byReaderNumber.clear();
+        byReaderNumber.putAll(rebuilt);
+        overdueLendingsTracker.rebuild(outstanding);
+    }
+
+    private void apply(final String readerNumber, final String lendingNumber, final LocalDate limitDate) {
+        final LocalDate previous = set(readerNumber, lendingNumber, limitDate);
+
+        if (!Objects.equals(previous, limitDate) && TransactionSynchronizationManager.isSynchronizationActive()) {
+            // later changes get a lower order, so they are undone first on rollback
+            final int order = (int) -(changeCounter.incrementAndGet() % Integer.MAX_VALUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public int getOrder() {
+                    return order;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        set(readerNumber, lendingNumber, previous);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the limit date the lending had before, {@code null} if it was not outstanding
+     */
+    private LocalDate set(final String readerNumber, final String lendingNumber, final LocalDate limitDate) {
+        final LocalDate[] previous = new LocalDate[1];
+        byReaderNumber.compute(readerNumber, (key, current) -> {
+            final OutstandingLendings lendings = current == null ? OutstandingLendings.NONE : current;
+            previous[0] = lendings.limitDateOf(lendingNumber);
+            final OutstandingLendings updated;
+            if (limitDate == null) {
+                updated = lendings.without(lendingNumber);
+                overdueLendingsTracker.remove(lendingNumber);
+            } else {
+                updated = lendings.with(lendingNumber, limitDate);
+                overdueLendingsTracker.add(readerNumber, lendingNumber, limitDate);
+            }
+            return updated.count() == 0 ? null : updated;
+        });
+        return previous[0];
+    }
+}
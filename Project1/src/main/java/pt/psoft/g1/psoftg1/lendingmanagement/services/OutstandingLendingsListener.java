@@ -0,0 +1,39 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreRemove;
+import jakarta.persistence.PreUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+
+/**
+ * JPA entity listener that keeps the {@link OutstandingLendingsIndex} in sync with every write
+ * to a {@code Lending}, whichever path it goes through.
+ * <p>
+ * It is instantiated by Hibernate through Spring's bean container. The index is optional so that
+ * JPA-only slices (e.g. {@code @DataJpaTest}) still work.
+ */
+@RequiredArgsConstructor
+public class OutstandingLendingsListener {
+    private final ObjectProvider<OutstandingLendingsIndex> outstandingLendingsIndex;
+
+    @PrePersist
+    @PreUpdate
+    void onSave(final Lending lending) {
+        final String readerNumber = lending.getReaderDetails().getReaderNumber();
+        outstandingLendingsIndex.ifAvailable(index -> {
+            if (lending.getReturnedDate() == null) {
+                index.opened(readerNumber, lending.getLendingNumber(), lending.getLimitDate());
+            } else {
+                index.closed(readerNumber, lending.getLendingNumber());
+            }
+        });
+    }
+
+    @PreRemove
+    void onRemove(final Lending lending) {
+        outstandingLendingsIndex.ifAvailable(index ->
+                index.closed(lending.getReaderDetails().getReaderNumber(), lending.getLendingNumber()));
+    }
+}
@@ -0,0 +1,23 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+
+/**
+ * Rebuilds the {@link OutstandingLendingsIndex} from the {@code Lending} table once the application has started,
+ * before any {@code CommandLineRunner} (e.g. bootstrapping) runs.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutstandingLendingsReconciliation {
+    private final LendingRepository lendingRepository;
+    private final OutstandingLendingsIndex outstandingLendingsIndex;
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void reconcile() {
+        outstandingLendingsIndex.rebuild(lendingRepository.listAllOutstanding());
+    }
+}
@@ -0,0 +1,159 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Timing wheel of the lendings that have not been returned yet, bucketed by limit date.
+ * <p>
+ * The wheel has one slot per day for the next {@code overdueTrackerHorizonDays} days; lendings due later wait in
+ * an overflow map until their day enters the horizon. Whenever the tracker is used on a new day, the slots of the
+ * days that went by are drained into the overdue set, so overdue lendings are found without scanning anything.
+ * Every outstanding lending is held exactly once, which bounds memory by the number of outstanding lendings.
+ * <p>
+ * It is fed by the {@link OutstandingLendingsIndex}, which also takes care of undoing changes on rollback and
+ * of rebuilding it from the database.
+ */
+@Component
+@PropertySource({"classpath:config/library.properties"})
+public class OverdueLendingsTracker {
+    private static final Comparator<Entry> BY_LIMIT_DATE =
+            Comparator.comparing(Entry::limitDate).thenComparing(Entry::lendingNumber);
+
+    private final int horizonDays;
+    private final List<Map<String, Entry>> slots;
+    private final NavigableMap<LocalDate, Map<String, Entry>> beyondHorizon = new TreeMap<>();
+    private final NavigableSet<Entry> overdue = new TreeSet<>(BY_LIMIT_DATE);
+    private final Map<String, Entry> byLendingNumber = new HashMap<>();
+    private final Map<String, Integer> overdueCountByReaderNumber = new HashMap<>();
+    private LocalDate today;
+
+    public OverdueLendingsTracker(@Value("${overdueTrackerHorizonDays}") final int horizonDays) {
+        if (horizonDays < 1)
+            throw new IllegalArgumentException("Overdue tracker horizon must be at least 1 day");
+        this.horizonDays = horizonDays;
+        this.slots = new ArrayList<>(horizonDays);
+        for (int i = 0; i < horizonDays; i++) {
+            slots.add(new HashMap<>());
+        }
+        this.today = LocalDate.now();
+    }
+
+    /**
+     * @param readerNumber reader number of the reader
+     * @return whether the reader has any lending past its limit date
+     */
+    public boolean hasOverdue(final String readerNumber) {
+        return hasOverdue(readerNumber, LocalDate.now());
+    }
+
+    /**
+     * @param offset number of overdue lendings to skip
+     * @param limit  maximum number of lending numbers to return
+     * @return lending numbers of the overdue lendings, oldest limit date first
+     */
+    public List<String> listOverdue(final int offset, final int limit) {
+        return listOverdue(offset, limit, LocalDate.now());
+    }
+
+    public synchronized boolean hasOverdue(final String readerNumber, final LocalDate today) {
+        advanceTo(today);
+        return overdueCountByReaderNumber.containsKey(readerNumber);
+    }
+
+    public synchronized List<String> listOverdue(final int offset, final int limit, final LocalDate today) {
+        advanceTo(today);
+        return overdue.stream()
+                .skip(offset)
+                .limit(limit)
+                .map(Entry::lendingNumber)
+                .toList();
+    }
+
+    public synchronized void add(final String readerNumber, final String lendingNumber, final LocalDate limitDate) {
+        remove(lendingNumber);
+        final Entry entry = new Entry(readerNumber, lendingNumber, limitDate);
+        byLendingNumber.put(lendingNumber, entry);
+        place(entry);
+    }
+
+    public synchronized void remove(final String lendingNumber) {
+        final Entry entry = byLendingNumber.remove(lendingNumber);
+        if (entry == null)
+            return;
+        if (overdue.remove(entry)) {
+            overdueCountByReaderNumber.computeIfPresent(entry.readerNumber(), (key, count) -> count == 1 ? null : count - 1);
+        } else if (isWithinHorizon(entry.limitDate())) {
+            slotOf(entry.limitDate()).remove(lendingNumber);
+        } else {
+            final Map<String, Entry> bucket = beyondHorizon.get(entry.limitDate());
+            bucket.remove(lendingNumber);
+            if (bucket.isEmpty())
+                beyondHorizon.remove(entry.limitDate());
+        }
+    }
+
+    public synchronized void rebuild(final Iterable<OutstandingLendingDTO> outstanding) {
+        slots.forEach(Map::clear);
+        beyondHorizon.clear();
+        overdue.clear();
+        byLendingNumber.clear();
+        overdueCountByReaderNumber.clear();
+        today = LocalDate.now();
+        for (OutstandingLendingDTO lending : outstanding) {
+            add(lending.getReaderNumber(), lending.getLendingNumber(), lending.getLimitDate());
+        }
+    }
+
+    /**
+     * Turns the wheel until {@code newToday}: the lendings due on each day that went by become overdue, and
+     * the days that enter the horizon are pulled from the overflow map.
+     */
+    private void advanceTo(final LocalDate newToday) {
+        if (!newToday.isAfter(today))
+            return;
+        // past a full turn every slot is due, so there is no point in visiting any of them twice
+        final LocalDate until = newToday.isAfter(today.plusDays(horizonDays)) ? today.plusDays(horizonDays) : newToday;
+        for (LocalDate day = today; day.isBefore(until); day = day.plusDays(1)) {
+            final Map<String, Entry> slot = slotOf(day);
+            slot.values().forEach(this::markOverdue);
+            slot.clear();
+        }
+        today = newToday;
+
+        final Map<LocalDate, Map<String, Entry>> entering = beyondHorizon.headMap(today.plusDays(horizonDays));
+        final List<Entry> pulled = entering.values().stream().flatMap(bucket -> bucket.values().stream()).toList();
+        entering.clear();
+        pulled.forEach(this::place);
+    }
+
+    private void place(final Entry entry) {
+        if (entry.limitDate().isBefore(today)) {
+            markOverdue(entry);
+        } else if (isWithinHorizon(entry.limitDate())) {
+            slotOf(entry.limitDate()).put(entry.lendingNumber(), entry);
+        } else {
+            beyondHorizon.computeIfAbsent(entry.limitDate(), key -> new HashMap<>()).put(entry.lendingNumber(), entry);
+        }
+    }
+
+    private void markOverdue(final Entry entry) {
+        if (overdue.add(entry))
+            overdueCountByReaderNumber.merge(entry.readerNumber(), 1, Integer::sum);
+    }
+
+    private boolean isWithinHorizon(final LocalDate limitDate) {
+        return limitDate.isBefore(today.plusDays(horizonDays));
+    }
+
+    private Map<String, Entry> slotOf(final LocalDate day) {
+        return slots.get(Math.floorMod(day.toEpochDay(), horizonDays));
+    }
+
+    private record Entry(String readerNumber, String lendingNumber, LocalDate limitDate) {
+    }
+}
@@ -0,0 +1,24 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import jakarta.persistence.PostPersist;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import pt.psoft.g1.psoftg1.bookmanagement.services.ReaderSuggestionsCache;
+import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
+
+/**
+ * JPA entity listener that evicts the cached suggestions of a reader once they borrow a book, since books the
+ * reader already borrowed are never suggested.
+ * <p>
+ * Like {@link OutstandingLendingsListener}, the cache is optional so that JPA-only slices still work.
+ */
+@RequiredArgsConstructor
+public class ReaderSuggestionsListener {
+    private final ObjectProvider<ReaderSuggestionsCache> readerSuggestionsCache;
+
+    @PostPersist
+    void onCreate(final Lending lending) {
+        final String readerNumber = lending.getReaderDetails().getReaderNumber();
+        readerSuggestionsCache.ifAvailable(cache -> cache.evict(readerNumber));
+    }
+}
@@ -0,0 +1,26 @@
+package pt.psoft.g1.psoftg1.lendingmanagement.services;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "A DTO for setting one of several Lendings as returned")
+public class ReturnLendingRequest {
+    @NotNull
+    @NotBlank
+    private String lendingNumber;
+
+    @NotNull
+    @Schema(description = "Version of the Lending, as in its ETag")
+    private Long version;
+
+    @Size(max = 1024)
+    private String commentary;
+}
@@ -12,8 +12,8 @@ import jakarta.validation.Valid;
 import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
@@ -34,8 +34,10 @@ import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
 import pt.psoft.g1.psoftg1.readermanagement.services.SearchReadersQuery;
 import pt.psoft.g1.psoftg1.readermanagement.services.UpdateReaderRequest;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
+import pt.psoft.g1.psoftg1.shared.api.MultiGetResponse;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.PhotoDelivery;
 import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
 import pt.psoft.g1.psoftg1.usermanagement.model.Librarian;
 import pt.psoft.g1.psoftg1.usermanagement.model.Role;
@@ -60,6 +62,7 @@ class ReaderController {
     private final LendingViewMapper lendingViewMapper;
     private final ConcurrencyService concurrencyService;
     private final FileStorageService fileStorageService;
+    private final PhotoDelivery photoDelivery;
     private final ApiNinjasService apiNinjasService;
 
     @Operation(summary = "Gets the reader data if authenticated as Reader or all readers if authenticated as Librarian")
@@ -80,6 +83,13 @@ class ReaderController {
         return ResponseEntity.ok().body(readerViewMapper.toReaderView(readerService.findAll()));
     }
 
+    @Operation(summary = "Gets up to 100 readers by reader number at once, keyed by reader number")
+    @GetMapping(value = "/batch")
+    public MultiGetResponse<ReaderView> findAllByReaderNumbers(@RequestParam("readerNumbers") final List<String> readerNumbers) {
+        return MultiGetResponse.of(readerNumbers, readerService.findAllByReaderNumbers(readerNumbers),
+                ReaderDetails::getReaderNumber, ReaderDetails::getVersion, readerViewMapper::toReaderView);
+    }
+
     @Operation(summary = "Gets reader by number")
     @ApiResponse(description = "Success", responseCode = "200", content = { @Content(mediaType = "application/json",
             // Use the `array` property instead of `schema`
@@ -87,13 +97,19 @@ class ReaderController {
     @GetMapping(value="/{year}/{seq}")
     //This is just for testing purposes, therefore admin role has been set
     //@RolesAllowed(Role.LIBRARIAN)
-    public ResponseEntity<ReaderQuoteView> findByReaderNumber(@PathVariable("year")
+    public ResponseEntity<ReaderQuoteView> findByReaderNumber(final WebRequest request,
+                                                           @PathVariable("year")
                                                            @Parameter(description = "The year of the Reader to find")
                                                            final Integer year,
                                                        @PathVariable("seq")
                                                            @Parameter(description = "The sequencial of the Reader to find")
                                                            final Integer seq) {
         String readerNumber = year+"/"+seq;
+        final var notModified = concurrencyService.<ReaderQuoteView>notModified(request,
+                () -> readerService.findVersionByReaderNumber(readerNumber));
+        if (notModified.isPresent())
+            return notModified.get();
+
         final var readerDetails = readerService.findByReaderNumber(readerNumber)
                 .orElseThrow(() -> new NotFoundException("Could not find reader from specified reader number"));
 
@@ -145,13 +161,17 @@ class ReaderController {
     @Operation(summary= "Gets a reader photo")
     @GetMapping("/{year}/{seq}/photo")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<byte[]> getSpecificReaderPhoto(@PathVariable("year")
+    public ResponseEntity<Resource> getSpecificReaderPhoto(@PathVariable("year")
                                                      @Parameter(description = "The year of the Reader to find")
                                                      final Integer year,
                                                  @PathVariable("seq")
                                                      @Parameter(description = "The sequencial of the Reader to find")
                                                      final Integer seq,
-                                                         Authentication authentication) {
+                                                         @RequestParam(value = "size", required = false)
+                                                         @Parameter(description = "small or medium, for a smaller copy of the photo")
+                                                         final String size,
+                                                         Authentication authentication,
+                                                         final WebRequest request) {
         User loggedUser = userService.getAuthenticatedUser(authentication);
 
         //if Librarian is logged in, skip ahead
@@ -173,21 +193,16 @@ class ReaderController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
-        String photoFile = readerDetails.getPhoto().getPhotoFile();
-        byte[] image = this.fileStorageService.getFile(photoFile);
-        String fileFormat = this.fileStorageService.getExtension(readerDetails.getPhoto().getPhotoFile()).orElseThrow(() -> new ValidationException("Unable to get file extension"));
-
-        if(image == null) {
-            return ResponseEntity.ok().build();
-        }
-
-        return ResponseEntity.ok().contentType(fileFormat.equals("png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG).body(image);
+        return this.photoDelivery.photo(readerDetails.getPhoto().getPhotoFile(), size, request);
     }
 
     @Operation(summary= "Gets a reader photo")
     @GetMapping("/photo")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<byte[]> getReaderOwnPhoto(Authentication authentication) {
+    public ResponseEntity<Resource> getReaderOwnPhoto(@RequestParam(value = "size", required = false)
+                                                      @Parameter(description = "small or medium, for a smaller copy of the photo")
+                                                      final String size,
+                                                      Authentication authentication, final WebRequest request) {
 
         User loggedUser = userService.getAuthenticatedUser(authentication);
 
@@ -203,15 +218,7 @@ class ReaderController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
-        byte[] image = this.fileStorageService.getFile(readerDetails.getPhoto().getPhotoFile());
-
-        if(image == null) {
-            return ResponseEntity.ok().build();
-        }
-
-        String fileFormat = this.fileStorageService.getExtension(readerDetails.getPhoto().getPhotoFile()).orElseThrow(() -> new ValidationException("Unable to get file extension"));
-
-        return ResponseEntity.ok().contentType(fileFormat.equals("png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG).body(image);
+        return this.photoDelivery.photo(readerDetails.getPhoto().getPhotoFile(), size, request);
     }
 
     @Operation(summary = "Creates a reader")
@@ -249,7 +256,6 @@ class ReaderController {
             throw new NotFoundException("Reader has no photo to delete");
         }
 
-        this.fileStorageService.deleteFile(readerDetails.getPhoto().getPhotoFile());
         readerService.removeReaderPhoto(readerDetails.getReaderNumber(), readerDetails.getVersion());
 
         return ResponseEntity.ok().build();
@@ -6,6 +6,7 @@ import jakarta.persistence.criteria.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
@@ -20,6 +21,7 @@ import pt.psoft.g1.psoftg1.usermanagement.model.User;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +33,19 @@ public interface SpringDataReaderRepositoryImpl extends ReaderRepository, Reader
             "WHERE r.readerNumber.readerNumber = :readerNumber")
     Optional<ReaderDetails> findByReaderNumber(@Param("readerNumber") @NotNull String readerNumber);
 
+    @Override
+    @Query("SELECT r.version " +
+            "FROM ReaderDetails r " +
+            "WHERE r.readerNumber.readerNumber = :readerNumber")
+    Optional<Long> findVersionByReaderNumber(@Param("readerNumber") @NotNull String readerNumber);
+
+    @Override
+    @EntityGraph(ReaderDetails.VIEW_GRAPH)
+    @Query("SELECT r " +
+            "FROM ReaderDetails r " +
+            "WHERE r.readerNumber.readerNumber IN :readerNumbers")
+    List<ReaderDetails> findAllByReaderNumbers(@Param("readerNumbers") @NotNull Collection<String> readerNumbers);
+
     @Override
     @Query("SELECT r " +
             "FROM ReaderDetails r " +
@@ -59,6 +74,12 @@ public interface SpringDataReaderRepositoryImpl extends ReaderRepository, Reader
             "WHERE YEAR(u.createdAt) = YEAR(CURRENT_DATE)")
     int getCountFromCurrentYear();
 
+    @Override
+    @Query("SELECT COALESCE(MAX(CAST(SUBSTRING(rd.readerNumber.readerNumber, 6) AS Integer)), 0) " +
+            "FROM ReaderDetails rd " +
+            "WHERE rd.readerNumber.readerNumber LIKE CONCAT(CAST(:year AS String), '/%')")
+    int getMaxSequentialFromYear(@Param("year") int year);
+
     @Query("SELECT rd " +
             "FROM ReaderDetails rd " +
             "JOIN Lending l ON l.readerDetails.pk = rd.pk " +
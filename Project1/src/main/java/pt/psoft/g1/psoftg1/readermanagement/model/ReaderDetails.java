@@ -15,7 +15,16 @@ import java.util.List;
 
 @Entity
 @Table(name = "READER_DETAILS")
+@NamedEntityGraph(name = ReaderDetails.VIEW_GRAPH, attributeNodes = {
+        @NamedAttributeNode("reader"),
+        @NamedAttributeNode("photo"),
+        @NamedAttributeNode("interestList")})
 public class ReaderDetails extends EntityWithPhoto {
+    /**
+     * Entity graph of everything a {@code ReaderView} reads, so a list of readers is loaded in a single query.
+     */
+    public static final String VIEW_GRAPH = "ReaderDetails.view";
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long pk;
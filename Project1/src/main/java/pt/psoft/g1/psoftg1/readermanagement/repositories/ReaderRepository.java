@@ -9,6 +9,7 @@ import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.services.ReaderBookCountDTO;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,10 +18,13 @@ import java.util.Optional;
  */
 public interface ReaderRepository {
     Optional<ReaderDetails> findByReaderNumber(@Param("readerNumber") @NotNull String readerNumber);
+    Optional<Long> findVersionByReaderNumber(@Param("readerNumber") @NotNull String readerNumber);
+    List<ReaderDetails> findAllByReaderNumbers(@Param("readerNumbers") @NotNull Collection<String> readerNumbers);
     List<ReaderDetails> findByPhoneNumber(@Param("phoneNumber") @NotNull String phoneNumber);
     Optional<ReaderDetails> findByUsername(@Param("username") @NotNull String username);
     Optional<ReaderDetails> findByUserId(@Param("userId") @NotNull Long userId);
     int getCountFromCurrentYear();
+    int getMaxSequentialFromYear(int year);
     ReaderDetails save(ReaderDetails readerDetails);
     Iterable<ReaderDetails> findAll();
     Page<ReaderDetails> findTopReaders(Pageable pageable);
@@ -0,0 +1,38 @@
+package pt.psoft.g1.psoftg1.readermanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.shared.services.YearlySequenceService;
+
+/**
+ * Allocates the sequential component of {@code ReaderNumber}s for the current year.
+ * <p>
+ * Shared by reader registration and bootstrapping, so explicitly numbered readers never collide
+ * with the ones allocated on registration.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReaderNumberSequence {
+    private static final String READER_SEQUENCE = "reader";
+
+    private final YearlySequenceService sequenceService;
+    private final ReaderRepository readerRepository;
+
+    /**
+     * @param year year component of the reader number
+     * @return the next free sequential number for {@code year}
+     */
+    public int next(final int year) {
+        return sequenceService.next(READER_SEQUENCE, year, () -> readerRepository.getMaxSequentialFromYear(year));
+    }
+
+    /**
+     * Marks the reader numbers already stored for {@code year}, such as ones assigned outside of the sequence, as used.
+     *
+     * @param year year component of the reader number
+     */
+    public void claimExisting(final int year) {
+        sequenceService.advanceTo(READER_SEQUENCE, year, readerRepository.getMaxSequentialFromYear(year));
+    }
+}
@@ -15,6 +15,11 @@ public interface ReaderService {
     ReaderDetails update(Long id, UpdateReaderRequest request, long desireVersion, String photoURI);
     Optional<ReaderDetails> findByUsername(final String username);
     Optional<ReaderDetails> findByReaderNumber(String readerNumber);
+    /**
+     * Finds the readers with the given numbers in a single query; numbers without a reader are left out.
+     */
+    List<ReaderDetails> findAllByReaderNumbers(List<String> readerNumbers);
+    Optional<Long> findVersionByReaderNumber(String readerNumber);
     List<ReaderDetails> findByPhoneNumber(String phoneNumber);
     Iterable<ReaderDetails> findAll();
     List<ReaderDetails> findTopReaders(int minTop);
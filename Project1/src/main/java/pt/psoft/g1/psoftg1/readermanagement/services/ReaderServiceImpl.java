@@ -1,36 +1,41 @@
 package pt.psoft.g1.psoftg1.readermanagement.services;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import pt.psoft.g1.psoftg1.bookmanagement.services.ReaderSuggestionsCache;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingLeaderboards;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
 import pt.psoft.g1.psoftg1.shared.repositories.ForbiddenNameRepository;
-import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.PhotoReferences;
+import pt.psoft.g1.psoftg1.shared.services.TopKCounter;
 import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
 import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import org.springframework.data.domain.Pageable;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ReaderServiceImpl implements ReaderService {
+    private static final int MAX_MULTI_GET_KEYS = 100;
+
     private final ReaderRepository readerRepo;
     private final UserRepository userRepo;
     private final ReaderMapper readerMapper;
     private final GenreRepository genreRepo;
     private final ForbiddenNameRepository forbiddenNameRepository;
-    private final PhotoRepository photoRepository;
+    private final PhotoReferences photoReferences;
+    private final ReaderNumberSequence readerNumberSequence;
+    private final LendingLeaderboards lendingLeaderboards;
+    private final ReaderSuggestionsCache readerSuggestionsCache;
 
 
     @Override
@@ -69,12 +74,14 @@ public class ReaderServiceImpl implements ReaderService {
             request.setPhoto(null);
         }
 
-        int count = readerRepo.getCountFromCurrentYear();
+        int readerNumber = readerNumberSequence.next(LocalDate.now().getYear());
         Reader reader = readerMapper.createReader(request);
-        ReaderDetails rd = readerMapper.createReaderDetails(count+1, reader, request, photoURI, interestList);
+        ReaderDetails rd = readerMapper.createReaderDetails(readerNumber, reader, request, photoURI, interestList);
 
         userRepo.save(reader);
-        return readerRepo.save(rd);
+        final ReaderDetails saved = readerRepo.save(rd);
+        photoReferences.acquire(photoURI, request.getPhoto());
+        return saved;
     }
 
     @Override
@@ -82,8 +89,12 @@ public class ReaderServiceImpl implements ReaderService {
         if(startDate.isAfter(endDate)){
             throw new IllegalArgumentException("Start date cannot be after end date");
         }
-        Pageable pageableRules = PageRequest.of(0,5);
-        return this.readerRepo.findTopByGenre(pageableRules, genre, startDate, endDate).getContent();
+        final List<TopKCounter.Ranked<String>> top = lendingLeaderboards.topReadersByGenre(genre, startDate, endDate, 5);
+        final Map<String, ReaderDetails> readers = findRanked(top);
+        return top.stream()
+                .filter(ranked -> readers.containsKey(ranked.key()))
+                .map(ranked -> new ReaderBookCountDTO(readers.get(ranked.key()), ranked.count()))
+                .toList();
     }
 
     @Override
@@ -114,7 +125,10 @@ public class ReaderServiceImpl implements ReaderService {
         readerDetails.applyPatch(desiredVersion, request, photoURI, interestList);
 
         userRepo.save(readerDetails.getReader());
-        return readerRepo.save(readerDetails);
+        final ReaderDetails saved = readerRepo.save(readerDetails);
+        photoReferences.acquire(photoURI, request.getPhoto());
+        readerSuggestionsCache.evict(saved.getReaderNumber());
+        return saved;
     }
 
 
@@ -123,6 +137,19 @@ public class ReaderServiceImpl implements ReaderService {
         return this.readerRepo.findByReaderNumber(readerNumber);
     }
 
+    @Override
+    public List<ReaderDetails> findAllByReaderNumbers(final List<String> readerNumbers) {
+        final List<String> distinct = readerNumbers.stream().distinct().toList();
+        if (distinct.isEmpty() || distinct.size() > MAX_MULTI_GET_KEYS)
+            throw new IllegalArgumentException("Between 1 and " + MAX_MULTI_GET_KEYS + " reader numbers must be requested");
+        return this.readerRepo.findAllByReaderNumbers(distinct);
+    }
+
+    @Override
+    public Optional<Long> findVersionByReaderNumber(String readerNumber) {
+        return this.readerRepo.findVersionByReaderNumber(readerNumber);
+    }
+
     @Override
     public List<ReaderDetails> findByPhoneNumber(String phoneNumber) {
         return this.readerRepo.findByPhoneNumber(phoneNumber);
@@ -145,9 +172,19 @@ public class ReaderServiceImpl implements ReaderService {
             throw new IllegalArgumentException("Minimum top reader must be greater than 0");
         }
 
-        Pageable pageableRules = PageRequest.of(0,minTop);
-        Page<ReaderDetails> page = readerRepo.findTopReaders(pageableRules);
-        return page.getContent();
+        final List<TopKCounter.Ranked<String>> top = lendingLeaderboards.topReaders(minTop);
+        final Map<String, ReaderDetails> readers = findRanked(top);
+        return top.stream()
+                .map(ranked -> readers.get(ranked.key()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private Map<String, ReaderDetails> findRanked(final List<TopKCounter.Ranked<String>> ranking) {
+        if (ranking.isEmpty())
+            return Map.of();
+        return readerRepo.findAllByReaderNumbers(ranking.stream().map(TopKCounter.Ranked::key).toList()).stream()
+                .collect(Collectors.toMap(ReaderDetails::getReaderNumber, Function.identity()));
     }
 
     private List<Genre> getGenreListFromStringList(List<String> interestList) {
@@ -180,7 +217,7 @@ public class ReaderServiceImpl implements ReaderService {
         String photoFile = readerDetails.getPhoto().getPhotoFile();
         readerDetails.removePhoto(desiredVersion);
         Optional<ReaderDetails> updatedReader = Optional.of(readerRepo.save(readerDetails));
-        photoRepository.deleteByPhotoFile(photoFile);
+        photoReferences.release(photoFile);
         return updatedReader;
     }
 
@@ -0,0 +1,17 @@
+package pt.psoft.g1.psoftg1.shared.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * List response for cursor (keyset) paginated endpoints. Clients pass {@code next} back as the
+ * {@code cursor} parameter to get the following page; it is {@code null} on the last page.
+ */
+@Data
+@AllArgsConstructor
+public class KeysetListResponse<T> {
+    private List<T> items;
+    private String next;
+}
@@ -6,6 +6,8 @@ import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.shared.model.EntityWithPhoto;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -30,6 +32,17 @@ public abstract class MapperInterface {
 
     public <T> T mapOpt(final Optional<T> i) {return i.orElse(null);}
 
+    /**
+     * @return the URL of the photo of the entity, which never changes content, or null if the photo is not named
+     * after its content
+     */
+    protected String generatePhotoContentUrl(EntityWithPhoto entity) {
+        if (entity.getPhoto() == null || FileStorageService.contentHash(entity.getPhoto().getPhotoFile()).isEmpty())
+            return null;
+        return ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/photos/{photoFile}")
+                .buildAndExpand(entity.getPhoto().getPhotoFile()).toUri().toString();
+    }
+
     @Named(value = "lendingLink")
     protected Map<String, String> mapLendingLink(Lending lending){
         Map<String, String> lendingLink = new HashMap<>();
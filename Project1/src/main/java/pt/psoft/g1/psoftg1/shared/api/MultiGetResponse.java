@@ -0,0 +1,46 @@
+package pt.psoft.g1.psoftg1.shared.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Response of the multi-get endpoints: the items found, keyed by the requested key in request order, each with the
+ * version its single-item endpoint sends as {@code ETag}, and the requested keys nothing was found for.
+ */
+@Data
+@AllArgsConstructor
+public class MultiGetResponse<T> {
+    private Map<String, VersionedView<T>> items;
+    private List<String> missing;
+
+    /**
+     * @param found the entities found for {@code keys}, in any order
+     */
+    public static <E, T> MultiGetResponse<T> of(final Collection<String> keys, final List<E> found,
+                                                final Function<E, String> key, final Function<E, Long> version,
+                                                final Function<E, T> view) {
+        final Map<String, E> byKey = new HashMap<>();
+        found.forEach(entity -> byKey.put(key.apply(entity), entity));
+
+        final Map<String, VersionedView<T>> items = new LinkedHashMap<>();
+        final List<String> missing = new ArrayList<>();
+        for (String k : new LinkedHashSet<>(keys)) {
+            final E entity = byKey.get(k);
+            if (entity == null)
+                missing.add(k);
+            else
+                items.put(k, new VersionedView<>(version.apply(entity), view.apply(entity)));
+        }
+        return new MultiGetResponse<>(items, missing);
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class VersionedView<T> {
+        private Long version;
+        private T item;
+    }
+}
@@ -0,0 +1,17 @@
+package pt.psoft.g1.psoftg1.shared.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * List response for offset paginated endpoints. {@code total} is the number of items across every page,
+ * so clients know how many pages there are.
+ */
+@Data
+@AllArgsConstructor
+public class PagedListResponse<T> {
+    private List<T> items;
+    private long total;
+}
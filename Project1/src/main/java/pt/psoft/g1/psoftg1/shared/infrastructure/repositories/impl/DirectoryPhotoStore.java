@@ -0,0 +1,72 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.exceptions.FileStorageException;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoStore;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+
+/**
+ * Stores each photo as a file of its own in {@code file.upload-dir}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "file", name = "store", havingValue = "directory", matchIfMissing = true)
+public class DirectoryPhotoStore implements PhotoStore {
+    private final Path location;
+
+    public DirectoryPhotoStore(final FileStorageProperties fileStorageProperties) {
+        this.location = Paths.get(fileStorageProperties.getUploadDir()).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(location);
+        } catch (final IOException ex) {
+            throw new FileStorageException("Could not create the directory where the uploaded files will be stored.",
+                    ex);
+        }
+    }
+
+    @Override
+    public void store(final String fileName, final InputStream content, final long size) throws IOException {
+        Files.copy(content, resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public boolean delete(final String fileName) throws IOException {
+        try {
+            Files.delete(resolve(fileName));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public Optional<StoredPhoto> find(final String fileName) throws IOException {
+        final Path path = resolve(fileName);
+        if (!Files.isRegularFile(path))
+            return Optional.empty();
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return Optional.of(new StoredPhoto(attributes.size(), attributes.lastModifiedTime().toMillis(),
+                new FileSystemResource(path)));
+    }
+
+    /**
+     * @throws NoSuchFileException if the name points outside the upload directory
+     */
+    private Path resolve(final String fileName) throws NoSuchFileException {
+        final Path path = location.resolve(fileName).normalize();
+        if (!path.startsWith(location) || path.equals(location))
+            throw new NoSuchFileException(fileName);
+        return path;
+    }
+}
@@ -22,6 +22,26 @@ public interface SpringDataPhotoRepository extends PhotoRepository, CrudReposito
     @Transactional
     @Query("DELETE " +
             "FROM Photo p " +
-            "WHERE p.photoFile = :photoFile")
+            "WHERE p.photoFile = :photoFile " +
+            "AND NOT EXISTS (SELECT b FROM Book b WHERE b.photo = p) " +
+            "AND NOT EXISTS (SELECT a FROM Author a WHERE a.photo = p) " +
+            "AND NOT EXISTS (SELECT r FROM ReaderDetails r WHERE r.photo = p)")
     void deleteByPhotoFile(String photoFile);
+
+    @Override
+    @Query("SELECT COUNT(p) " +
+            "FROM Photo p " +
+            "WHERE p.photoFile = :photoFile " +
+            "AND (EXISTS (SELECT b FROM Book b WHERE b.photo = p) " +
+            "OR EXISTS (SELECT a FROM Author a WHERE a.photo = p) " +
+            "OR EXISTS (SELECT r FROM ReaderDetails r WHERE r.photo = p))")
+    long countReferences(String photoFile);
+
+    @Override
+    @Query("SELECT COUNT(p) " +
+            "FROM Photo p " +
+            "WHERE p.photoFile = :photoFile " +
+            "AND (EXISTS (SELECT b FROM Book b WHERE b.photo = p) " +
+            "OR EXISTS (SELECT a FROM Author a WHERE a.photo = p))")
+    long countCatalogueReferences(String photoFile);
 }
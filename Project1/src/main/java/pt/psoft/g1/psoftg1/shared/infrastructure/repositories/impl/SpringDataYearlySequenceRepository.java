@@ -0,0 +1,21 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import pt.psoft.g1.psoftg1.shared.model.YearlySequence;
+import pt.psoft.g1.psoftg1.shared.repositories.YearlySequenceRepository;
+
+import java.util.Optional;
+
+public interface SpringDataYearlySequenceRepository extends YearlySequenceRepository, CrudRepository<YearlySequence, Long> {
+    @Override
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s " +
+            "FROM YearlySequence s " +
+            "WHERE s.name = :name " +
+            "AND s.year = :year")
+    Optional<YearlySequence> findForUpdate(@Param("name") String name, @Param("year") int year);
+}
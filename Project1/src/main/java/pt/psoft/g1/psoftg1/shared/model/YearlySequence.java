@@ -0,0 +1,83 @@
+package pt.psoft.g1.psoftg1.shared.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Getter;
+
+/**
+ * The {@code YearlySequence} class stores the persistent high-water mark of a named, per-year sequence
+ * (e.g. lending numbers or reader numbers).
+ * <p>
+ * Values are never handed out beyond {@code highWaterMark}, so the mark is always advanced (and committed)
+ * before the numbers of a block are used. After a crash the unused part of a block is simply skipped,
+ * which may leave gaps but never produces duplicates.
+ */
+@Entity
+@Table(name = "YEARLY_SEQUENCE", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"SEQUENCE_NAME", "SEQUENCE_YEAR"})})
+public class YearlySequence {
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long pk;
+
+    @NotBlank
+    @Getter
+    @Column(name = "SEQUENCE_NAME", nullable = false, updatable = false, length = 64)
+    private String name;
+
+    @Getter
+    @Column(name = "SEQUENCE_YEAR", nullable = false, updatable = false)
+    private int year;
+
+    /**
+     * Last value that has been reserved for this sequence. Every value up to (and including) this one
+     * may already have been handed out.
+     */
+    @Getter
+    @Column(name = "HIGH_WATER_MARK", nullable = false)
+    private int highWaterMark;
+
+    @Version
+    @Getter
+    private long version;
+
+    public YearlySequence(String name, int year, int highWaterMark) {
+        if(name == null || name.isBlank())
+            throw new IllegalArgumentException("Sequence name cannot be blank");
+        if(highWaterMark < 0)
+            throw new IllegalArgumentException("High-water mark cannot be negative");
+        this.name = name;
+        this.year = year;
+        this.highWaterMark = highWaterMark;
+    }
+
+    /**
+     * Reserves the next block of values.
+     * <p>
+     * The reserved block starts after {@code max(highWaterMark, floor)}, so a sequence can recover from rows
+     * that were inserted without going through it (e.g. bootstrapping data).
+     *
+     * @param blockSize number of values to reserve
+     * @param floor     highest value known to be in use
+     * @return the first value of the reserved block
+     */
+    public int reserveBlock(int blockSize, int floor) {
+        if(blockSize < 1)
+            throw new IllegalArgumentException("Block size must be at least 1");
+        int first = Math.max(this.highWaterMark, floor) + 1;
+        this.highWaterMark = first + blockSize - 1;
+        return first;
+    }
+
+    /**
+     * Marks {@code value} as used, advancing the high-water mark if needed.
+     *
+     * @param value value assigned outside of the sequence (e.g. a fixed bootstrapping number)
+     */
+    public void advanceTo(int value) {
+        this.highWaterMark = Math.max(this.highWaterMark, value);
+    }
+
+    /**Protected empty constructor for ORM only.*/
+    protected YearlySequence() {}
+}
@@ -9,5 +9,20 @@ public interface PhotoRepository {
     //Optional<Photo> findById(long id);
 
     //Photo save(Photo photo);
+
+    /**
+     * Deletes the photos of that file no entity refers to any more; those still referred to are kept, as photo files
+     * are shared by every entity given the same content.
+     */
     void deleteByPhotoFile(String photoFile);
+
+    /**
+     * @return the number of entities whose photo is that file
+     */
+    long countReferences(String photoFile);
+
+    /**
+     * @return the number of books and authors whose photo is that file, which makes it part of the public catalogue
+     */
+    long countCatalogueReferences(String photoFile);
 }
@@ -0,0 +1,30 @@
+package pt.psoft.g1.psoftg1.shared.repositories;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Storage engine of the uploaded photo files, by file name; {@code file.store} selects which one is used.
+ */
+public interface PhotoStore {
+    /**
+     * Stores {@code size} bytes read from {@code content} as the file, replacing it if it exists.
+     */
+    void store(String fileName, InputStream content, long size) throws IOException;
+
+    /**
+     * @return whether the file existed
+     */
+    boolean delete(String fileName) throws IOException;
+
+    Optional<StoredPhoto> find(String fileName) throws IOException;
+
+    /**
+     * @param content readable any number of times, at any time, even after the file is replaced or deleted
+     */
+    record StoredPhoto(long size, long lastModified, Resource content) {
+    }
+}
@@ -0,0 +1,14 @@
+package pt.psoft.g1.psoftg1.shared.repositories;
+
+import pt.psoft.g1.psoftg1.shared.model.YearlySequence;
+
+import java.util.Optional;
+
+public interface YearlySequenceRepository {
+    /**
+     * Finds the sequence and locks its row until the end of the current transaction.
+     */
+    Optional<YearlySequence> findForUpdate(String name, int year);
+
+    YearlySequence save(YearlySequence sequence);
+}
@@ -1,12 +1,19 @@
 package pt.psoft.g1.psoftg1.shared.services;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Optional;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class ConcurrencyService {
     public static final String IF_MATCH = "If-Match";
+    public static final String IF_NONE_MATCH = "If-None-Match";
 
     public Long getVersionFromIfMatchHeader(final String ifMatchHeader) {
         if (ifMatchHeader.startsWith("\"")) {
@@ -14,4 +21,39 @@ public class ConcurrencyService {
         }
         return Long.parseLong(ifMatchHeader);
     }
+
+    /**
+     * Answers a conditional GET from the version of the entity alone, so that revalidating an unchanged entity
+     * neither loads nor renders it.
+     *
+     * @param currentVersion looks up the current version of the entity, empty if it does not exist; only called
+     *                       when the request has an {@code If-None-Match} header
+     * @return a 304 response if {@code If-None-Match} holds the current version, empty if the entity has to be sent
+     */
+    public <T> Optional<ResponseEntity<T>> notModified(final WebRequest request, final Supplier<Optional<Long>> currentVersion) {
+        final String ifNoneMatch = request.getHeader(IF_NONE_MATCH);
+        if (ifNoneMatch == null || ifNoneMatch.isBlank())
+            return Optional.empty();
+
+        return currentVersion.get()
+                .filter(version -> matches(ifNoneMatch, version))
+                .map(version -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(Long.toString(version)).build());
+    }
+
+    private static boolean matches(final String ifNoneMatch, final long version) {
+        final String etag = Long.toString(version);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*"))
+                return true;
+            // If-None-Match uses weak comparison
+            if (tag.startsWith("W/"))
+                tag = tag.substring(2);
+            if (tag.length() > 1 && tag.startsWith("\"") && tag.endsWith("\""))
+                tag = tag.substring(1, tag.length() - 1);
+            if (tag.equals(etag))
+                return true;
+        }
+        return false;
+    }
 }
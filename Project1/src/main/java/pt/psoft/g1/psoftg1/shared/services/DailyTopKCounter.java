@@ -0,0 +1,90 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.*;
+
+/**
+ * {@link TopKCounter} whose counters are bucketed by day, so that top-{@code k} queries can be limited to a range
+ * of days.
+ * <p>
+ * With a retention period the counter is a sliding window: buckets that fall out of it are dropped (and their
+ * counts subtracted from the window totals) the first time the counter is used on a later day, so memory is
+ * bounded by the keys seen during the window. Without one, every bucket is kept.
+ *
+ * @param <K> type of the counted keys
+ */
+public class DailyTopKCounter<K extends Comparable<? super K>> {
+    private final Period retention;
+    private final NavigableMap<LocalDate, Map<K, Long>> days = new TreeMap<>();
+    private final Map<K, Long> windowTotals = new HashMap<>();
+    private LocalDate today;
+
+    /**
+     * @param retention how long a day is kept, {@code null} to keep every day
+     */
+    public DailyTopKCounter(final Period retention) {
+        this.retention = retention;
+        this.today = LocalDate.now();
+    }
+
+    public void add(final K key, final LocalDate day, final long delta) {
+        add(key, day, delta, LocalDate.now());
+    }
+
+    /**
+     * @return the {@code k} keys with the highest counts within the retention period, highest first
+     */
+    public List<TopKCounter.Ranked<K>> top(final int k) {
+        return top(k, LocalDate.now());
+    }
+
+    public synchronized void add(final K key, final LocalDate day, final long delta, final LocalDate today) {
+        advanceTo(today);
+        if (!isRetained(day))
+            return;
+        TopKCounter.merge(days.computeIfAbsent(day, d -> new HashMap<>()), key, delta);
+        TopKCounter.merge(windowTotals, key, delta);
+    }
+
+    public synchronized List<TopKCounter.Ranked<K>> top(final int k, final LocalDate today) {
+        advanceTo(today);
+        return TopKCounter.top(windowTotals, k);
+    }
+
+    /**
+     * @return the {@code k} keys with the highest counts between {@code from} and {@code to} (both inclusive),
+     * highest first
+     */
+    public synchronized List<TopKCounter.Ranked<K>> top(final int k, final LocalDate from, final LocalDate to) {
+        final Map<K, Long> totals = new HashMap<>();
+        days.subMap(from, true, to, true).values()
+                .forEach(day -> day.forEach((key, count) -> TopKCounter.merge(totals, key, count)));
+        return TopKCounter.top(totals, k);
+    }
+
+    /**
+     * Replaces every counter with the given ones.
+     */
+    public synchronized void reset(final Map<LocalDate, Map<K, Long>> snapshot) {
+        days.clear();
+        windowTotals.clear();
+        today = LocalDate.now();
+        snapshot.forEach((day, counts) -> counts.forEach((key, count) -> add(key, day, count, today)));
+    }
+
+    private void advanceTo(final LocalDate newToday) {
+        if (!newToday.isAfter(today))
+            return;
+        today = newToday;
+        if (retention == null)
+            return;
+        final Map<LocalDate, Map<K, Long>> expired = days.headMap(today.minus(retention), true);
+        expired.values().forEach(day -> day.forEach((key, count) -> TopKCounter.merge(windowTotals, key, -count)));
+        expired.clear();
+    }
+
+    private boolean isRetained(final LocalDate day) {
+        return retention == null || day.isAfter(today.minus(retention));
+    }
+}
@@ -0,0 +1,49 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a keyset (seek) page: the value of the sort key and the
+ * primary key used as tie-breaker.
+ * <p>
+ * It is handed to clients as an opaque, URL-safe token, so the sort key can change without breaking them.
+ */
+@Getter
+public class KeysetCursor {
+    private static final String SEPARATOR = "|";
+
+    private final String key;
+    private final long pk;
+
+    public KeysetCursor(String key, long pk) {
+        if(key == null || key.contains(SEPARATOR))
+            throw new IllegalArgumentException("Invalid cursor key");
+        this.key = key;
+        this.pk = pk;
+    }
+
+    /**
+     * @param token token previously returned by {@link #encode()}
+     * @return the decoded cursor, or {@code null} if {@code token} is blank (i.e. the first page)
+     * @throws IllegalArgumentException if the token is not valid
+     */
+    public static KeysetCursor decode(String token) {
+        if(token == null || token.isBlank())
+            return null;
+        try {
+            final String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            final int separator = decoded.lastIndexOf(SEPARATOR);
+            return new KeysetCursor(decoded.substring(0, separator), Long.parseLong(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        final String raw = key + SEPARATOR + pk;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
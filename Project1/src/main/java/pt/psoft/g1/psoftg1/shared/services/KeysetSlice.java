@@ -0,0 +1,18 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A page of results obtained with keyset (seek) pagination.
+ * <p>
+ * {@code next} is the opaque token to request the following page, or {@code null} if this is the last one.
+ */
+@Data
+@AllArgsConstructor
+public class KeysetSlice<T> {
+    private List<T> items;
+    private String next;
+}
@@ -0,0 +1,16 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * A page of results together with the number of results across every page.
+ */
+@Data
+@AllArgsConstructor
+public class PagedSlice<T> {
+    private List<T> items;
+    private long total;
+}
@@ -0,0 +1,248 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import jakarta.validation.ValidationException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.WebRequest;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoStore.StoredPhoto;
+import pt.psoft.g1.psoftg1.shared.services.PhotoCache.CachedPhoto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Sends stored photos without loading them onto the heap.
+ * <p>
+ * Photos small enough are served from the off-heap {@link PhotoCache}, which also keeps their tags, so sending a
+ * cached photo does not touch the disk; other photos are streamed from the {@code PhotoStore}.
+ * <p>
+ * A photo is answered with its content as the body, tagged with a strong ETag made of the SHA-256 of its content and
+ * with its {@code Last-Modified} time. Spring MVC then answers {@code If-None-Match} and {@code If-Modified-Since}
+ * with a 304, a {@code Range} with a 206 holding only the requested bytes (or a 416), and streams the content through
+ * a fixed-size buffer, so a download takes the same memory whatever the size of the photo. {@code If-Range} is
+ * evaluated here: when the photo changed since the client's copy, the whole photo is sent instead of the range.
+ * <p>
+ * Photos named after their content take their tag from their name. The tags of other photos are kept for the
+ * {@value #MAX_CONTENT_TAGS} most recently sent ones, and computed again when the size or modification time of a
+ * photo changes.
+ */
+@Service
+@RequiredArgsConstructor
+public class PhotoDelivery {
+    private static final int MAX_CONTENT_TAGS = 1024;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final FileStorageService fileStorageService;
+    private final PhotoCache photoCache;
+    private final PhotoVariants photoVariants;
+    private final Map<String, ContentTag> contentTags = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, ContentTag> eldest) {
+            return size() > MAX_CONTENT_TAGS;
+        }
+    };
+
+    /**
+     * @param size the {@link PhotoVariant} to send instead of the photo, if any; the photo itself is sent if it has no
+     *             such variant
+     * @return the photo stored in {@code photoFile}, or a 200 response without body if the file is missing
+     */
+    public ResponseEntity<Resource> photo(final String photoFile, final String size, final WebRequest request) {
+        if (size == null)
+            return photo(photoFile, request);
+        final PhotoVariant variant = PhotoVariant.of(size);
+        return photo(photoVariants.variant(photoFile, variant).orElse(photoFile), request);
+    }
+
+    /**
+     * @return the photo stored in {@code photoFile}, or a 200 response without body if the file is missing
+     */
+    public ResponseEntity<Resource> photo(final String photoFile, final WebRequest request) {
+        final MediaType contentType = fileStorageService.getExtension(photoFile)
+                .map(extension -> extension.equals("png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG)
+                .orElseThrow(() -> new ValidationException("Unable to get file extension"));
+
+        final Optional<CachedPhoto> cached = photoCache.get(photoFile, this::load);
+        if (cached.isPresent()) {
+            final CachedPhoto photo = cached.get();
+            final ByteBufferResource content = new ByteBufferResource(photo.content(), photo.lastModified(),
+                    "cached photo " + photo.etag());
+            return respond(request, contentType, photo.etag(), photo.lastModified(), photo.size(),
+                    content, content::getInputStream);
+        }
+
+        // too large to be cached, or missing
+        final Optional<StoredPhoto> stored = fileStorageService.findPhoto(photoFile);
+        if (stored.isEmpty())
+            return ResponseEntity.ok().build();
+        final StoredPhoto photo = stored.get();
+        final String etag;
+        try {
+            etag = contentTag(photoFile, photo);
+        } catch (IOException e) {
+            return ResponseEntity.ok().build();
+        }
+        return respond(request, contentType, etag, photo.lastModified(), photo.size(),
+                photo.content(), () -> new OpenOnReadInputStream(photo.content()));
+    }
+
+    /**
+     * @param whole  the photo, which Spring MVC splits into the requested ranges
+     * @param stream reads the whole photo, when a range was requested of another version of it
+     */
+    private static ResponseEntity<Resource> respond(final WebRequest request, final MediaType contentType,
+                                                    final String etag, final long lastModified, final long size,
+                                                    final Resource whole, final Supplier<InputStream> stream) {
+        final ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(contentType)
+                .eTag(etag)
+                .lastModified(lastModified);
+        if (ifRangeHolds(request.getHeader(HttpHeaders.IF_RANGE), etag, lastModified))
+            return response.body(whole);
+        // Spring MVC does not split an InputStreamResource into ranges
+        return response.contentLength(size).body(new InputStreamResource(stream.get()));
+    }
+
+    /**
+     * Reads a photo small enough to be cached into a direct buffer, tagging it from that copy.
+     */
+    private Optional<CachedPhoto> load(final String photoFile) {
+        final Optional<StoredPhoto> stored = fileStorageService.findPhoto(photoFile);
+        if (stored.isEmpty() || !photoCache.accepts(stored.get().size()))
+            return Optional.empty();
+        final StoredPhoto photo = stored.get();
+        try (ReadableByteChannel channel = Channels.newChannel(photo.content().getInputStream())) {
+            final ByteBuffer content = ByteBuffer.allocateDirect(Math.toIntExact(photo.size()));
+            while (content.hasRemaining() && channel.read(content) != -1) {
+                // read until full
+            }
+            content.flip();
+            final String etag = FileStorageService.contentHash(photoFile)
+                    .map(PhotoDelivery::tagOf)
+                    .orElseGet(() -> {
+                        final MessageDigest digest = sha256();
+                        digest.update(content.duplicate());
+                        return tagOf(digest.digest());
+                    });
+            return Optional.of(new CachedPhoto(content.asReadOnlyBuffer(), photo.lastModified(), etag));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return whether the {@code Range} of the request, if any, applies to the current photo
+     */
+    private static boolean ifRangeHolds(final String ifRange, final String etag, final long lastModified) {
+        if (ifRange == null || ifRange.isBlank())
+            return true;
+        final String value = ifRange.trim();
+        // If-Range uses strong comparison, so a weak tag never holds
+        if (value.startsWith("\"") || value.startsWith("W/"))
+            return value.equals(etag);
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond() == lastModified / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private String contentTag(final String photoFile, final StoredPhoto photo) throws IOException {
+        final Optional<byte[]> named = FileStorageService.contentHash(photoFile);
+        if (named.isPresent())
+            return tagOf(named.get());
+        synchronized (contentTags) {
+            final ContentTag known = contentTags.get(photoFile);
+            if (known != null && known.size() == photo.size() && known.lastModified() == photo.lastModified())
+                return known.etag();
+        }
+
+        final MessageDigest digest = sha256();
+        try (InputStream in = photo.content().getInputStream()) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        final String etag = tagOf(digest.digest());
+        synchronized (contentTags) {
+            contentTags.put(photoFile, new ContentTag(photo.size(), photo.lastModified(), etag));
+        }
+        return etag;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String tagOf(final byte[] sha256) {
+        return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(sha256) + "\"";
+    }
+
+    private record ContentTag(long size, long lastModified, String etag) {
+    }
+
+    /**
+     * Opens the photo when it is first read, so a response that ends up not being sent, such as a 304, holds no
+     * file handle.
+     */
+    private static final class OpenOnReadInputStream extends InputStream {
+        private final Resource content;
+        private InputStream in;
+
+        private OpenOnReadInputStream(final Resource content) {
+            this.content = content;
+        }
+
+        private InputStream in() throws IOException {
+            if (in == null)
+                in = content.getInputStream();
+            return in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return in().read();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            return in().read(b, off, len);
+        }
+
+        @Override
+        public long transferTo(final OutputStream out) throws IOException {
+            return in().transferTo(out);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != null)
+                in.close();
+        }
+    }
+}
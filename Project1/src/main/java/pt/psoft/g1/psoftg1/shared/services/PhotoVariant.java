@@ -0,0 +1,50 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import jakarta.validation.ValidationException;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Smaller copies kept of every photo larger than them, requested with the {@code size} parameter of the photo
+ * endpoints; the photo itself is sent for the variants it already fits in.
+ */
+public enum PhotoVariant {
+    SMALL(160),
+    MEDIUM(480);
+
+    private final int maxDimension;
+
+    PhotoVariant(final int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    /**
+     * @return the largest width or height of the variant, in pixels
+     */
+    public int maxDimension() {
+        return maxDimension;
+    }
+
+    /**
+     * @return the name the variant of {@code photoFile} is stored under, of the same format as the photo
+     */
+    public String fileName(final String photoFile) {
+        final int dot = photoFile.lastIndexOf('.');
+        final String suffix = "_" + name().toLowerCase(Locale.ROOT);
+        return dot == -1 ? photoFile + suffix : photoFile.substring(0, dot) + suffix + photoFile.substring(dot);
+    }
+
+    /**
+     * @throws ValidationException if {@code size} names no variant
+     */
+    public static PhotoVariant of(final String size) {
+        return Arrays.stream(values())
+                .filter(variant -> variant.name().equalsIgnoreCase(size))
+                .findFirst()
+                .orElseThrow(() -> new ValidationException("Photo size must be one of " + Arrays.stream(values())
+                        .map(variant -> variant.name().toLowerCase(Locale.ROOT))
+                        .collect(Collectors.joining(", "))));
+    }
+}
@@ -0,0 +1,313 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Service;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoStore;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoStore.StoredPhoto;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the {@link PhotoVariant}s of stored photos, resized and encoded again in the format of the photo with the
+ * JDK's image I/O.
+ * <p>
+ * The variants of a photo are generated in the background once it is stored, by {@code photoVariantWorkers} threads
+ * taking up to {@code photoVariantQueueSize} waiting photos; photos that find the queue full are skipped. A variant
+ * missing when it is requested, such as one of a photo stored before variants existed or skipped that way, is
+ * generated then, and the request waits for it; with no workers, variants are always generated on the calling thread.
+ * Photos that cannot be decoded have no variants, and are sent whole, and so do photos of more than
+ * {@value #MAX_PIXELS} pixels, whose size is read from their header so they are never decoded: a few kilobytes of
+ * compressed pixels can declare an image that would not fit in memory.
+ * <p>
+ * A photo that already fits in a variant has no such variant either, rather than a second copy of its bytes. The
+ * largest dimension of the {@value #MAX_KNOWN_SIZES} most recently generated photos (0 for those with no variants at
+ * all) is remembered, so requesting a variant of such a photo costs neither a read nor a decode.
+ */
+@Service
+@PropertySource({"classpath:config/library.properties"})
+public class PhotoVariants implements DisposableBean {
+    private static final long REQUEST_WAIT_SECONDS = 5;
+    private static final float JPEG_QUALITY = 0.85f;
+    private static final long MAX_PIXELS = 16_000_000;
+    private static final int MAX_KNOWN_SIZES = 4096;
+    private static final int NO_VARIANTS = 0;
+
+    private final PhotoStore photoStore;
+    private final PhotoCache photoCache;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+    private final Map<String, Integer> knownSizes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Integer> eldest) {
+            return size() > MAX_KNOWN_SIZES;
+        }
+    };
+
+    public PhotoVariants(final PhotoStore photoStore, final PhotoCache photoCache,
+                         @Value("${photoVariantWorkers}") final int workers,
+                         @Value("${photoVariantQueueSize}") final int queueSize) {
+        this.photoStore = photoStore;
+        this.photoCache = photoCache;
+        if (workers <= 0) {
+            this.executor = null;
+            return;
+        }
+        final AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)), task -> {
+                    final Thread thread = new Thread(task, "photo-variants-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Generates the variants of a photo just stored, in the background.
+     *
+     * @return completed once the variants are stored, or skipped
+     */
+    public CompletableFuture<Void> generate(final String photoFile) {
+        return submit(photoFile, false);
+    }
+
+    /**
+     * @return the name of the variant of the photo, generating it if missing, or empty if the photo has none
+     */
+    public Optional<String> variant(final String photoFile, final PhotoVariant variant) {
+        if (fits(photoFile, variant))
+            return Optional.empty();
+        final String variantFile = variant.fileName(photoFile);
+        if (exists(variantFile))
+            return Optional.of(variantFile);
+        try {
+            submit(photoFile, true).get(REQUEST_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException | TimeoutException e) {
+            return Optional.empty();
+        }
+        return !fits(photoFile, variant) && exists(variantFile) ? Optional.of(variantFile) : Optional.empty();
+    }
+
+    /**
+     * Deletes the variants of a deleted photo.
+     */
+    public void delete(final String photoFile) {
+        synchronized (knownSizes) {
+            knownSizes.remove(photoFile);
+        }
+        for (final PhotoVariant variant : PhotoVariant.values()) {
+            final String variantFile = variant.fileName(photoFile);
+            try {
+                photoStore.delete(variantFile);
+            } catch (IOException e) {
+                // left behind unreferenced, which is harmless
+            } finally {
+                photoCache.invalidate(variantFile);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    /**
+     * @param runHereIfBusy whether to generate the variants on the calling thread if the queue is full, rather than
+     *                      skip them
+     */
+    private CompletableFuture<Void> submit(final String photoFile, final boolean runHereIfBusy) {
+        final CompletableFuture<Void> generation = new CompletableFuture<>();
+        final CompletableFuture<Void> running = pending.putIfAbsent(photoFile, generation);
+        if (running != null)
+            return running;
+
+        final Runnable task = () -> {
+            try {
+                generateAll(photoFile);
+                generation.complete(null);
+            } catch (Throwable e) {
+                // including OutOfMemoryError, so that no request keeps waiting for these variants
+                generation.completeExceptionally(e);
+            } finally {
+                pending.remove(photoFile, generation);
+            }
+        };
+        if (executor == null) {
+            task.run();
+            return generation;
+        }
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            if (runHereIfBusy) {
+                task.run();
+            } else {
+                pending.remove(photoFile, generation);
+                generation.complete(null);
+            }
+        }
+        return generation;
+    }
+
+    private void generateAll(final String photoFile) throws IOException {
+        final Optional<StoredPhoto> stored = photoStore.find(photoFile);
+        if (stored.isEmpty())
+            return;
+        final byte[] original;
+        try (InputStream in = stored.get().content().getInputStream()) {
+            original = in.readAllBytes();
+        }
+        final BufferedImage image = decode(original);
+        if (image == null) {
+            remember(photoFile, NO_VARIANTS);
+            return;
+        }
+
+        final int maxDimension = Math.max(image.getWidth(), image.getHeight());
+        final boolean png = photoFile.toLowerCase(Locale.ROOT).endsWith(".png");
+        for (final PhotoVariant variant : PhotoVariant.values()) {
+            if (maxDimension <= variant.maxDimension())
+                continue;
+            final byte[] content = encode(resize(image, variant.maxDimension(), png), png);
+            final String variantFile = variant.fileName(photoFile);
+            try {
+                photoStore.store(variantFile, new ByteArrayInputStream(content), content.length);
+            } finally {
+                photoCache.invalidate(variantFile);
+            }
+        }
+        remember(photoFile, maxDimension);
+        // the photo was deleted while its variants were being generated
+        if (photoStore.find(photoFile).isEmpty())
+            delete(photoFile);
+    }
+
+    /**
+     * @return whether the photo is known to have no {@code variant}, as it already fits in it or has no variants
+     */
+    private boolean fits(final String photoFile, final PhotoVariant variant) {
+        final Integer maxDimension;
+        synchronized (knownSizes) {
+            maxDimension = knownSizes.get(photoFile);
+        }
+        return maxDimension != null && maxDimension <= variant.maxDimension();
+    }
+
+    private void remember(final String photoFile, final int maxDimension) {
+        synchronized (knownSizes) {
+            knownSizes.put(photoFile, maxDimension);
+        }
+    }
+
+    /**
+     * @return the image, or null if it cannot be decoded or has more than {@link #MAX_PIXELS} pixels
+     */
+    private static BufferedImage decode(final byte[] content) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            final Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext())
+                return null;
+            final ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS)
+                    return null;
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            // corrupt or truncated
+            return null;
+        }
+    }
+
+    /**
+     * Scales the image down to fit {@code maxDimension}, halving it first while it is more than twice as large, which
+     * bilinear interpolation alone renders poorly.
+     */
+    private static BufferedImage resize(final BufferedImage image, final int maxDimension, final boolean alpha) {
+        final double scale = (double) maxDimension / Math.max(image.getWidth(), image.getHeight());
+        final int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        final int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage current = image;
+        do {
+            final int nextWidth = Math.max(width, current.getWidth() / 2);
+            final int nextHeight = Math.max(height, current.getHeight() / 2);
+            final BufferedImage next = new BufferedImage(nextWidth, nextHeight,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            final Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (current.getWidth() != width || current.getHeight() != height);
+        return current;
+    }
+
+    private static byte[] encode(final BufferedImage image, final boolean png) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (png) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        }
+        final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            final ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private boolean exists(final String fileName) {
+        try {
+            return photoStore.find(fileName).isPresent();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import java.util.*;
+
+/**
+ * Live counters of how often each key occurred, able to answer "which {@code k} keys occurred the most".
+ * <p>
+ * A top-{@code k} query keeps a min-heap of at most {@code k} candidates while it scans the counters, so it takes
+ * {@code O(n log k)} time and {@code O(k)} extra memory. Ties are broken by ascending key, so answers are stable.
+ *
+ * @param <K> type of the counted keys
+ */
+public class TopKCounter<K extends Comparable<? super K>> {
+    private final Map<K, Long> counts = new HashMap<>();
+
+    public synchronized void add(final K key, final long delta) {
+        merge(counts, key, delta);
+    }
+
+    /**
+     * @return the {@code k} keys with the highest counts, highest first
+     */
+    public synchronized List<Ranked<K>> top(final int k) {
+        return top(counts, k);
+    }
+
+    /**
+     * Replaces every counter with the given ones.
+     */
+    public synchronized void reset(final Map<K, Long> snapshot) {
+        counts.clear();
+        snapshot.forEach((key, count) -> merge(counts, key, count));
+    }
+
+    static <K> void merge(final Map<K, Long> counts, final K key, final long delta) {
+        counts.merge(key, delta, (current, added) -> current + added == 0 ? null : current + added);
+    }
+
+    static <K extends Comparable<? super K>> List<Ranked<K>> top(final Map<K, Long> counts, final int k) {
+        if (k < 1)
+            throw new IllegalArgumentException("k must be at least 1");
+        final Comparator<Ranked<K>> byRank = Comparator.<Ranked<K>>comparingLong(Ranked::count).reversed()
+                .thenComparing(Ranked::key);
+        // the head of the heap is the worst candidate so far, i.e. the first one to go
+        final PriorityQueue<Ranked<K>> candidates = new PriorityQueue<>(k + 1, byRank.reversed());
+        counts.forEach((key, count) -> {
+            if (count <= 0)
+                return;
+            candidates.add(new Ranked<>(key, count));
+            if (candidates.size() > k)
+                candidates.poll();
+        });
+        final List<Ranked<K>> ranked = new ArrayList<>(candidates);
+        ranked.sort(byRank);
+        return ranked;
+    }
+
+    public record Ranked<K>(K key, long count) {
+    }
+}
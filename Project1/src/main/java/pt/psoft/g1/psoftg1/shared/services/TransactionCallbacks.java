@@ -0,0 +1,109 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+public final class TransactionCallbacks {
+    private TransactionCallbacks() {
+    }
+
+    /**
+     * Runs {@code action} once the current transaction commits (and never if it rolls back), or right away if
+     * there is no transaction.
+     */
+    public static void afterCommit(final Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Runs {@code action} once the current transaction commits, with every value given under {@code key} during
+     * that transaction, or right away with just {@code value} if there is no transaction. A transaction writing
+     * many entities, such as a catalogue import chunk, then registers one callback rather than one per entity.
+     */
+    public static <T> void afterCommit(final Object key, final T value, final Consumer<List<T>> action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.accept(List.of(value));
+            return;
+        }
+        Collected.in(key, () -> new Collected<T>(key) {
+            @Override
+            public void afterCommit() {
+                action.accept(values);
+            }
+        }).values.add(value);
+    }
+
+    /**
+     * Runs {@code action} right away and again once the current transaction completes, unless it already did
+     * under {@code key} during that transaction, in which case the run once it completes covers this call too.
+     */
+    public static void nowAndAfterCompletion(final Object key, final Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(key))
+            return;
+        action.run();
+        Collected.in(key, () -> new Collected<Void>(key) {
+            @Override
+            public void afterCompletion(int status) {
+                super.afterCompletion(status);
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Values given under a key during a transaction, bound to it as a resource until it completes. Like Spring's
+     * own resource holders, it is unbound while the transaction is suspended, so an inner transaction has its own.
+     */
+    private abstract static class Collected<T> implements TransactionSynchronization {
+        private final Object key;
+        final List<T> values = new ArrayList<>();
+
+        Collected(final Object key) {
+            this.key = key;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T> Collected<T> in(final Object key, final Supplier<Collected<T>> create) {
+            Collected<T> collected = (Collected<T>) TransactionSynchronizationManager.getResource(key);
+            if (collected == null) {
+                collected = create.get();
+                TransactionSynchronizationManager.bindResource(key, collected);
+                TransactionSynchronizationManager.registerSynchronization(collected);
+            }
+            return collected;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(key);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(key, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(key);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import java.util.function.IntSupplier;
+
+public interface YearlySequenceService {
+    /**
+     * Returns the next value of a named, per-year sequence.
+     * <p>
+     * Values are unique across threads and application instances sharing the same database,
+     * but may have gaps (e.g. after a restart).
+     *
+     * @param name  name of the sequence (e.g. {@code "lending"})
+     * @param year  year the value belongs to
+     * @param floor supplies the highest value already in use for that year. It is only consulted when the
+     *              sequence is first used by this instance, to recover from rows created outside of it.
+     * @return the next sequential value
+     */
+    int next(String name, int year, IntSupplier floor);
+
+    /**
+     * Reserves {@code count} consecutive values of a named, per-year sequence at once.
+     *
+     * @param name  name of the sequence (e.g. {@code "lending"})
+     * @param year  year the values belong to
+     * @param count number of values to reserve
+     * @param floor same as in {@link #next(String, int, IntSupplier)}
+     * @return the first of the reserved values; the following {@code count - 1} values belong to the caller too
+     */
+    int nextBlock(String name, int year, int count, IntSupplier floor);
+
+    /**
+     * Marks a value as used, so the sequence never hands it out.
+     * <p>
+     * Meant for values assigned explicitly, such as bootstrapping data.
+     *
+     * @param name  name of the sequence
+     * @param year  year the value belongs to
+     * @param value value that is already in use
+     */
+    void advanceTo(String name, int year, int value);
+}
@@ -0,0 +1,123 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import pt.psoft.g1.psoftg1.shared.model.YearlySequence;
+import pt.psoft.g1.psoftg1.shared.repositories.YearlySequenceRepository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Hands out sequence values from blocks reserved in the database.
+ * <p>
+ * Each block is reserved in its own transaction, which locks the {@code YearlySequence} row and advances its
+ * high-water mark, so only one round-trip is paid every {@code sequenceBlockSize} values and concurrent
+ * instances always receive disjoint blocks.
+ */
+@Service
+@PropertySource({"classpath:config/library.properties"})
+public class YearlySequenceServiceImpl implements YearlySequenceService {
+    private final YearlySequenceRepository sequenceRepository;
+    private final TransactionTemplate newTransaction;
+    private final int blockSize;
+
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    public YearlySequenceServiceImpl(final YearlySequenceRepository sequenceRepository,
+                                     final PlatformTransactionManager transactionManager,
+                                     @Value("${sequenceBlockSize}") final int blockSize) {
+        if(blockSize < 1)
+            throw new IllegalArgumentException("Sequence block size must be at least 1");
+        this.sequenceRepository = sequenceRepository;
+        this.blockSize = blockSize;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public int next(final String name, final int year, final IntSupplier floor) {
+        final Block block = blocks.computeIfAbsent(name + "/" + year, k -> new Block());
+        synchronized (block) {
+            if (block.next > block.last) {
+                // the floor is only checked on the first block, to recover from rows created outside the sequence
+                final IntSupplier recoveryFloor = block.recovered ? () -> 0 : floor;
+                block.next = reserveBlock(name, year, blockSize, recoveryFloor);
+                block.last = block.next + blockSize - 1;
+                block.recovered = true;
+            }
+            return block.next++;
+        }
+    }
+
+    @Override
+    public int nextBlock(final String name, final int year, final int count, final IntSupplier floor) {
+        if(count < 1)
+            throw new IllegalArgumentException("Count must be at least 1");
+        final Block block = blocks.computeIfAbsent(name + "/" + year, k -> new Block());
+        synchronized (block) {
+            if (block.last - block.next + 1 >= count) {
+                final int first = block.next;
+                block.next += count;
+                return first;
+            }
+            // too large for what is left of the current block, so it gets a block of its own
+            final IntSupplier recoveryFloor = block.recovered ? () -> 0 : floor;
+            block.recovered = true;
+            return reserveBlock(name, year, count, recoveryFloor);
+        }
+    }
+
+    @Override
+    public void advanceTo(final String name, final int year, final int value) {
+        final Block block = blocks.computeIfAbsent(name + "/" + year, k -> new Block());
+        synchronized (block) {
+            inNewTransaction(() -> {
+                final YearlySequence sequence = findOrCreate(name, year);
+                sequence.advanceTo(value);
+                return sequenceRepository.save(sequence);
+            });
+            // the current block may overlap the value, so it is discarded and a new one is reserved on demand
+            if (block.next <= value) {
+                block.next = 1;
+                block.last = 0;
+            }
+        }
+    }
+
+    private int reserveBlock(final String name, final int year, final int size, final IntSupplier floor) {
+        return inNewTransaction(() -> {
+            final YearlySequence sequence = findOrCreate(name, year);
+            final int first = sequence.reserveBlock(size, floor.getAsInt());
+            sequenceRepository.save(sequence);
+            return first;
+        });
+    }
+
+    private YearlySequence findOrCreate(final String name, final int year) {
+        return sequenceRepository.findForUpdate(name, year)
+                .orElseGet(() -> new YearlySequence(name, year, 0));
+    }
+
+    private <T> T inNewTransaction(final Supplier<T> action) {
+        try {
+            return newTransaction.execute(status -> action.get());
+        } catch (DataIntegrityViolationException e) {
+            // another instance created the sequence row first, so it can now be locked
+            return newTransaction.execute(status -> action.get());
+        }
+    }
+
+    private static final class Block {
+        private int next = 1;
+        private int last = 0;
+        private boolean recovered = false;
+    }
+}
@@ -1,5 +1,6 @@
 package pt.psoft.g1.psoftg1.integrationTests.repository;
 
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,6 +15,7 @@ import pt.psoft.g1.psoftg1.bookmanagement.services.SearchBooksQuery;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PagedSlice;
 
 import java.util.List;
 import java.util.Optional;
@@ -21,6 +23,8 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static pt.psoft.g1.psoftg1.testutils.StatementCounter.countStatements;
 
 @Transactional
 @SpringBootTest
@@ -35,6 +39,9 @@ public class BookCustomRepoIntegrationTest {
     @Autowired
     private GenreRepository genreRepository;
 
+    @Autowired
+    private EntityManager entityManager;
+
     private Author author;
     private Genre genre;
     private Book book;
@@ -73,6 +80,28 @@ public class BookCustomRepoIntegrationTest {
         bookRepository.delete(savedBook);
     }
 
+    @Test
+    public void testBookListsLoadInOneStatement() {
+        final Author coAuthor = authorRepository.save(new Author("Maria Alberta Menéres", "Escritora portuguesa", null));
+        final Book otherBook = bookRepository.save(new Book("9780306406157", "Outro Livro", null, genre,
+                List.of(author, coAuthor), null));
+
+        assertEquals(1, countStatements(entityManager, () -> readAll(bookRepository.findBooksByAuthorNumber(author.getAuthorNumber()), 2)));
+        assertEquals(1, countStatements(entityManager, () -> readAll(bookRepository.findAllByIsbns(List.of(book.getIsbn(), otherBook.getIsbn())), 2)));
+    }
+
+    /**
+     * Touches everything a {@code BookView} is built from.
+     */
+    private static void readAll(List<Book> books, int expectedSize) {
+        assertEquals(expectedSize, books.size());
+        books.forEach(b -> {
+            assertNotNull(b.getGenre().getGenre());
+            b.getAuthors().forEach(a -> assertNotNull(a.getName()));
+            assertNull(b.getPhoto());
+        });
+    }
+
     @Test
     public void testFindByIsbn() {
         Optional<Book> foundBook = bookRepository.findByIsbn(book.getIsbn());
@@ -136,4 +165,18 @@ public class BookCustomRepoIntegrationTest {
         // In this case, we expect to find the initial book added in setup.
         assertThat(foundBooks).contains(book);
     }
+
+    @Test
+    public void testFindBooksMatchesAnyCriterion() {
+        Page page = new Page(1, 100);
+
+        PagedSlice<Book> byAuthor = bookRepository.findBooks(page, "No such title", null, "Manuel Antonio");
+        assertThat(byAuthor.getItems()).containsOnlyOnce(book);
+        assertEquals(byAuthor.getItems().size(), byAuthor.getTotal());
+
+        PagedSlice<Book> byTitleOrAuthor = bookRepository.findBooks(page, "Inspetor", "No such genre", "Manuel");
+        assertThat(byTitleOrAuthor.getItems()).containsOnlyOnce(book);
+
+        assertThat(bookRepository.findBooks(page, "", null, "").getItems()).isEmpty();
+    }
 }
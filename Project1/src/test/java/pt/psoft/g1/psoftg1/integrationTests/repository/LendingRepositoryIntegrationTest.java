@@ -1,5 +1,6 @@
 package pt.psoft.g1.psoftg1.integrationTests.repository;
 
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,17 +17,21 @@ import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.shared.services.KeysetCursor;
+import pt.psoft.g1.psoftg1.shared.services.KeysetSlice;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
 import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
 
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
+import static pt.psoft.g1.psoftg1.testutils.StatementCounter.countStatements;
 
 @Transactional
 @SpringBootTest
@@ -44,6 +49,8 @@ public class LendingRepositoryIntegrationTest {
     private GenreRepository genreRepository;
     @Autowired
     private AuthorRepository authorRepository;
+    @Autowired
+    private EntityManager entityManager;
 
     private Lending lending;
     private ReaderDetails readerDetails;
@@ -148,6 +155,23 @@ public class LendingRepositoryIntegrationTest {
         assertThat(count).isEqualTo(2);
     }
 
+    @Test
+    public void testGetMaxSequentialFromYear() {
+        int year = LocalDate.now().getYear();
+        assertThat(lendingRepository.getMaxSequentialFromYear(year)).isEqualTo(999);
+        var lending2 = Lending.newBootstrappingLending(book,
+                readerDetails,
+                year,
+                1000,
+                LocalDate.of(year, 1,1),
+                null,
+                15,
+                300);
+        lendingRepository.save(lending2);
+        assertThat(lendingRepository.getMaxSequentialFromYear(year)).isEqualTo(1000);
+        assertThat(lendingRepository.getMaxSequentialFromYear(1990)).isZero();
+    }
+
     @Test
     public void testListOutstandingByReaderNumber() {
         var lending2 = Lending.newBootstrappingLending(book,
@@ -228,4 +252,117 @@ public class LendingRepositoryIntegrationTest {
         assertThat(overdueLendings).contains(notReturnedLending);
         assertThat(overdueLendings).doesNotContain(notReturnedAndNotOverdueLending);
     }
+
+    @Test
+    public void testGetOverdueByCursor() {
+        var returnedLateLending = lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                2024,
+                998,
+                LocalDate.of(2024, 1,1),
+                LocalDate.of(2024, 2,1),
+                15,
+                300));
+        var notReturnedLending = lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                2024,
+                997,
+                LocalDate.of(2024, 3,1),
+                null,
+                15,
+                300));
+        var sameLimitDateLending = lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                2024,
+                996,
+                LocalDate.of(2024, 3,1),
+                null,
+                15,
+                300));
+
+        List<Lending> overdueLendings = new ArrayList<>();
+        KeysetCursor cursor = null;
+        do {
+            KeysetSlice<Lending> slice = lendingRepository.getOverdue(cursor, 2);
+            assertThat(slice.getItems()).hasSizeLessThanOrEqualTo(2);
+            overdueLendings.addAll(slice.getItems());
+            cursor = KeysetCursor.decode(slice.getNext());
+        } while (cursor != null);
+
+        assertThat(overdueLendings).contains(notReturnedLending, sameLimitDateLending);
+        assertThat(overdueLendings).doesNotContain(returnedLateLending);
+        assertThat(overdueLendings).doesNotHaveDuplicates();
+        assertThat(overdueLendings).extracting(Lending::getLimitDate).isSorted();
+    }
+
+    @Test
+    public void testSearchLendingsByCursor() {
+        var lending2 = lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                2024,
+                998,
+                LocalDate.of(2024, 1,1),
+                null,
+                15,
+                300));
+        var lending3 = lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                2024,
+                997,
+                LocalDate.of(2024, 3,1),
+                null,
+                15,
+                300));
+
+        KeysetSlice<Lending> first = lendingRepository.searchLendings(null, 2, null, book.getIsbn(), null, null, null);
+        assertThat(first.getItems()).containsExactly(lending3, lending2);
+        assertThat(first.getNext()).isNotNull();
+
+        KeysetSlice<Lending> second = lendingRepository.searchLendings(KeysetCursor.decode(first.getNext()), 2, null, book.getIsbn(), null, null, null);
+        assertThat(second.getItems()).containsExactly(lending);
+        assertThat(second.getNext()).isNull();
+    }
+
+    @Test
+    public void testLendingListsLoadInOneStatement() {
+        final Book otherBook = bookRepository.save(new Book("9780306406157", "Outro Livro", null, genre, List.of(author), null));
+        final Reader otherReader = userRepository.save(Reader.newReader("maria@gmail.com", "Mariazinha123!", "Maria Sarapinto"));
+        final ReaderDetails otherReaderDetails = readerRepository.save(new ReaderDetails(2, otherReader, "2000-01-01",
+                "919191918", true, true, true, null, null));
+        lendingRepository.save(Lending.newBootstrappingLending(otherBook, otherReaderDetails, 2024, 998,
+                LocalDate.of(2024, 1, 1), null, 15, 300));
+
+        assertEquals(1, countStatements(entityManager, () -> readAll(
+                lendingRepository.searchLendings(new Page(1, 10), null, null, null, null, null))));
+        assertEquals(1, countStatements(entityManager, () -> readAll(
+                lendingRepository.searchLendings(null, 10, null, null, null, null, null).getItems())));
+        assertEquals(1, countStatements(entityManager, () -> readAll(
+                lendingRepository.listByReaderNumberAndIsbn(readerDetails.getReaderNumber(), book.getIsbn()))));
+    }
+
+    /**
+     * Touches everything a {@code LendingView} is built from.
+     */
+    private static void readAll(List<Lending> lendings) {
+        assertThat(lendings).isNotEmpty();
+        lendings.forEach(l -> {
+            assertNotNull(l.getTitle());
+            assertNotNull(l.getBook().getGenre().getGenre());
+            assertNotNull(l.getReaderDetails().getReader().getUsername());
+        });
+    }
+
+    @Test
+    public void testListSuggestionsForReaderSkipsBorrowedBooks() {
+        readerDetails.setInterestList(new ArrayList<>(List.of(genre)));
+        readerRepository.save(readerDetails);
+        for (String[] isbnAndTitle : new String[][] {
+                {"9780306406157", "C"}, {"9789720706386", "A"}, {"9789723716160", "B"}}) {
+            bookRepository.save(new Book(isbnAndTitle[0], isbnAndTitle[1], null, genre, List.of(author), null));
+        }
+
+        // the reader already borrowed "O Inspetor Max", and only the first two remaining titles are kept
+        assertEquals(List.of("9789720706386", "9789723716160"),
+                bookRepository.listSuggestionsForReader(readerDetails.getReaderNumber(), 2));
+    }
 }
@@ -0,0 +1,75 @@
+package pt.psoft.g1.psoftg1.integrationTests.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.configuration.JpaConfig;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@Import(JpaConfig.class)
+public class PhotoRepositoryIntegrationTest {
+    private static final String PHOTO_FILE =
+            "0000000000000000000000000000000000000000000000000000000000000000.png";
+    private static final String READER_PHOTO_FILE =
+            "1111111111111111111111111111111111111111111111111111111111111111.png";
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Test
+    public void whenPhotoFileIsShared_thenOnlyUnreferencedPhotosAreDeleted() {
+        // given
+        Author alex = entityManager.persist(new Author("Alex", "O Alex escreveu livros", PHOTO_FILE));
+        Author maria = entityManager.persist(new Author("Maria", "A Maria escreveu livros", PHOTO_FILE));
+        entityManager.flush();
+        assertThat(photoRepository.countReferences(PHOTO_FILE)).isEqualTo(2);
+
+        // when
+        alex.removePhoto(alex.getVersion());
+        entityManager.flush();
+        photoRepository.deleteByPhotoFile(PHOTO_FILE);
+        entityManager.clear();
+
+        // then
+        assertThat(photoRepository.countReferences(PHOTO_FILE)).isEqualTo(1);
+        assertThat(entityManager.find(Author.class, maria.getAuthorNumber()).getPhoto().getPhotoFile())
+                .isEqualTo(PHOTO_FILE);
+
+        // when
+        Author reloaded = entityManager.find(Author.class, maria.getAuthorNumber());
+        reloaded.removePhoto(reloaded.getVersion());
+        entityManager.flush();
+        photoRepository.deleteByPhotoFile(PHOTO_FILE);
+
+        // then
+        assertThat(photoRepository.countReferences(PHOTO_FILE)).isZero();
+    }
+
+    @Test
+    public void whenPhotoFileIsOnlyAReaderPhoto_thenItIsNotCatalogued() {
+        // given
+        Reader reader = entityManager.persist(Reader.newReader("manuel@gmail.com", "Manuelino123!", "Manuel"));
+        entityManager.persist(new ReaderDetails(1, reader, "2000-01-01", "919191919", true, true, true,
+                READER_PHOTO_FILE, null));
+        entityManager.persist(new Author("Alex", "O Alex escreveu livros", PHOTO_FILE));
+        entityManager.flush();
+
+        // then
+        assertThat(photoRepository.countReferences(READER_PHOTO_FILE)).isEqualTo(1);
+        assertThat(photoRepository.countCatalogueReferences(READER_PHOTO_FILE)).isZero();
+        assertThat(photoRepository.countCatalogueReferences(PHOTO_FILE)).isEqualTo(1);
+    }
+}
@@ -13,6 +13,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import pt.psoft.g1.psoftg1.authormanagement.api.AuthorLendingView;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorBookGraph;
 import pt.psoft.g1.psoftg1.authormanagement.services.AuthorService;
 import pt.psoft.g1.psoftg1.authormanagement.services.CreateAuthorRequest;
 import pt.psoft.g1.psoftg1.authormanagement.services.UpdateAuthorRequest;
@@ -50,6 +51,9 @@ public class AuthorServiceImplIntegrationTest {
     private BookRepository bookRepository;
     @MockBean
     private PhotoRepository photoRepository;
+    // left unloaded, so the queries go to the mocked repositories
+    @MockBean
+    private AuthorBookGraph authorBookGraph;
 
     private Author author;
 
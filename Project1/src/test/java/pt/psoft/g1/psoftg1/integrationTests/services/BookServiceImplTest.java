@@ -13,16 +13,19 @@ import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import pt.psoft.g1.psoftg1.bookmanagement.services.*;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
+import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
 import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.PagedSlice;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.ArgumentMatchers.any;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(SpringExtension.class)
@@ -39,6 +42,10 @@ public class BookServiceImplTest {
     private GenreRepository genreRepository;
     @MockBean
     private AuthorRepository authorRepository;
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+    @Autowired
+    private IsbnFilter isbnFilter;
     private Book book;
     private Author author;
     private Genre genre;
@@ -54,6 +61,10 @@ public class BookServiceImplTest {
         when(bookRepository.findByIsbn("9782826012092")).thenReturn(Optional.of(book));
         when(genreRepository.findByString("Fiction")).thenReturn(Optional.of(genre));
         when(authorRepository.findByAuthorNumber(1L)).thenReturn(Optional.of(author));
+        when(bookRepository.findAllByIsbns(List.of("9782826012092"))).thenReturn(List.of(book));
+
+        bookSearchIndex.rebuild(List.of(new BookSearchTermsDTO("9782826012092", "Book Title", "Fiction", "Author Name")));
+        isbnFilter.rebuild(List.of("9782826012092"));
     }
 
     @Test
@@ -64,35 +75,45 @@ public class BookServiceImplTest {
         assertThrows(ConflictException.class, () -> bookService.create(request, "9782826012092"));
     }
 
+    @Test
+    public void testCreateBookSkipsLookupForIsbnKnownToBeAbsent() {
+        CreateBookRequest request = new CreateBookRequest();
+        request.setAuthors(List.of());
+        request.setGenre("Unknown");
+
+        // the genre is looked up after the conflict check, so the create stops there
+        assertThrows(NotFoundException.class, () -> bookService.create(request, "9780306406157"));
+        verify(bookRepository, never()).findByIsbn("9780306406157");
+    }
+
 
     @Test
     public void testFindByGenre() {
-        when(bookRepository.findByGenre("Fiction")).thenReturn(List.of(book));
-
-        List<Book> books = bookService.findByGenre("Fiction");
+        List<Book> books = bookService.findByGenre("icti");
 
         assertEquals(1, books.size());
         assertEquals("Fiction", books.get(0).getGenre().toString());
+        assertTrue(bookService.findByGenre("Fantasy").isEmpty());
     }
 
     @Test
     public void testFindByTitle() {
-        when(bookRepository.findByTitle("Book Title")).thenReturn(List.of(book));
-
-        List<Book> books = bookService.findByTitle("Book Title");
+        List<Book> books = bookService.findByTitle("Title");
 
         assertEquals(1, books.size());
         assertEquals("Book Title", books.get(0).getTitle().toString());
+        // matching is case-sensitive, like the LIKE query it replaces
+        assertTrue(bookService.findByTitle("title").isEmpty());
     }
 
     @Test
     public void testFindByAuthorName() {
-        when(bookRepository.findByAuthorName("Author%")).thenReturn(List.of(book));
-
         List<Book> books = bookService.findByAuthorName("Author");
 
         assertEquals(1, books.size());
         assertEquals("Author Name", books.get(0).getAuthors().get(0).getName());
+        // author names are matched by prefix
+        assertTrue(bookService.findByAuthorName("Name").isEmpty());
     }
 
     @Test
@@ -104,12 +125,42 @@ public class BookServiceImplTest {
     @Test
     public void testSearchBooks() {
         Page page = new Page(1, 10);
-        SearchBooksQuery query = new SearchBooksQuery("Title", "Author", "Genre");
-        when(bookRepository.searchBooks(any(Page.class), any(SearchBooksQuery.class))).thenReturn(List.of(book));
+        SearchBooksQuery query = new SearchBooksQuery("Book", "Fic", "Auth");
 
         List<Book> result = bookService.searchBooks(page, query);
 
         assertEquals(1, result.size());
         assertEquals("Book Title", result.get(0).getTitle().toString());
+        assertTrue(bookService.searchBooks(page, new SearchBooksQuery("Book", "Drama", "")).isEmpty());
+        assertTrue(bookService.searchBooks(new Page(2, 10), query).isEmpty());
+    }
+
+    @Test
+    public void testFindBooksMatchesAnyCriterionOnce() {
+        Book other = new Book("9780306406157", "Another Title", "Description", new Genre("Drama"), List.of(author), null);
+        bookSearchIndex.rebuild(List.of(
+                new BookSearchTermsDTO("9782826012092", "Book Title", "Fiction", "Author Name"),
+                new BookSearchTermsDTO("9780306406157", "Another Title", "Drama", "Author Name")));
+        when(bookRepository.findAllByIsbns(List.of("9780306406157"))).thenReturn(List.of(other));
+
+        // both books match the author name and the title, yet each one is counted once
+        PagedSlice<Book> first = bookService.findBooks("Title", "Fict", "Auth", new Page(1, 1));
+
+        assertEquals(2, first.getTotal());
+        assertEquals(1, first.getItems().size());
+        assertEquals("Another Title", first.getItems().get(0).getTitle().toString());
+        assertEquals("Book Title", bookService.findBooks("Title", null, null, new Page(2, 1)).getItems().get(0).getTitle().toString());
+        assertEquals(0, bookService.findBooks("Poetry", "", null, new Page(1, 10)).getTotal());
+        assertThrows(IllegalArgumentException.class, () -> bookService.findBooks("Title", null, null, new Page(1, 101)));
+    }
+
+    @Test
+    public void testFindAllByIsbnsQueriesDistinctIsbnsOnce() {
+        assertEquals(List.of(book), bookService.findAllByIsbns(List.of("9782826012092", "9782826012092")));
+        verify(bookRepository, times(1)).findAllByIsbns(List.of("9782826012092"));
+
+        assertThrows(IllegalArgumentException.class, () -> bookService.findAllByIsbns(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> bookService.findAllByIsbns(
+                IntStream.range(0, 101).mapToObj(String::valueOf).toList()));
     }
 }
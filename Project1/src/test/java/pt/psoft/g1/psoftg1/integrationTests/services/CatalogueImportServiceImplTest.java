@@ -0,0 +1,113 @@
+package pt.psoft.g1.psoftg1.integrationTests.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.model.CatalogueImport;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.CatalogueImportRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.CatalogueImportReport;
+import pt.psoft.g1.psoftg1.bookmanagement.services.CatalogueImportService;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The test transaction is joined by the import's own transactions, so everything it writes is rolled back.
+ */
+@Transactional
+@SpringBootTest
+public class CatalogueImportServiceImplTest {
+    @Autowired
+    private CatalogueImportService catalogueImportService;
+    @Autowired
+    private CatalogueImportRepository catalogueImportRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+    @Autowired
+    private GenreRepository genreRepository;
+
+    private Author author;
+
+    @BeforeEach
+    public void setUp() {
+        author = authorRepository.save(new Author("Manuel Antonio Pina", "Jornalista e escritor português", null));
+        genreRepository.save(new Genre("Catalogue"));
+    }
+
+    private MockMultipartFile csv(String... rows) {
+        return new MockMultipartFile("file", "catalogue.csv", "text/csv",
+                String.join("\n", rows).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testImportCsvRejectsInvalidRowsOnly() {
+        final long authorNumber = author.getAuthorNumber();
+        final CatalogueImportReport report = catalogueImportService.importCatalogue(csv(
+                "isbn,title,genre,description,authors",
+                "9782826012092,\"O Inspetor Max, o regresso\",Catalogue,,\"" + authorNumber + "\"",
+                "9782826012093,Bad check digit,Catalogue,," + authorNumber,
+                "",
+                "9780306406157,Unknown genre,Nope,," + authorNumber,
+                "9780306406157,Unknown author,Catalogue,,999999",
+                "9782826012092,Repeated,Catalogue,," + authorNumber));
+
+        assertEquals(1, report.getImported());
+        assertEquals(4, report.getRejected());
+        assertTrue(report.isFinished());
+        assertThat(report.getErrors()).hasSize(4);
+        assertThat(report.getErrors().get(0)).startsWith("line 3: ");
+        assertThat(report.getErrors().get(1)).startsWith("line 5: ");
+        assertEquals("O Inspetor Max, o regresso",
+                bookRepository.findByIsbn("9782826012092").orElseThrow().getTitle().toString());
+    }
+
+    @Test
+    public void testImportResumesAfterCheckpoint() throws Exception {
+        final long authorNumber = author.getAuthorNumber();
+        final MockMultipartFile file = new MockMultipartFile("file", "catalogue.ndjson", "application/x-ndjson", String.join("\n",
+                "{\"isbn\":\"9782826012092\",\"title\":\"First\",\"genre\":\"Catalogue\",\"authors\":[" + authorNumber + "]}",
+                "{\"isbn\":\"9780306406157\",\"title\":\"Second\",\"genre\":\"Catalogue\",\"authors\":[" + authorNumber + "]}")
+                .getBytes(StandardCharsets.UTF_8));
+
+        // an earlier run stored the first line and was interrupted
+        final CatalogueImport interrupted = new CatalogueImport(
+                HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(file.getBytes())));
+        interrupted.advance(1, 1, 0);
+        catalogueImportRepository.save(interrupted);
+
+        final CatalogueImportReport report = catalogueImportService.importCatalogue(file);
+
+        assertEquals(1, report.getResumedAfterLine());
+        assertEquals(2, report.getImported());
+        assertTrue(bookRepository.findByIsbn("9782826012092").isEmpty());
+        assertTrue(bookRepository.findByIsbn("9780306406157").isPresent());
+
+        final CatalogueImportReport again = catalogueImportService.importCatalogue(file);
+        assertEquals(2, again.getResumedAfterLine());
+        assertEquals(2, again.getImported());
+        assertEquals(List.of(), again.getErrors());
+    }
+
+    @Test
+    public void testImportRejectsUnknownFormatsAndHeaders() {
+        assertThrows(IllegalArgumentException.class, () -> catalogueImportService.importCatalogue(
+                new MockMultipartFile("file", "catalogue.xml", "application/xml", new byte[0])));
+        assertThrows(IllegalArgumentException.class, () -> catalogueImportService.importCatalogue(
+                csv("isbn,title,genre", "9782826012092,Title,Catalogue")));
+    }
+}
@@ -0,0 +1,120 @@
+package pt.psoft.g1.psoftg1.integrationTests.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsDTO;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsPerMonthDTO;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreService;
+import pt.psoft.g1.psoftg1.genremanagement.services.GetAverageLendingsQuery;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.CreateLendingRequest;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingService;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.SetLendingReturnedRequest;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
+import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Transactional
+@SpringBootTest
+class GenreServiceImplTest {
+    @Autowired
+    private GenreService genreService;
+    @Autowired
+    private LendingService lendingService;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private GenreRepository genreRepository;
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    private ReaderDetails readerDetails;
+    private Reader reader;
+    private Book book;
+    private Author author;
+    private Genre genre;
+
+    @BeforeEach
+    void setUp() {
+        author = authorRepository.save(new Author("Manuel Antonio Pina", "Manuel António Pina foi um jornalista e escritor português", null));
+        genre = genreRepository.save(new Genre("Género de Teste"));
+        book = bookRepository.save(new Book("9782826012092", "O Inspetor Max", "conhecido pastor-alemão", genre, List.of(author), null));
+        reader = Reader.newReader("manuel@gmail.com", "Manuelino123!", "Manuel Sarapinto das Coives");
+        userRepository.save(reader);
+        readerDetails = readerRepository.save(new ReaderDetails(1, reader, "2000-01-01", "919191919", true, true, true, null, null));
+
+        var lending = lendingService.create(new CreateLendingRequest(book.getIsbn(), readerDetails.getReaderNumber()));
+        lendingService.create(new CreateLendingRequest(book.getIsbn(), readerDetails.getReaderNumber()));
+        lendingService.setReturned(lending.getLendingNumber(), new SetLendingReturnedRequest(null), lending.getVersion());
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.delete(book);
+        genreRepository.delete(genre);
+        authorRepository.delete(author);
+    }
+
+    @Test
+    void testGetLendingsPerMonthLastYearByGenre() {
+        assertThat(lendingsThisMonth()).isEqualTo(2L);
+    }
+
+    @Test
+    void testLendingEvictsCachedMonth() {
+        assertThat(lendingsThisMonth()).isEqualTo(2L);
+
+        lendingService.create(new CreateLendingRequest(book.getIsbn(), readerDetails.getReaderNumber()));
+
+        assertThat(lendingsThisMonth()).isEqualTo(3L);
+    }
+
+    @Test
+    void testGetAverageLendings() {
+        LocalDate today = LocalDate.now();
+        List<GenreLendingsDTO> values = genreService.getAverageLendings(
+                new GetAverageLendingsQuery(today.getYear(), today.getMonthValue()), new Page(1, 100));
+        double expected = Double.parseDouble(String.format(java.util.Locale.US, "%.1f", 2.0 / today.lengthOfMonth()));
+        assertThat(values).contains(new GenreLendingsDTO(genre.getGenre(), expected));
+    }
+
+    @Test
+    void testGetLendingsAverageDurationPerMonth() {
+        LocalDate today = LocalDate.now();
+        List<GenreLendingsPerMonthDTO> months = genreService.getLendingsAverageDurationPerMonth(
+                today.withDayOfMonth(1).toString(), today.toString());
+        assertThat(months).flatExtracting(GenreLendingsPerMonthDTO::getValues)
+                .contains(new GenreLendingsDTO(genre.getGenre(), 0.0));
+    }
+
+    private Number lendingsThisMonth() {
+        LocalDate today = LocalDate.now();
+        List<GenreLendingsDTO> values = genreService.getLendingsPerMonthLastYearByGenre().stream()
+                .filter(month -> month.getYear() == today.getYear() && month.getMonth() == today.getMonthValue())
+                .flatMap(month -> month.getValues().stream())
+                .filter(value -> value.getGenre().equals(genre.getGenre()))
+                .toList();
+        assertThat(values).hasSize(1);
+        return values.get(0).getValue();
+    }
+}
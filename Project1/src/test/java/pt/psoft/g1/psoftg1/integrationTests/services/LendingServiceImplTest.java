@@ -14,13 +14,23 @@ import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
 import pt.psoft.g1.psoftg1.exceptions.LendingForbiddenException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
 import pt.psoft.g1.psoftg1.genremanagement.repositories.GenreRepository;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsDTO;
 import pt.psoft.g1.psoftg1.lendingmanagement.model.Lending;
 import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRepository;
+import pt.psoft.g1.psoftg1.lendingmanagement.repositories.LendingRollupRepository;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.CreateLendingRequest;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingBatchResult;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFactStore;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingLeaderboards;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingLeaderboardsReconciliation;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingRollups;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingService;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.ReturnLendingRequest;
 import pt.psoft.g1.psoftg1.lendingmanagement.services.SetLendingReturnedRequest;
 import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
 import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.shared.services.Page;
+import pt.psoft.g1.psoftg1.shared.services.TopKCounter;
 import pt.psoft.g1.psoftg1.usermanagement.model.Reader;
 import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
 
@@ -28,6 +38,7 @@ import java.time.LocalDate;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -39,6 +50,16 @@ class LendingServiceImplTest {
     @Autowired
     private LendingRepository lendingRepository;
     @Autowired
+    private LendingLeaderboards lendingLeaderboards;
+    @Autowired
+    private LendingLeaderboardsReconciliation lendingLeaderboardsReconciliation;
+    @Autowired
+    private LendingFactStore lendingFactStore;
+    @Autowired
+    private LendingRollups lendingRollups;
+    @Autowired
+    private LendingRollupRepository lendingRollupRepository;
+    @Autowired
     private ReaderRepository readerRepository;
     @Autowired
     private UserRepository userRepository;
@@ -151,6 +172,64 @@ class LendingServiceImplTest {
 
     }
 
+    @Test
+    void testCreateAfterReturn() {
+        var request = new CreateLendingRequest("9782826012092",
+                LocalDate.now().getYear() + "/1");
+        var lending1 = lendingService.create(request);
+        lendingService.create(request);
+        lendingService.create(request);
+        assertThrows(LendingForbiddenException.class, () -> lendingService.create(request));
+
+        lendingService.setReturned(lending1.getLendingNumber(), new SetLendingReturnedRequest(null), lending1.getVersion());
+
+        assertThat(lendingService.create(request)).isNotNull();
+    }
+
+    @Test
+    void testCreateAll() {
+        String readerNumber = readerDetails.getReaderNumber();
+        var results = lendingService.createAll(List.of(
+                new CreateLendingRequest("9782826012092", readerNumber),
+                new CreateLendingRequest("9999999999", readerNumber),
+                new CreateLendingRequest("9782826012092", readerNumber),
+                new CreateLendingRequest("9782826012092", readerNumber),
+                new CreateLendingRequest("9782826012092", readerNumber)));
+
+        assertThat(results).extracting(LendingBatchResult::getOutcome).containsExactly(
+                LendingBatchResult.Outcome.CREATED,
+                LendingBatchResult.Outcome.NOT_FOUND,
+                LendingBatchResult.Outcome.CREATED,
+                LendingBatchResult.Outcome.CREATED,
+                LendingBatchResult.Outcome.FORBIDDEN);
+        assertThat(results).filteredOn(LendingBatchResult::isSuccess)
+                .extracting(result -> result.getLending().getLendingNumber())
+                .doesNotHaveDuplicates()
+                .allSatisfy(lendingNumber -> assertThat(lendingService.findByLendingNumber(lendingNumber)).isPresent());
+        assertThrows(LendingForbiddenException.class,
+                () -> lendingService.create(new CreateLendingRequest("9782826012092", readerNumber)));
+    }
+
+    @Test
+    void testSetReturnedAll() {
+        var lending1 = lendingService.create(new CreateLendingRequest("9782826012092", readerDetails.getReaderNumber()));
+        var lending2 = lendingService.create(new CreateLendingRequest("9782826012092", readerDetails.getReaderNumber()));
+
+        var results = lendingService.setReturnedAll(List.of(
+                new ReturnLendingRequest(lending1.getLendingNumber(), lending1.getVersion(), "ok"),
+                new ReturnLendingRequest(lending2.getLendingNumber(), lending2.getVersion() + 1, null),
+                new ReturnLendingRequest(lending.getLendingNumber(), lending.getVersion(), null),
+                new ReturnLendingRequest("2024/123456", 0L, null)));
+
+        assertThat(results).extracting(LendingBatchResult::getOutcome).containsExactly(
+                LendingBatchResult.Outcome.RETURNED,
+                LendingBatchResult.Outcome.CONFLICT,
+                LendingBatchResult.Outcome.INVALID,
+                LendingBatchResult.Outcome.NOT_FOUND);
+        assertThat(results.get(0).getLending().getReturnedDate()).isNotNull();
+        assertThat(lendingService.findByLendingNumber(lending2.getLendingNumber()).orElseThrow().getReturnedDate()).isNull();
+    }
+
     @Test
     void testSetReturned() {
         int year = 2024, seq = 888;
@@ -169,14 +248,105 @@ class LendingServiceImplTest {
         assertDoesNotThrow(
                 () -> lendingService.setReturned(year + "/" + seq, request, notReturnedLending.getVersion()));
     }
-/*
+
     @Test
-    void testGetAverageDuration() {
+    void testGetAvgLendingDurationByIsbn() {
+        var created = lendingService.create(new CreateLendingRequest("9782826012092", readerDetails.getReaderNumber()));
+        lendingService.setReturned(created.getLendingNumber(), new SetLendingReturnedRequest(null), created.getVersion());
+        // returned on the day it started, averaged with the 10 days of the lending written in setUp
+        assertThat(lendingService.getAvgLendingDurationByIsbn(book.getIsbn())).isEqualTo(5.0);
+
+        lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                2024,
+                888,
+                LocalDate.of(2024, 3,1),
+                LocalDate.of(2024, 3,21),
+                15,
+                300));
+        assertThat(lendingService.getAvgLendingDurationByIsbn(book.getIsbn()))
+                .isEqualTo(lendingRepository.getAvgLendingDurationByIsbn(book.getIsbn()), within(0.05));
+        assertThat(lendingService.getAverageDuration())
+                .isEqualTo(lendingRepository.getAverageDuration(), within(0.05));
     }
 
     @Test
     void testGetOverdue() {
+        var overdueLending = lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                2024,
+                888,
+                LocalDate.of(2024, 3,1),
+                null,
+                15,
+                300));
+        var notOverdueLending = lendingRepository.save(Lending.newBootstrappingLending(book,
+                readerDetails,
+                2024,
+                887,
+                LocalDate.now(),
+                null,
+                15,
+                300));
+
+        List<Lending> overdueLendings = lendingService.getOverdue(new Page(1, 1000));
+        assertThat(overdueLendings).contains(overdueLending);
+        assertThat(overdueLendings).doesNotContain(lending, notOverdueLending);
+        assertThat(overdueLendings).extracting(Lending::getLimitDate).isSorted();
+
+        // Business rule: the overdue lending blocks checkouts until it is returned
+        var request = new CreateLendingRequest("9782826012092", readerDetails.getReaderNumber());
+        assertThrows(LendingForbiddenException.class, () -> lendingService.create(request));
+
+        lendingService.setReturned(overdueLending.getLendingNumber(), new SetLendingReturnedRequest(null), overdueLending.getVersion());
+        assertThat(lendingService.getOverdue(new Page(1, 1000))).doesNotContain(overdueLending);
+        assertThat(lendingService.create(request)).isNotNull();
     }
 
- */
+    @Test
+    void testLeaderboardsCountCommittedLendings() {
+        final LocalDate today = LocalDate.now();
+        final LocalDate startOfYear = LocalDate.of(today.getYear(), 1, 1);
+        lendingService.create(new CreateLendingRequest(book.getIsbn(), readerDetails.getReaderNumber()));
+
+        // lendings are only counted once their transaction commits
+        assertThat(lendingLeaderboards.topReadersByGenre(genre.getGenre(), startOfYear, today, 5)).isEmpty();
+
+        lendingLeaderboardsReconciliation.reconcile();
+        assertThat(lendingLeaderboards.topReadersByGenre(genre.getGenre(), startOfYear, today, 5))
+                .containsExactly(new TopKCounter.Ranked<>(readerDetails.getReaderNumber(), 2L));
+        assertThat(lendingLeaderboards.topReadersByGenre(genre.getGenre(), today.plusDays(1), today.plusDays(1), 5))
+                .isEmpty();
+        assertThat(lendingLeaderboards.topAuthors(1000))
+                .contains(new TopKCounter.Ranked<>(author.getName(), 2L));
+    }
+
+    @Test
+    void testRollupsMatchFactStoreAfterStartup() {
+        // the lending written in setUp bypasses the service, like bootstrapping does
+        lendingRollups.created(lending);
+        lendingRollups.returned(lending);
+        assertThat(lendingFactStore.isLoaded()).isTrue();
+
+        var created = lendingService.create(new CreateLendingRequest(book.getIsbn(), readerDetails.getReaderNumber()));
+        lendingService.create(new CreateLendingRequest(book.getIsbn(), readerDetails.getReaderNumber()));
+        lendingService.setReturned(created.getLendingNumber(), new SetLendingReturnedRequest(null), created.getVersion());
+
+        assertThat(lendingRollupRepository.getAvgLendingDurationByIsbn(book.getIsbn()))
+                .isEqualTo(lendingFactStore.getAvgLendingDurationByIsbn(book.getIsbn()), within(0.05));
+        final LocalDate startOfYear = LocalDate.of(LocalDate.now().getYear(), 1, 1);
+        assertThat(valueOf(genreRepository.getLendingCountsByGenre(startOfYear, LocalDate.now())))
+                .isEqualTo(valueOf(lendingFactStore.getLendingCountsByGenre(startOfYear, LocalDate.now())))
+                .isEqualTo(3.0);
+        assertThat(valueOf(genreRepository.getLendingsAverageDurationByGenre(startOfYear, LocalDate.now())))
+                .isEqualTo(valueOf(lendingFactStore.getLendingsAverageDurationByGenre(startOfYear, LocalDate.now())), within(0.05));
+    }
+
+    private double valueOf(List<GenreLendingsDTO> report) {
+        return report.stream()
+                .filter(row -> row.getGenre().equals(genre.getGenre()))
+                .mapToDouble(row -> row.getValue().doubleValue())
+                .findFirst()
+                .orElseThrow();
+    }
 }
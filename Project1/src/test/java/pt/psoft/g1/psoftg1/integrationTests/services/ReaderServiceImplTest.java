@@ -0,0 +1,85 @@
+package pt.psoft.g1.psoftg1.integrationTests.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import pt.psoft.g1.psoftg1.readermanagement.model.ReaderDetails;
+import pt.psoft.g1.psoftg1.readermanagement.repositories.ReaderRepository;
+import pt.psoft.g1.psoftg1.readermanagement.services.CreateReaderRequest;
+import pt.psoft.g1.psoftg1.readermanagement.services.ReaderService;
+import pt.psoft.g1.psoftg1.usermanagement.repositories.UserRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// small blocks, so that the threads keep competing to reserve the next one
+@SpringBootTest(properties = "sequenceBlockSize=2")
+class ReaderServiceImplTest {
+    @Autowired
+    private ReaderService readerService;
+    @Autowired
+    private ReaderRepository readerRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private final Queue<ReaderDetails> createdReaders = new ConcurrentLinkedQueue<>();
+
+    @AfterEach
+    void tearDown() {
+        for (ReaderDetails readerDetails : createdReaders) {
+            readerRepository.delete(readerDetails);
+            userRepository.delete(readerDetails.getReader());
+        }
+        createdReaders.clear();
+    }
+
+    @Test
+    void testCreateAssignsUniqueReaderNumbersConcurrently() throws Exception {
+        // enough readers for hundreds of sequence blocks to be reserved concurrently
+        final int threads = 16;
+        final int readers = 1000;
+        final int year = LocalDate.now().getYear();
+        final int floor = readerRepository.getMaxSequentialFromYear(year);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < readers; i++) {
+                final CreateReaderRequest request = newRequest("concurrent" + i + "@gmail.com");
+                futures.add(executor.submit(() -> createdReaders.add(readerService.create(request, null))));
+            }
+            for (Future<?> f : futures) {
+                f.get(5, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(createdReaders).hasSize(readers);
+        assertThat(createdReaders.stream().map(ReaderDetails::getReaderNumber).distinct().count())
+                .isEqualTo(readers);
+        assertThat(createdReaders).allSatisfy(readerDetails -> assertThat(sequential(readerDetails))
+                .isGreaterThan(floor));
+    }
+
+    private static int sequential(ReaderDetails readerDetails) {
+        final String readerNumber = readerDetails.getReaderNumber();
+        return Integer.parseInt(readerNumber.substring(readerNumber.indexOf('/') + 1));
+    }
+
+    private static CreateReaderRequest newRequest(String username) {
+        CreateReaderRequest request = new CreateReaderRequest();
+        request.setUsername(username);
+        request.setPassword("Password123!");
+        request.setFullName("Concurrent Reader");
+        request.setBirthDate("2000-01-01");
+        request.setPhoneNumber("919191919");
+        request.setGdpr(true);
+        return request;
+    }
+}
@@ -0,0 +1,77 @@
+package pt.psoft.g1.psoftg1.integrationTests.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import pt.psoft.g1.psoftg1.shared.services.YearlySequenceService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class YearlySequenceServiceImplTest {
+    @Autowired
+    private YearlySequenceService sequenceService;
+
+    @Test
+    void testNextIsSequentialWithinInstance() {
+        int first = sequenceService.next("test-sequential", 2024, () -> 0);
+        int second = sequenceService.next("test-sequential", 2024, () -> 0);
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isEqualTo(2);
+    }
+
+    @Test
+    void testYearsAreIndependent() {
+        assertThat(sequenceService.next("test-years", 2023, () -> 0)).isEqualTo(1);
+        assertThat(sequenceService.next("test-years", 2024, () -> 0)).isEqualTo(1);
+    }
+
+    @Test
+    void testFloorIsUsedOnFirstBlock() {
+        assertThat(sequenceService.next("test-floor", 2024, () -> 41)).isEqualTo(42);
+        // floor is not consulted again once the sequence is in use
+        assertThat(sequenceService.next("test-floor", 2024, () -> 100)).isEqualTo(43);
+    }
+
+    @Test
+    void testNextBlockDoesNotOverlapNext() {
+        assertThat(sequenceService.nextBlock("test-block", 2024, 5, () -> 0)).isEqualTo(1);
+        // block size is 20, so next() caches 6..25
+        assertThat(sequenceService.next("test-block", 2024, () -> 0)).isEqualTo(6);
+        // 30 values do not fit in what is left of the cached block
+        assertThat(sequenceService.nextBlock("test-block", 2024, 30, () -> 0)).isEqualTo(26);
+        assertThat(sequenceService.next("test-block", 2024, () -> 0)).isEqualTo(7);
+        // 14 values do
+        assertThat(sequenceService.nextBlock("test-block", 2024, 14, () -> 0)).isEqualTo(8);
+        assertThat(sequenceService.next("test-block", 2024, () -> 0)).isEqualTo(22);
+    }
+
+    @Test
+    void testConcurrentCallsNeverCollide() throws Exception {
+        final int threads = 16;
+        final int perThread = 250;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final Set<Integer> values = ConcurrentHashMap.newKeySet();
+        final List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        values.add(sequenceService.next("test-concurrent", 2024, () -> 0));
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(values).hasSize(threads * perThread);
+    }
+}
@@ -0,0 +1,28 @@
+package pt.psoft.g1.psoftg1.testutils;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Counts the SQL statements Hibernate prepares, to check that a read loads everything it needs at once.
+ */
+public class StatementCounter {
+
+    /**
+     * @return number of SQL statements {@code action} runs against an empty persistence context
+     */
+    public static long countStatements(final EntityManager entityManager, final Runnable action) {
+        entityManager.flush();
+        entityManager.clear();
+        final Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+        try {
+            action.run();
+            return statistics.getPrepareStatementCount();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+}
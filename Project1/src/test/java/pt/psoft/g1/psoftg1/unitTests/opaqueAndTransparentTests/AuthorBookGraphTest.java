@@ -0,0 +1,79 @@
+package pt.psoft.g1.psoftg1.unitTests.opaqueAndTransparentTests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorBookDTO;
+import pt.psoft.g1.psoftg1.authormanagement.services.AuthorBookGraph;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthorBookGraphTest {
+    private static final String ISBN_1 = "9782826012092";
+    private static final String ISBN_2 = "9780306406157";
+    private static final String ISBN_3 = "9789720706386";
+
+    private AuthorBookGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        // 1 wrote with 2, 2 wrote with 3, 4 wrote alone
+        graph = new AuthorBookGraph();
+        graph.rebuild(List.of(
+                new AuthorBookDTO(1L, ISBN_1),
+                new AuthorBookDTO(2L, ISBN_1),
+                new AuthorBookDTO(3L, ISBN_2),
+                new AuthorBookDTO(2L, ISBN_2),
+                new AuthorBookDTO(4L, ISBN_3)));
+    }
+
+    private static Author author(long authorNumber) {
+        final Author author = new Author("Author Name", "Biography", null);
+        ReflectionTestUtils.setField(author, "authorNumber", authorNumber);
+        return author;
+    }
+
+    @Test
+    void ensureBuiltGraphIsLoaded() {
+        assertFalse(new AuthorBookGraph().isLoaded());
+        assertTrue(graph.isLoaded());
+    }
+
+    @Test
+    void ensureBooksOfAuthorAreFound() {
+        assertEquals(List.of(ISBN_1, ISBN_2), graph.booksOf(2L));
+        assertEquals(List.of(), graph.booksOf(99L));
+    }
+
+    @Test
+    void ensureCoAuthorsAreTheAuthorsOfTheSameBooks() {
+        assertEquals(List.of(1L, 3L), graph.coAuthorsOf(2L));
+        assertEquals(List.of(2L), graph.coAuthorsOf(1L));
+        assertEquals(List.of(), graph.coAuthorsOf(4L));
+    }
+
+    @Test
+    void ensureClosestAuthorsComeFirst() {
+        assertEquals(List.of(2L), graph.withinHops(1L, 1));
+        assertEquals(List.of(2L, 3L), graph.withinHops(1L, 2));
+        assertEquals(List.of(2L, 3L), graph.withinHops(1L, 5));
+    }
+
+    @Test
+    void ensureChangedAuthorsReplacePreviousOnes() {
+        final Book book = new Book(ISBN_1, "Title", "Description", new Genre("Fiction"),
+                List.of(author(1L), author(4L)), null);
+
+        // outside a transaction the change is applied immediately
+        graph.put(book);
+
+        assertEquals(List.of(4L), graph.coAuthorsOf(1L));
+        assertEquals(List.of(3L), graph.coAuthorsOf(2L));
+        assertEquals(List.of(ISBN_1, ISBN_3), graph.booksOf(4L));
+    }
+}
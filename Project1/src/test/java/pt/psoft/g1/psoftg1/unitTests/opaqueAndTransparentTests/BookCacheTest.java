@@ -0,0 +1,125 @@
+package pt.psoft.g1.psoftg1.unitTests.opaqueAndTransparentTests;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookCache;
+import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class BookCacheTest {
+    private static final String ISBN_1 = "9782826012092";
+    private static final String ISBN_2 = "9780306406157";
+    private static final String ISBN_3 = "9789720706386";
+
+    private final EntityManager entityManager = mock(EntityManager.class);
+    private BookCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new BookCache(2, entityManager);
+    }
+
+    private static Book book(String isbn, long version) {
+        final Book book = new Book(isbn, "Title", "Description", new Genre("Fiction"),
+                List.of(new Author("Author Name", "Biography", null)), null);
+        ReflectionTestUtils.setField(book, "version", version);
+        return book;
+    }
+
+    @Test
+    void ensureSecondReadIsServedFromCache() {
+        final Book book = book(ISBN_1, 0);
+
+        assertSame(book, cache.get(ISBN_1, isbn -> Optional.of(book)).orElseThrow());
+        assertSame(book, cache.get(ISBN_1, isbn -> fail("should have been cached")).orElseThrow());
+        assertEquals(new BookCache.Stats(1, 1, 0, 1), cache.stats());
+    }
+
+    @Test
+    void ensureCachedBookIsDetached() {
+        final Book book = book(ISBN_1, 0);
+        cache.get(ISBN_1, isbn -> Optional.of(book));
+
+        verify(entityManager).detach(book);
+    }
+
+    @Test
+    void ensureBookLoadedInTransactionIsNotCached() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            cache.get(ISBN_1, isbn -> Optional.of(book(isbn, 0)));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void ensureMissingBooksAreNotCached() {
+        assertTrue(cache.get(ISBN_1, isbn -> Optional.empty()).isEmpty());
+        assertTrue(cache.get(ISBN_1, isbn -> Optional.empty()).isEmpty());
+        assertEquals(new BookCache.Stats(0, 2, 0, 0), cache.stats());
+    }
+
+    @Test
+    void ensureLeastRecentlyReadBookIsEvicted() {
+        cache.get(ISBN_1, isbn -> Optional.of(book(isbn, 0)));
+        cache.get(ISBN_2, isbn -> Optional.of(book(isbn, 0)));
+        cache.get(ISBN_1, isbn -> fail("should have been cached"));
+        cache.get(ISBN_3, isbn -> Optional.of(book(isbn, 0)));
+
+        assertEquals(1, cache.stats().evictions());
+        cache.get(ISBN_1, isbn -> fail("should have been cached"));
+        assertTrue(cache.get(ISBN_2, isbn -> Optional.empty()).isEmpty());
+    }
+
+    @Test
+    void ensureInvalidatedBookIsReloaded() {
+        cache.get(ISBN_1, isbn -> Optional.of(book(isbn, 0)));
+        cache.invalidate(ISBN_1);
+
+        assertEquals(1L, cache.get(ISBN_1, isbn -> Optional.of(book(isbn, 1))).orElseThrow().getVersion());
+    }
+
+    @Test
+    void ensureBookLoadedDuringInvalidationIsNotCached() {
+        cache.get(ISBN_1, isbn -> {
+            cache.invalidate(ISBN_1);
+            return Optional.of(book(isbn, 0));
+        });
+
+        assertEquals(1L, cache.get(ISBN_1, isbn -> Optional.of(book(isbn, 1))).orElseThrow().getVersion());
+    }
+
+    @Test
+    void ensureOlderVersionDoesNotReplaceNewerOne() {
+        // both reads miss; the one that loaded the newer version finishes first
+        cache.get(ISBN_1, isbn -> {
+            cache.get(ISBN_1, other -> Optional.of(book(other, 2)));
+            return Optional.of(book(isbn, 1));
+        });
+
+        assertEquals(2L, cache.get(ISBN_1, isbn -> fail("should have been cached")).orElseThrow().getVersion());
+    }
+
+    @Test
+    void ensureZeroSizeDisablesCache() {
+        final BookCache disabled = new BookCache(0, entityManager);
+        disabled.get(ISBN_1, isbn -> Optional.of(book(isbn, 0)));
+
+        assertEquals(0, disabled.stats().size());
+        assertThrows(IllegalArgumentException.class, () -> new BookCache(-1, entityManager));
+    }
+}
@@ -0,0 +1,65 @@
+package pt.psoft.g1.psoftg1.unitTests.opaqueAndTransparentTests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchIndex;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookSearchTermsDTO;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        index.rebuild(List.of(
+                new BookSearchTermsDTO("1", "O Inspetor Max", "Infantil", "Manuel Antonio Pina"),
+                new BookSearchTermsDTO("1", "O Inspetor Max", "Infantil", "Maria Pina"),
+                new BookSearchTermsDTO("2", "Vinte Mil Léguas Submarinas", "Fantasia", "Jules Verne"),
+                new BookSearchTermsDTO("3", "A Volta ao Mundo", "Fantasia", null)));
+    }
+
+    @Test
+    void ensureIndexIsLoadedOnlyAfterRebuild() {
+        assertFalse(new BookSearchIndex().isLoaded());
+        assertTrue(index.isLoaded());
+    }
+
+    @Test
+    void ensureContainingMatchesSubstrings() {
+        assertEquals(Set.of("1"), index.containing(BookSearchIndex.Field.TITLE, "spetor"));
+        assertEquals(Set.of("2", "3"), index.containing(BookSearchIndex.Field.GENRE, "anta"));
+        assertEquals(Set.of("2", "3"), index.containing(BookSearchIndex.Field.TITLE, "u"));
+        assertTrue(index.containing(BookSearchIndex.Field.TITLE, "Inspetor Maximo").isEmpty());
+    }
+
+    @Test
+    void ensureStartingWithMatchesPrefixes() {
+        assertEquals(Set.of("1"), index.startingWith(BookSearchIndex.Field.AUTHOR_NAME, "Mari"));
+        assertEquals(Set.of("1"), index.startingWith(BookSearchIndex.Field.AUTHOR_NAME, "Ma"));
+        assertTrue(index.startingWith(BookSearchIndex.Field.AUTHOR_NAME, "Pina").isEmpty());
+    }
+
+    @Test
+    void ensureMatchingIsCaseSensitive() {
+        assertTrue(index.containing(BookSearchIndex.Field.TITLE, "inspetor").isEmpty());
+    }
+
+    @Test
+    void ensurePutReplacesPreviousTerms() {
+        index.putAll(List.of(new BookSearchTermsDTO("3", "A Ilha Misteriosa", "Aventura", "Jules Verne")));
+
+        assertTrue(index.containing(BookSearchIndex.Field.TITLE, "Volta").isEmpty());
+        assertEquals(Set.of("2"), index.startingWith(BookSearchIndex.Field.GENRE, "Fan"));
+        assertEquals(Set.of("2", "3"), index.startingWith(BookSearchIndex.Field.AUTHOR_NAME, "Jules"));
+    }
+
+    @Test
+    void ensureSortByTitleLeavesUnknownIsbnsOut() {
+        assertEquals(List.of("3", "1", "2"), index.sortByTitle(List.of("1", "2", "3", "4")));
+    }
+}
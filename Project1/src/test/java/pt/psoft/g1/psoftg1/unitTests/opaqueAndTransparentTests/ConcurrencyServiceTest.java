@@ -0,0 +1,50 @@
+package pt.psoft.g1.psoftg1.unitTests.opaqueAndTransparentTests;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyServiceTest {
+    private final ConcurrencyService concurrencyService = new ConcurrencyService();
+
+    private static WebRequest get(String ifNoneMatch) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/books/9782826012092");
+        if (ifNoneMatch != null)
+            request.addHeader(ConcurrencyService.IF_NONE_MATCH, ifNoneMatch);
+        return new ServletWebRequest(request);
+    }
+
+    @Test
+    void ensureCurrentVersionIsNotModified() {
+        final var response = concurrencyService.notModified(get("\"3\""), () -> Optional.of(3L));
+
+        assertTrue(response.isPresent());
+        assertEquals(HttpStatus.NOT_MODIFIED, response.get().getStatusCode());
+        assertEquals("\"3\"", response.get().getHeaders().getETag());
+        assertNull(response.get().getBody());
+    }
+
+    @Test
+    void ensureAnyListedOrWeakTagMatches() {
+        assertTrue(concurrencyService.notModified(get("\"1\", W/\"3\""), () -> Optional.of(3L)).isPresent());
+        assertTrue(concurrencyService.notModified(get("*"), () -> Optional.of(3L)).isPresent());
+    }
+
+    @Test
+    void ensureOtherVersionOrMissingEntityIsSent() {
+        assertTrue(concurrencyService.notModified(get("\"2\""), () -> Optional.of(3L)).isEmpty());
+        assertTrue(concurrencyService.notModified(get("*"), Optional::empty).isEmpty());
+    }
+
+    @Test
+    void ensureVersionIsNotLookedUpForUnconditionalRequests() {
+        assertTrue(concurrencyService.notModified(get(null), () -> fail("should not look the version up")).isEmpty());
+    }
+}
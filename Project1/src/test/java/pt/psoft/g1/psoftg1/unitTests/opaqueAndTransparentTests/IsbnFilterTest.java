@@ -0,0 +1,106 @@
+package pt.psoft.g1.psoftg1.unitTests.opaqueAndTransparentTests;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.bookmanagement.services.IsbnFilter;
+import pt.psoft.g1.psoftg1.bookmanagement.services.IsbnFilter.Membership;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IsbnFilterTest {
+    private static final String ISBN_1 = "9782826012092";
+    private static final String ISBN_2 = "9780306406157";
+
+    @Test
+    void ensureNothingIsAbsentUntilLoaded() {
+        final IsbnFilter filter = new IsbnFilter(1000, 10);
+
+        assertFalse(filter.isLoaded());
+        assertEquals(Membership.UNKNOWN, filter.check(ISBN_1));
+
+        filter.rebuild(List.of());
+        assertTrue(filter.isLoaded());
+        assertEquals(Membership.ABSENT, filter.check(ISBN_1));
+    }
+
+    @Test
+    void ensureLoadedIsbnsAreNeverAbsent() {
+        final IsbnFilter filter = new IsbnFilter(1000, 10);
+        final List<String> isbns = IntStream.range(0, 1000).mapToObj(i -> String.format("978%010d", i)).toList();
+
+        filter.rebuild(isbns);
+
+        isbns.forEach(isbn -> assertEquals(Membership.UNKNOWN, filter.check(isbn)));
+        // sized for 1000 ISBNs, about 1% of other ones may be looked up needlessly
+        final long falsePositives = IntStream.range(1000, 11000)
+                .filter(i -> filter.check(String.format("978%010d", i)) != Membership.ABSENT)
+                .count();
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void ensureAddedIsbnsAreKeptAcrossRebuilds() {
+        final IsbnFilter filter = new IsbnFilter(1000, 10);
+
+        // outside a transaction the ISBN is known to be present immediately
+        filter.add(ISBN_1);
+        filter.rebuild(List.of(ISBN_2));
+
+        assertEquals(Membership.PRESENT, filter.check(ISBN_1));
+        assertEquals(Membership.UNKNOWN, filter.check(ISBN_2));
+    }
+
+    @Test
+    void ensureRemovedIsbnsAreLookedUp() {
+        final IsbnFilter filter = new IsbnFilter(1000, 10);
+        filter.rebuild(List.of());
+        filter.add(ISBN_1);
+
+        filter.removed(ISBN_1);
+
+        assertEquals(Membership.UNKNOWN, filter.check(ISBN_1));
+    }
+
+    @Test
+    void ensureOnlyMostRecentIsbnsAreKeptExactly() {
+        final IsbnFilter filter = new IsbnFilter(1000, 1);
+        filter.rebuild(List.of());
+
+        filter.add(ISBN_1);
+        filter.add(ISBN_2);
+
+        assertEquals(Membership.UNKNOWN, filter.check(ISBN_1));
+        assertEquals(Membership.PRESENT, filter.check(ISBN_2));
+    }
+
+    @Test
+    void ensureIsbnsAddedInATransactionArePresentOnceItCommits() {
+        final IsbnFilter filter = new IsbnFilter(1000, 10);
+        filter.rebuild(List.of());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            filter.add(ISBN_1);
+            filter.add(ISBN_2);
+
+            assertEquals(Membership.UNKNOWN, filter.check(ISBN_1));
+            // a single callback for the whole transaction
+            final List<TransactionSynchronization> synchronizations =
+                    TransactionSynchronizationManager.getSynchronizations();
+            assertEquals(1, synchronizations.size());
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+            synchronizations.forEach(synchronization ->
+                    synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(Membership.PRESENT, filter.check(ISBN_1));
+        assertEquals(Membership.PRESENT, filter.check(ISBN_2));
+        assertFalse(TransactionSynchronizationManager.hasResource(filter));
+    }
+}
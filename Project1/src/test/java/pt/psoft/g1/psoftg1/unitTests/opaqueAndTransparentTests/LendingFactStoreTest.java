@@ -0,0 +1,89 @@
+package pt.psoft.g1.psoftg1.unitTests.opaqueAndTransparentTests;
+
+import org.junit.jupiter.api.Test;
+import pt.psoft.g1.psoftg1.genremanagement.services.GenreLendingsDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFactDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.LendingFactStore;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LendingFactStoreTest {
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    private static LendingFactDTO fact(int seq, String isbn, String genre, LocalDate start, LocalDate returned) {
+        return new LendingFactDTO("2024/" + seq, isbn, genre, "2024/1", start, returned);
+    }
+
+    @Test
+    void ensureParallelThresholdIsNotNegative() {
+        assertThrows(IllegalArgumentException.class, () -> new LendingFactStore(-1));
+    }
+
+    @Test
+    void ensureStoreIsLoadedOnlyAfterRebuild() {
+        final LendingFactStore store = new LendingFactStore(0);
+        assertFalse(store.isLoaded());
+        store.rebuild(List.of());
+        assertTrue(store.isLoaded());
+    }
+
+    @Test
+    void ensureCountsOnlyIncludeLendingsStartedInRange() {
+        final LendingFactStore store = new LendingFactStore(0);
+        store.put(fact(1, "isbn1", "Fantasia", DAY, null));
+        store.put(fact(2, "isbn2", "Fantasia", DAY.plusDays(1), null));
+        store.put(fact(3, "isbn3", "Drama", DAY, null));
+        store.put(fact(4, "isbn3", "Drama", DAY.plusDays(2), null));
+
+        assertEquals(List.of(new GenreLendingsDTO("Drama", 1L), new GenreLendingsDTO("Fantasia", 2L)),
+                store.getLendingCountsByGenre(DAY, DAY.plusDays(1)));
+    }
+
+    @Test
+    void ensureAveragesOnlyIncludeReturnedLendings() {
+        final LendingFactStore store = new LendingFactStore(0);
+        store.put(fact(1, "isbn1", "Fantasia", DAY, DAY.plusDays(2)));
+        store.put(fact(2, "isbn1", "Fantasia", DAY, DAY.plusDays(5)));
+        store.put(fact(3, "isbn2", "Drama", DAY, null));
+
+        assertEquals(List.of(new GenreLendingsDTO("Fantasia", 3.5)), store.getLendingsAverageDurationByGenre(DAY, DAY));
+        assertEquals(3.5, store.getAvgLendingDurationByIsbn("isbn1"));
+        assertNull(store.getAvgLendingDurationByIsbn("isbn2"));
+        assertNull(store.getAvgLendingDurationByIsbn("unknown"));
+        assertEquals(3.5, store.getAverageDuration());
+    }
+
+    @Test
+    void ensurePutReplacesAndRemoveDeletes() {
+        final LendingFactStore store = new LendingFactStore(0);
+        store.put(fact(1, "isbn1", "Fantasia", DAY, null));
+        store.put(fact(2, "isbn1", "Fantasia", DAY, null));
+        store.put(fact(1, "isbn1", "Fantasia", DAY, DAY.plusDays(4)));
+        assertEquals(List.of(new GenreLendingsDTO("Fantasia", 2L)), store.getLendingCountsByGenre(DAY, DAY));
+        assertEquals(4.0, store.getAverageDuration());
+
+        store.remove("2024/1");
+        assertEquals(List.of(new GenreLendingsDTO("Fantasia", 1L)), store.getLendingCountsByGenre(DAY, DAY));
+        assertNull(store.getAverageDuration());
+    }
+
+    @Test
+    void ensureParallelScansMatchSequentialScans() {
+        final List<LendingFactDTO> facts = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            facts.add(fact(i, "isbn" + i % 7, "genre" + i % 5, DAY.plusDays(i % 40), i % 3 == 0 ? null : DAY.plusDays(i % 40 + i % 11)));
+        }
+        final LendingFactStore sequential = new LendingFactStore(0);
+        sequential.rebuild(facts);
+        final LendingFactStore parallel = new LendingFactStore(100);
+        parallel.rebuild(facts);
+
+        assertEquals(sequential.getLendingCountsByGenre(DAY, DAY.plusDays(20)), parallel.getLendingCountsByGenre(DAY, DAY.plusDays(20)));
+        assertEquals(sequential.getLendingsAverageDurationByGenre(DAY, DAY.plusDays(20)), parallel.getLendingsAverageDurationByGenre(DAY, DAY.plusDays(20)));
+        assertEquals(sequential.getAvgLendingDurationByIsbn("isbn3"), parallel.getAvgLendingDurationByIsbn("isbn3"));
+    }
+}
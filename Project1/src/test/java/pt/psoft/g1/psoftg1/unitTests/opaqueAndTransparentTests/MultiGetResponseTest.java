@@ -0,0 +1,33 @@
+package pt.psoft.g1.psoftg1.unitTests.opaqueAndTransparentTests;
+
+import org.junit.jupiter.api.Test;
+import pt.psoft.g1.psoftg1.shared.api.MultiGetResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiGetResponseTest {
+    private record Item(String key, long version) {
+    }
+
+    @Test
+    void ensureItemsAreKeyedInRequestOrderWithTheirVersions() {
+        final var response = MultiGetResponse.of(List.of("b", "a"), List.of(new Item("a", 1), new Item("b", 2)),
+                Item::key, Item::version, Item::key);
+
+        assertEquals(List.of("b", "a"), List.copyOf(response.getItems().keySet()));
+        assertEquals(2L, response.getItems().get("b").getVersion());
+        assertEquals("a", response.getItems().get("a").getItem());
+        assertEquals(List.of(), response.getMissing());
+    }
+
+    @Test
+    void ensureKeysWithoutItemAreMissingOnce() {
+        final var response = MultiGetResponse.of(List.of("a", "c", "c"), List.of(new Item("a", 1)),
+                Item::key, Item::version, Item::key);
+
+        assertEquals(1, response.getItems().size());
+        assertEquals(List.of("c"), response.getMissing());
+    }
+}
@@ -0,0 +1,91 @@
+package pt.psoft.g1.psoftg1.unitTests.opaqueAndTransparentTests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.OutstandingLendingDTO;
+import pt.psoft.g1.psoftg1.lendingmanagement.services.OverdueLendingsTracker;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OverdueLendingsTrackerTest {
+    private final LocalDate today = LocalDate.now();
+    private OverdueLendingsTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new OverdueLendingsTracker(7);
+    }
+
+    @Test
+    void ensureHorizonIsPositive() {
+        assertThrows(IllegalArgumentException.class, () -> new OverdueLendingsTracker(0));
+    }
+
+    @Test
+    void ensureLendingPastLimitDateIsOverdue() {
+        tracker.add("2024/1", "2024/10", today.minusDays(1));
+        assertTrue(tracker.hasOverdue("2024/1", today));
+        assertEquals(List.of("2024/10"), tracker.listOverdue(0, 10, today));
+    }
+
+    @Test
+    void ensureLendingDueTodayIsNotOverdue() {
+        tracker.add("2024/1", "2024/10", today);
+        assertFalse(tracker.hasOverdue("2024/1", today));
+        assertTrue(tracker.listOverdue(0, 10, today).isEmpty());
+    }
+
+    @Test
+    void ensureLendingBecomesOverdueWhenDayRollsOver() {
+        tracker.add("2024/1", "2024/10", today.plusDays(2));
+        assertFalse(tracker.hasOverdue("2024/1", today.plusDays(2)));
+        assertTrue(tracker.hasOverdue("2024/1", today.plusDays(3)));
+    }
+
+    @Test
+    void ensureLendingBeyondHorizonBecomesOverdue() {
+        tracker.add("2024/1", "2024/10", today.plusDays(20));
+        assertFalse(tracker.hasOverdue("2024/1", today.plusDays(10)));
+        assertFalse(tracker.hasOverdue("2024/1", today.plusDays(20)));
+        assertTrue(tracker.hasOverdue("2024/1", today.plusDays(21)));
+    }
+
+    @Test
+    void ensureWheelCanSkipMoreThanOneTurn() {
+        tracker.add("2024/1", "2024/10", today.plusDays(1));
+        tracker.add("2024/2", "2024/11", today.plusDays(6));
+        tracker.add("2024/3", "2024/12", today.plusDays(30));
+        assertEquals(List.of("2024/10", "2024/11"), tracker.listOverdue(0, 10, today.plusDays(15)));
+        assertFalse(tracker.hasOverdue("2024/3", today.plusDays(15)));
+    }
+
+    @Test
+    void ensureRemovedLendingIsNotOverdue() {
+        tracker.add("2024/1", "2024/10", today.minusDays(1));
+        tracker.add("2024/1", "2024/11", today.minusDays(2));
+        tracker.remove("2024/10");
+        assertTrue(tracker.hasOverdue("2024/1", today));
+        tracker.remove("2024/11");
+        assertFalse(tracker.hasOverdue("2024/1", today));
+    }
+
+    @Test
+    void ensureOverdueIsListedOldestFirst() {
+        tracker.add("2024/1", "2024/10", today.minusDays(1));
+        tracker.add("2024/2", "2024/11", today.minusDays(5));
+        tracker.add("2024/3", "2024/12", today.minusDays(3));
+        assertEquals(List.of("2024/11", "2024/12", "2024/10"), tracker.listOverdue(0, 10, today));
+        assertEquals(List.of("2024/12"), tracker.listOverdue(1, 1, today));
+    }
+
+    @Test
+    void ensureRebuildReplacesContent() {
+        tracker.add("2024/1", "2024/10", today.minusDays(1));
+        tracker.rebuild(List.of(new OutstandingLendingDTO("2024/2", "2024/11", today.minusDays(2))));
+        assertFalse(tracker.hasOverdue("2024/1", today));
+        assertTrue(tracker.hasOverdue("2024/2", today));
+    }
+}
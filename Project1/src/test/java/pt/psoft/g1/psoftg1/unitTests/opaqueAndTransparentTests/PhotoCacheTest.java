@@ -0,0 +1,93 @@
+package pt.psoft.g1.psoftg1.unitTests.opaqueAndTransparentTests;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import pt.psoft.g1.psoftg1.shared.services.PhotoCache;
+import pt.psoft.g1.psoftg1.shared.services.PhotoCache.CachedPhoto;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhotoCacheTest {
+
+    private static Optional<CachedPhoto> photo(int size) {
+        return Optional.of(new CachedPhoto(ByteBuffer.allocateDirect(size).asReadOnlyBuffer(), 0L, "\"tag\""));
+    }
+
+    private static Optional<CachedPhoto> notLoaded(String photoFile) {
+        return fail("should have been cached: " + photoFile);
+    }
+
+    @Test
+    void ensureLoadedPhotoIsCachedOffHeap() {
+        final PhotoCache cache = new PhotoCache(1000);
+
+        final CachedPhoto loaded = cache.get("a.png", file -> photo(100)).orElseThrow();
+
+        assertSame(loaded, cache.get("a.png", PhotoCacheTest::notLoaded).orElseThrow());
+        assertTrue(loaded.content().isDirect());
+        assertEquals(new PhotoCache.Stats(1, 1, 0, 1, 100), cache.stats());
+    }
+
+    @Test
+    void ensureLeastRecentlyReadPhotosAreEvictedByBytes() {
+        final PhotoCache cache = new PhotoCache(1000);
+        cache.get("a.png", file -> photo(250));
+        cache.get("b.png", file -> photo(250));
+        cache.get("c.png", file -> photo(250));
+        cache.get("a.png", PhotoCacheTest::notLoaded);
+
+        cache.get("d.png", file -> photo(250));
+        cache.get("e.png", file -> photo(250));
+
+        assertEquals(1000, cache.stats().bytes());
+        assertEquals(1, cache.stats().evictions());
+        assertTrue(cache.get("a.png", file -> Optional.empty()).isPresent());
+        assertTrue(cache.get("b.png", file -> Optional.empty()).isEmpty());
+    }
+
+    @Test
+    void ensureLargePhotosAndDisabledCacheStoreNothing() {
+        final PhotoCache cache = new PhotoCache(1000);
+        assertFalse(cache.accepts(251));
+        cache.get("a.png", file -> photo(251));
+        assertEquals(0, cache.stats().size());
+
+        final PhotoCache disabled = new PhotoCache(0);
+        assertFalse(disabled.accepts(0));
+        disabled.get("a.png", file -> photo(1));
+        assertEquals(0, disabled.stats().bytes());
+    }
+
+    @Test
+    void ensureInvalidationDropsPhotoAndRacingLoad() {
+        final PhotoCache cache = new PhotoCache(1000);
+        cache.get("a.png", file -> photo(100));
+
+        cache.invalidate("a.png");
+        assertEquals(0, cache.stats().bytes());
+
+        // a photo read before the file was written again is not kept
+        cache.get("a.png", file -> {
+            cache.invalidate(file);
+            return photo(100);
+        });
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void ensureStatsArePublishedAsMeters() {
+        final PhotoCache cache = new PhotoCache(1000);
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.get("a.png", file -> photo(100));
+        cache.get("a.png", PhotoCacheTest::notLoaded);
+
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "photos", "result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "photos", "result", "miss").functionCounter().count());
+        assertEquals(100.0, registry.get("cache.bytes").tags("cache", "photos").gauge().value());
+    }
+}
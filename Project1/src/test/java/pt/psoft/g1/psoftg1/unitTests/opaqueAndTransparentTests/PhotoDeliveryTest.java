@@ -0,0 +1,226 @@
+package pt.psoft.g1.psoftg1.unitTests.opaqueAndTransparentTests;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl.DirectoryPhotoStore;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageProperties;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.PhotoCache;
+import pt.psoft.g1.psoftg1.shared.services.PhotoDelivery;
+import pt.psoft.g1.psoftg1.shared.services.PhotoVariants;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class PhotoDeliveryTest {
+    private static final byte[] PHOTO = new byte[1000];
+
+    @TempDir
+    Path uploadDir;
+
+    private PhotoCache photoCache;
+    private FileStorageService fileStorageService;
+    private MockMvc mockMvc;
+    private String etag;
+    private String lastModified;
+
+    @RestController
+    static class PhotoController {
+        private final PhotoDelivery photoDelivery;
+
+        PhotoController(final PhotoDelivery photoDelivery) {
+            this.photoDelivery = photoDelivery;
+        }
+
+        @GetMapping("/photos/{file}")
+        ResponseEntity<Resource> photo(@PathVariable("file") final String file,
+                                       @RequestParam(value = "size", required = false) final String size,
+                                       final WebRequest request) {
+            return photoDelivery.photo(file, size, request);
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (int i = 0; i < PHOTO.length; i++) {
+            PHOTO[i] = (byte) i;
+        }
+        Files.write(uploadDir.resolve("photo.png"), PHOTO);
+        mockMvc = mockMvc(new PhotoCache(1 << 20));
+
+        final var response = mockMvc.perform(get("/photos/photo.png")).andReturn().getResponse();
+        etag = response.getHeader(HttpHeaders.ETAG);
+        lastModified = response.getHeader(HttpHeaders.LAST_MODIFIED);
+    }
+
+    private MockMvc mockMvc(final PhotoCache cache) {
+        final FileStorageProperties properties = new FileStorageProperties();
+        properties.setUploadDir(uploadDir.toString());
+        properties.setPhotoMaxSize(PHOTO.length);
+        photoCache = cache;
+        final DirectoryPhotoStore photoStore = new DirectoryPhotoStore(properties);
+        final PhotoVariants photoVariants = new PhotoVariants(photoStore, cache, 0, 1);
+        fileStorageService = new FileStorageService(properties, cache, photoStore, photoVariants);
+        return MockMvcBuilders.standaloneSetup(
+                new PhotoController(new PhotoDelivery(fileStorageService, cache, photoVariants))).build();
+    }
+
+    @Test
+    void ensureWholePhotoIsSentWithValidators() throws Exception {
+        mockMvc.perform(get("/photos/photo.png"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.IMAGE_PNG))
+                .andExpect(content().bytes(PHOTO))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"));
+
+        assertTrue(etag.startsWith("\""), "strong ETag expected: " + etag);
+        assertNotNull(lastModified);
+    }
+
+    @Test
+    void ensureUnchangedPhotoIsNotSentAgain() throws Exception {
+        mockMvc.perform(get("/photos/photo.png").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void ensureRangeIsSentAlone() throws Exception {
+        mockMvc.perform(get("/photos/photo.png").header(HttpHeaders.RANGE, "bytes=10-19"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/1000"))
+                .andExpect(content().bytes(Arrays.copyOfRange(PHOTO, 10, 20)));
+
+        mockMvc.perform(get("/photos/photo.png").header(HttpHeaders.RANGE, "bytes=2000-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable());
+    }
+
+    @Test
+    void ensureRangeOfUncachedPhotoIsSentAlone() throws Exception {
+        // photos larger than a quarter of the cache are sent from their file
+        mockMvc = mockMvc(new PhotoCache(PHOTO.length));
+
+        mockMvc.perform(get("/photos/photo.png").header(HttpHeaders.RANGE, "bytes=990-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().bytes(Arrays.copyOfRange(PHOTO, 990, 1000)));
+        assertEquals(0, photoCache.stats().size());
+    }
+
+    @Test
+    void ensureCachedPhotoIsSentWithoutReadingItsFile() throws Exception {
+        Files.delete(uploadDir.resolve("photo.png"));
+
+        mockMvc.perform(get("/photos/photo.png"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().bytes(PHOTO));
+        assertEquals(PHOTO.length, photoCache.stats().bytes());
+        assertEquals(1, photoCache.stats().hits());
+    }
+
+    @Test
+    void ensureRangeOfChangedPhotoSendsWholePhoto() throws Exception {
+        mockMvc.perform(get("/photos/photo.png").header(HttpHeaders.RANGE, "bytes=10-19").header(HttpHeaders.IF_RANGE, etag))
+                .andExpect(status().isPartialContent());
+        mockMvc.perform(get("/photos/photo.png").header(HttpHeaders.RANGE, "bytes=10-19").header(HttpHeaders.IF_RANGE, lastModified))
+                .andExpect(status().isPartialContent());
+
+        mockMvc.perform(get("/photos/photo.png").header(HttpHeaders.RANGE, "bytes=10-19").header(HttpHeaders.IF_RANGE, "\"old\""))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, PHOTO.length))
+                .andExpect(content().bytes(PHOTO));
+    }
+
+    @Test
+    void ensureStoredAndDeletedPhotosAreNotSentFromCache() throws Exception {
+        mockMvc.perform(get("/photos/missing.png"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(new byte[0]));
+
+        PHOTO[0] = 42;
+        fileStorageService.storeFile("photo", new MockMultipartFile("photo", "photo.png", "image/png", PHOTO));
+        final String changed = mockMvc.perform(get("/photos/photo.png")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, changed);
+
+        fileStorageService.deleteFile("photo.png");
+        mockMvc.perform(get("/photos/photo.png"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(new byte[0]));
+        assertEquals(0, photoCache.stats().bytes());
+    }
+
+    @Test
+    void ensurePhotoWithoutVariantsIsSentWholeForAnySize() throws Exception {
+        mockMvc.perform(get("/photos/photo.png").param("size", "small"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().bytes(PHOTO));
+    }
+
+    @Test
+    void ensureSamePhotoUploadedTwiceIsStoredOnceUnderItsContentHash() throws Exception {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        try {
+            final String first = fileStorageService.getRequestPhoto(
+                    new MockMultipartFile("photo", "cover.png", "image/png", PHOTO));
+            final String second = fileStorageService.getRequestPhoto(
+                    new MockMultipartFile("photo", "same-cover.png", "image/png", PHOTO));
+
+            assertEquals(first, second);
+            assertTrue(FileStorageService.contentHash(first).isPresent());
+            try (Stream<Path> files = Files.list(uploadDir)) {
+                assertEquals(2, files.count());
+            }
+
+            // the tag is the hash in the name, the same as the one computed from the content
+            mockMvc.perform(get("/photos/" + first))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, etag))
+                    .andExpect(content().bytes(PHOTO));
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    @Test
+    void ensurePhotoDeletedBeforeBeingReferencedIsStoredAgain() throws Exception {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        try {
+            final MockMultipartFile upload = new MockMultipartFile("photo", "cover.png", "image/png", PHOTO);
+            final String fileName = fileStorageService.getRequestPhoto(upload);
+            // its last other reference is released before the new one commits
+            fileStorageService.deleteFile(fileName);
+
+            fileStorageService.storeIfMissing(fileName, upload);
+
+            mockMvc.perform(get("/photos/" + fileName))
+                    .andExpect(status().isOk())
+                    .andExpect(content().bytes(PHOTO));
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+}
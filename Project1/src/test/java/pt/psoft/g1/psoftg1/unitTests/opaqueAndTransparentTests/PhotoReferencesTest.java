@@ -0,0 +1,62 @@
+package pt.psoft.g1.psoftg1.unitTests.opaqueAndTransparentTests;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.PhotoReferences;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.Mockito.*;
+
+class PhotoReferencesTest {
+    private final PhotoRepository photoRepository = mock(PhotoRepository.class);
+    private final FileStorageService fileStorageService = mock(FileStorageService.class);
+    private final PhotoReferences photoReferences = new PhotoReferences(photoRepository, fileStorageService);
+
+    @Test
+    void ensureSharedPhotoFileIsKept() {
+        when(photoRepository.countReferences("cover.png")).thenReturn(1L);
+
+        photoReferences.release("cover.png");
+
+        verify(photoRepository).deleteByPhotoFile("cover.png");
+        verify(fileStorageService, never()).deleteFile(any());
+    }
+
+    @Test
+    void ensureLastReferenceDeletesPhotoFile() {
+        when(photoRepository.countReferences("cover.png")).thenReturn(0L);
+
+        photoReferences.release("cover.png");
+
+        verify(photoRepository).deleteByPhotoFile("cover.png");
+        verify(fileStorageService).deleteFile("cover.png");
+    }
+
+    @Test
+    void ensureMissingPhotoFileIsIgnored() {
+        when(photoRepository.countReferences("cover.png")).thenReturn(0L);
+        doThrow(new NotFoundException("gone")).when(fileStorageService).deleteFile("cover.png");
+
+        assertDoesNotThrow(() -> photoReferences.release("cover.png"));
+    }
+
+    @Test
+    void ensureAcquiredPhotoFileIsStoredAgainIfMissing() {
+        final MockMultipartFile photo = new MockMultipartFile("photo", "cover.png", "image/png", new byte[10]);
+
+        photoReferences.acquire("cover.png", photo);
+
+        verify(fileStorageService).storeIfMissing("cover.png", photo);
+    }
+
+    @Test
+    void ensureReferenceWithoutUploadIsNotStored() {
+        photoReferences.acquire("cover.png", null);
+        photoReferences.acquire(null, new MockMultipartFile("photo", new byte[10]));
+
+        verifyNoInteractions(fileStorageService);
+    }
+}
@@ -0,0 +1,161 @@
+package pt.psoft.g1.psoftg1.unitTests.opaqueAndTransparentTests;
+
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl.DirectoryPhotoStore;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageProperties;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.PhotoCache;
+import pt.psoft.g1.psoftg1.shared.services.PhotoVariant;
+import pt.psoft.g1.psoftg1.shared.services.PhotoVariants;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhotoVariantsTest {
+    @TempDir
+    Path uploadDir;
+
+    private DirectoryPhotoStore photoStore;
+    private PhotoVariants photoVariants;
+    private FileStorageService fileStorageService;
+
+    @BeforeEach
+    void setUp() {
+        final FileStorageProperties properties = new FileStorageProperties();
+        properties.setUploadDir(uploadDir.toString());
+        properties.setPhotoMaxSize(1 << 20);
+        final PhotoCache photoCache = new PhotoCache(1 << 20);
+        photoStore = new DirectoryPhotoStore(properties);
+        photoVariants = new PhotoVariants(photoStore, photoCache, 1, 4);
+        fileStorageService = new FileStorageService(properties, photoCache, photoStore, photoVariants);
+    }
+
+    @AfterEach
+    void tearDown() {
+        photoVariants.destroy();
+    }
+
+    private static byte[] image(int width, int height, String format) throws Exception {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, (x * 7) ^ (y * 13));
+            }
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    private BufferedImage read(String fileName) throws Exception {
+        return ImageIO.read(uploadDir.resolve(fileName).toFile());
+    }
+
+    @Test
+    void ensureVariantsAreGeneratedOnceAPhotoIsStored() throws Exception {
+        fileStorageService.storeFile("cover", new MockMultipartFile("photo", "cover.jpg", "image/jpeg",
+                image(1200, 600, "jpg")));
+        photoVariants.generate("cover.jpg").get(5, TimeUnit.SECONDS);
+
+        final BufferedImage small = read("cover_small.jpg");
+        assertEquals(160, small.getWidth());
+        assertEquals(80, small.getHeight());
+        final BufferedImage medium = read("cover_medium.jpg");
+        assertEquals(480, medium.getWidth());
+        assertEquals(240, medium.getHeight());
+    }
+
+    @Test
+    void ensureMissingVariantIsGeneratedWhenRequested() throws Exception {
+        // stored before variants existed
+        Files.write(uploadDir.resolve("old.png"), image(300, 900, "png"));
+
+        assertEquals("old_small.png", photoVariants.variant("old.png", PhotoVariant.SMALL).orElseThrow());
+        final BufferedImage small = read("old_small.png");
+        assertEquals(53, small.getWidth());
+        assertEquals(160, small.getHeight());
+        assertEquals("old_medium.png", photoVariants.variant("old.png", PhotoVariant.MEDIUM).orElseThrow());
+    }
+
+    @Test
+    void ensurePhotoSmallerThanVariantHasNoCopy() throws Exception {
+        Files.write(uploadDir.resolve("tiny.png"), image(100, 50, "png"));
+
+        assertTrue(photoVariants.variant("tiny.png", PhotoVariant.SMALL).isEmpty());
+        assertTrue(photoVariants.variant("tiny.png", PhotoVariant.MEDIUM).isEmpty());
+        assertFalse(Files.exists(uploadDir.resolve("tiny_small.png")));
+        assertFalse(Files.exists(uploadDir.resolve("tiny_medium.png")));
+    }
+
+    @Test
+    void ensureOnlyVariantsSmallerThanPhotoAreGenerated() throws Exception {
+        Files.write(uploadDir.resolve("photo.png"), image(300, 200, "png"));
+
+        assertEquals("photo_small.png", photoVariants.variant("photo.png", PhotoVariant.SMALL).orElseThrow());
+        assertTrue(photoVariants.variant("photo.png", PhotoVariant.MEDIUM).isEmpty());
+        assertFalse(Files.exists(uploadDir.resolve("photo_medium.png")));
+    }
+
+    @Test
+    void ensurePhotoThatIsNoImageHasNoVariants() throws Exception {
+        Files.write(uploadDir.resolve("broken.png"), new byte[] { 1, 2, 3 });
+
+        assertTrue(photoVariants.variant("broken.png", PhotoVariant.SMALL).isEmpty());
+        assertTrue(photoVariants.variant("missing.png", PhotoVariant.SMALL).isEmpty());
+    }
+
+    @Test
+    void ensurePhotoWithoutVariantIsNotDecodedAgain() throws Exception {
+        Files.write(uploadDir.resolve("tiny.png"), image(100, 50, "png"));
+        Files.write(uploadDir.resolve("broken.png"), new byte[] { 1, 2, 3 });
+        assertTrue(photoVariants.variant("tiny.png", PhotoVariant.SMALL).isEmpty());
+        assertTrue(photoVariants.variant("broken.png", PhotoVariant.SMALL).isEmpty());
+
+        // were either photo read again, it would now get a variant
+        Files.write(uploadDir.resolve("tiny.png"), image(600, 600, "png"));
+        Files.write(uploadDir.resolve("broken.png"), image(600, 600, "png"));
+
+        assertTrue(photoVariants.variant("tiny.png", PhotoVariant.SMALL).isEmpty());
+        assertTrue(photoVariants.variant("broken.png", PhotoVariant.SMALL).isEmpty());
+    }
+
+    @Test
+    void ensurePhotoDeclaringTooManyPixelsIsNotDecoded() throws Exception {
+        final byte[] photo = image(10, 10, "png");
+        // the width and height in the IHDR chunk, which follows the 8 byte signature and the chunk's length and type
+        ByteBuffer.wrap(photo).putInt(16, 100_000).putInt(20, 100_000);
+        Files.write(uploadDir.resolve("bomb.png"), photo);
+
+        assertTrue(photoVariants.variant("bomb.png", PhotoVariant.SMALL).isEmpty());
+        assertFalse(Files.exists(uploadDir.resolve("bomb_small.png")));
+    }
+
+    @Test
+    void ensureVariantsAreDeletedWithTheirPhoto() throws Exception {
+        Files.write(uploadDir.resolve("cover.png"), image(600, 600, "png"));
+        photoVariants.variant("cover.png", PhotoVariant.SMALL).orElseThrow();
+
+        fileStorageService.deleteFile("cover.png");
+
+        assertFalse(Files.exists(uploadDir.resolve("cover_small.png")));
+        assertFalse(Files.exists(uploadDir.resolve("cover_medium.png")));
+    }
+
+    @Test
+    void ensureUnknownSizeIsRejected() {
+        assertEquals(PhotoVariant.MEDIUM, PhotoVariant.of("Medium"));
+        assertThrows(ValidationException.class, () -> PhotoVariant.of("huge"));
+    }
+}
@@ -0,0 +1,123 @@
+package pt.psoft.g1.psoftg1.unitTests.opaqueAndTransparentTests;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.bookmanagement.services.ReaderSuggestionsCache;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReaderSuggestionsCacheTest {
+    private static final String READER_1 = "2024/1";
+    private static final String READER_2 = "2024/2";
+    private static final String READER_3 = "2024/3";
+    private static final List<String> ISBNS = List.of("9782826012092");
+    private static final List<String> OTHER_ISBNS = List.of("9780306406157");
+
+    private ReaderSuggestionsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ReaderSuggestionsCache(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.unbindResourceIfPossible(cache);
+    }
+
+    private static void complete(List<TransactionSynchronization> synchronizations) {
+        synchronizations.forEach(synchronization ->
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void ensureSecondReadIsServedFromCache() {
+        assertEquals(ISBNS, cache.get(READER_1, () -> ISBNS));
+        assertEquals(ISBNS, cache.get(READER_1, () -> fail("should have been cached")));
+    }
+
+    @Test
+    void ensureLeastRecentlyServedReaderIsEvicted() {
+        cache.get(READER_1, () -> ISBNS);
+        cache.get(READER_2, () -> ISBNS);
+        cache.get(READER_1, () -> fail("should have been cached"));
+        cache.get(READER_3, () -> ISBNS);
+
+        cache.get(READER_1, () -> fail("should have been cached"));
+        cache.get(READER_3, () -> fail("should have been cached"));
+        assertEquals(OTHER_ISBNS, cache.get(READER_2, () -> OTHER_ISBNS));
+    }
+
+    @Test
+    void ensureEvictedReaderIsComputedAgain() {
+        cache.get(READER_1, () -> ISBNS);
+        cache.get(READER_2, () -> ISBNS);
+
+        cache.evict(READER_1);
+
+        assertEquals(OTHER_ISBNS, cache.get(READER_1, () -> OTHER_ISBNS));
+        cache.get(READER_2, () -> fail("should have been cached"));
+    }
+
+    @Test
+    void ensureSuggestionsComputedDuringEvictionAreNotCached() {
+        cache.get(READER_1, () -> {
+            cache.evict(READER_1);
+            return ISBNS;
+        });
+        cache.get(READER_2, () -> {
+            cache.clear();
+            return ISBNS;
+        });
+
+        assertEquals(OTHER_ISBNS, cache.get(READER_1, () -> OTHER_ISBNS));
+        assertEquals(OTHER_ISBNS, cache.get(READER_2, () -> OTHER_ISBNS));
+    }
+
+    @Test
+    void ensureReaderIsEvictedAgainOnceTransactionCompletes() {
+        TransactionSynchronizationManager.initSynchronization();
+        cache.evict(READER_1);
+        // computed from data the transaction has not committed yet
+        cache.get(READER_1, () -> ISBNS);
+
+        complete(TransactionSynchronizationManager.getSynchronizations());
+
+        assertEquals(OTHER_ISBNS, cache.get(READER_1, () -> OTHER_ISBNS));
+    }
+
+    @Test
+    void ensureRepeatedClearsInATransactionClearOnceMoreOnCompletion() {
+        TransactionSynchronizationManager.initSynchronization();
+        cache.clear();
+        cache.get(READER_1, () -> ISBNS);
+        cache.clear();
+        cache.clear();
+
+        // later clears are covered by the one once the transaction completes
+        cache.get(READER_1, () -> fail("should have been cached"));
+        final List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        assertEquals(1, synchronizations.size());
+        complete(synchronizations);
+
+        assertEquals(OTHER_ISBNS, cache.get(READER_1, () -> OTHER_ISBNS));
+        assertFalse(TransactionSynchronizationManager.hasResource(cache));
+    }
+
+    @Test
+    void ensureZeroSizeDisablesCache() {
+        final ReaderSuggestionsCache disabled = new ReaderSuggestionsCache(0);
+        disabled.get(READER_1, () -> ISBNS);
+
+        assertEquals(OTHER_ISBNS, disabled.get(READER_1, () -> OTHER_ISBNS));
+        assertThrows(IllegalArgumentException.class, () -> new ReaderSuggestionsCache(-1));
+    }
+}
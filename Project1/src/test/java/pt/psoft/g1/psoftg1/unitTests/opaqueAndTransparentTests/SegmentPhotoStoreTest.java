@@ -0,0 +1,196 @@
+package pt.psoft.g1.psoftg1.unitTests.opaqueAndTransparentTests;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pt.psoft.g1.psoftg1.bootstrapping.PhotoStoreMigration;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl.SegmentPhotoStore;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoStore.StoredPhoto;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageProperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentPhotoStoreTest {
+    // three photos of 1000 bytes fit in a segment
+    private static final long SEGMENT_SIZE = 3200;
+
+    @TempDir
+    Path uploadDir;
+
+    private FileStorageProperties properties;
+    private SegmentPhotoStore store;
+
+    @BeforeEach
+    void setUp() {
+        properties = new FileStorageProperties();
+        properties.setUploadDir(uploadDir.toString());
+        properties.setStore("segments");
+        properties.setSegmentSize(SEGMENT_SIZE);
+        store = new SegmentPhotoStore(properties);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.destroy();
+    }
+
+    private static byte[] photo(int seed) {
+        final byte[] photo = new byte[1000];
+        Arrays.fill(photo, (byte) seed);
+        return photo;
+    }
+
+    private void store(String fileName, byte[] photo) throws Exception {
+        store.store(fileName, new ByteArrayInputStream(photo), photo.length);
+    }
+
+    private byte[] read(String fileName) throws Exception {
+        final StoredPhoto stored = store.find(fileName).orElseThrow();
+        try (InputStream in = stored.content().getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private SegmentPhotoStore reopen() throws Exception {
+        store.destroy();
+        store = new SegmentPhotoStore(properties);
+        return store;
+    }
+
+    private long segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(uploadDir.resolve("segments"))) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void ensurePhotosAreStoredReplacedAndDeleted() throws Exception {
+        store("a.png", photo(1));
+        assertArrayEquals(photo(1), read("a.png"));
+        assertEquals(1000, store.find("a.png").orElseThrow().size());
+
+        store("a.png", photo(2));
+        assertArrayEquals(photo(2), read("a.png"));
+
+        assertTrue(store.delete("a.png"));
+        assertTrue(store.find("a.png").isEmpty());
+        assertFalse(store.delete("a.png"));
+    }
+
+    @Test
+    void ensurePhotosReadBeforeBeingReplacedStayReadable() throws Exception {
+        store("a.png", photo(1));
+        final StoredPhoto before = store.find("a.png").orElseThrow();
+
+        store("a.png", photo(2));
+        store.delete("a.png");
+
+        try (InputStream in = before.content().getInputStream()) {
+            assertArrayEquals(photo(1), in.readAllBytes());
+        }
+    }
+
+    @Test
+    void ensureIndexIsRebuiltFromSegments() throws Exception {
+        store.store("a.png", new ByteArrayInputStream(photo(1)), 1000, 1234L);
+        store("b.png", photo(2));
+        store("b.png", photo(3));
+        store("c.png", photo(4));
+        store.delete("c.png");
+
+        reopen();
+
+        assertArrayEquals(photo(1), read("a.png"));
+        assertEquals(1234L, store.find("a.png").orElseThrow().lastModified());
+        assertArrayEquals(photo(3), read("b.png"));
+        assertTrue(store.find("c.png").isEmpty());
+    }
+
+    @Test
+    void ensureFullSegmentRollsOver() throws Exception {
+        for (int i = 0; i < 7; i++) {
+            store(i + ".png", photo(i));
+        }
+
+        assertEquals(3, store.segmentCount());
+        for (int i = 0; i < 7; i++) {
+            assertArrayEquals(photo(i), read(i + ".png"));
+        }
+    }
+
+    @Test
+    void ensureMostlyDeadSegmentIsCompacted() throws Exception {
+        store("a.png", photo(1));
+        store("b.png", photo(2));
+        store("c.png", photo(3));
+        store("d.png", photo(4));
+        assertEquals(2, segmentFiles());
+
+        store.delete("a.png");
+        assertEquals(2, segmentFiles());
+        // b.png is then the only live photo of the first segment, and is moved
+        store.delete("c.png");
+
+        assertEquals(1, store.segmentCount());
+        assertFalse(Files.exists(uploadDir.resolve("segments").resolve("segment-000000.dat")));
+        assertArrayEquals(photo(2), read("b.png"));
+
+        reopen();
+        assertArrayEquals(photo(2), read("b.png"));
+        assertArrayEquals(photo(4), read("d.png"));
+        assertTrue(store.find("a.png").isEmpty());
+        assertTrue(store.find("c.png").isEmpty());
+    }
+
+    @Test
+    void ensureShortOrTornRecordIsDropped() throws Exception {
+        store("a.png", photo(1));
+        assertThrows(EOFException.class,
+                () -> store.store("b.png", new ByteArrayInputStream(new byte[10]), 1000));
+        assertTrue(store.find("b.png").isEmpty());
+        store("c.png", photo(3));
+
+        // corrupt the content of c.png
+        final Path segment = uploadDir.resolve("segments").resolve("segment-000000.dat");
+        final byte[] bytes = Files.readAllBytes(segment);
+        bytes[2000] ^= 1;
+        store.destroy();
+        Files.write(segment, bytes);
+
+        reopen();
+        assertArrayEquals(photo(1), read("a.png"));
+        assertTrue(store.find("c.png").isEmpty());
+        store("d.png", photo(4));
+        assertArrayEquals(photo(4), read("d.png"));
+    }
+
+    @Test
+    void ensureMigrationMovesUploadedFilesIntoSegments() throws Exception {
+        final Path file = uploadDir.resolve("old.png");
+        Files.write(file, photo(5));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_000_000L));
+        Files.write(uploadDir.resolve("again.png"), photo(6));
+        store("again.png", photo(7));
+
+        final PhotoStoreMigration migration = new PhotoStoreMigration(properties, store);
+
+        assertEquals(1, migration.migrate());
+        assertArrayEquals(photo(5), read("old.png"));
+        assertEquals(1_000_000L, store.find("old.png").orElseThrow().lastModified());
+        // already stored by an earlier run
+        assertArrayEquals(photo(7), read("again.png"));
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(uploadDir.resolve("again.png")));
+        assertEquals(0, migration.migrate());
+    }
+}
@@ -0,0 +1,83 @@
+package pt.psoft.g1.psoftg1.unitTests.opaqueAndTransparentTests;
+
+import org.junit.jupiter.api.Test;
+import pt.psoft.g1.psoftg1.shared.services.DailyTopKCounter;
+import pt.psoft.g1.psoftg1.shared.services.TopKCounter;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKCounterTest {
+    private final LocalDate today = LocalDate.now();
+
+    @Test
+    void ensureKIsPositive() {
+        assertThrows(IllegalArgumentException.class, () -> new TopKCounter<String>().top(0));
+    }
+
+    @Test
+    void ensureTopIsOrderedByCountThenKey() {
+        final TopKCounter<String> counter = new TopKCounter<>();
+        counter.add("a", 1);
+        counter.add("b", 3);
+        counter.add("c", 3);
+        counter.add("d", 2);
+
+        assertEquals(List.of(new TopKCounter.Ranked<>("b", 3), new TopKCounter.Ranked<>("c", 3),
+                new TopKCounter.Ranked<>("d", 2)), counter.top(3));
+    }
+
+    @Test
+    void ensureKeysWithoutCountsAreNotRanked() {
+        final TopKCounter<String> counter = new TopKCounter<>();
+        counter.add("a", 1);
+        counter.add("b", 1);
+        counter.add("a", -1);
+
+        assertEquals(List.of(new TopKCounter.Ranked<>("b", 1)), counter.top(5));
+    }
+
+    @Test
+    void ensureResetReplacesCounts() {
+        final TopKCounter<String> counter = new TopKCounter<>();
+        counter.add("a", 10);
+        counter.reset(Map.of("b", 2L));
+
+        assertEquals(List.of(new TopKCounter.Ranked<>("b", 2)), counter.top(5));
+    }
+
+    @Test
+    void ensureDaysOutsideWindowAreNotCounted() {
+        final DailyTopKCounter<String> counter = new DailyTopKCounter<>(Period.ofDays(7));
+        counter.add("a", today.minusDays(7), 5, today);
+        counter.add("b", today.minusDays(6), 1, today);
+
+        assertEquals(List.of(new TopKCounter.Ranked<>("b", 1)), counter.top(5, today));
+    }
+
+    @Test
+    void ensureWindowSlides() {
+        final DailyTopKCounter<String> counter = new DailyTopKCounter<>(Period.ofDays(7));
+        counter.add("a", today, 2, today);
+        counter.add("b", today.minusDays(6), 3, today);
+        assertEquals("b", counter.top(1, today).get(0).key());
+
+        assertEquals(List.of(new TopKCounter.Ranked<>("a", 2)), counter.top(5, today.plusDays(1)));
+    }
+
+    @Test
+    void ensureRangeQueriesOnlyCountDaysInRange() {
+        final DailyTopKCounter<String> counter = new DailyTopKCounter<>(null);
+        counter.add("a", today.minusYears(3), 5, today);
+        counter.add("b", today.minusDays(1), 1, today);
+        counter.add("b", today, 1, today);
+
+        assertEquals(List.of(new TopKCounter.Ranked<>("b", 2)), counter.top(5, today.minusDays(1), today));
+        assertEquals(List.of(new TopKCounter.Ranked<>("a", 5), new TopKCounter.Ranked<>("b", 1)),
+                counter.top(5, today.minusYears(3), today.minusDays(1)));
+    }
+}
@@ -4,10 +4,9 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
-import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
@@ -25,6 +24,7 @@ import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.PhotoDelivery;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -39,6 +39,7 @@ public class AuthorController {
     private final AuthorViewMapper authorViewMapper;
     private final ConcurrencyService concurrencyService;
     private final FileStorageService fileStorageService;
+    private final PhotoDelivery photoDelivery;
     private final BookViewMapper bookViewMapper;
 
     // Create
@@ -128,8 +129,10 @@ public class AuthorController {
     @Operation(summary = "Gets a author photo")
     @GetMapping("/{authorNumber}/photo")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<byte[]> getSpecificAuthorPhoto(
-            @PathVariable("authorNumber") @Parameter(description = "The number of the Author to find") final Long authorNumber) {
+    public ResponseEntity<Resource> getSpecificAuthorPhoto(
+            @PathVariable("authorNumber") @Parameter(description = "The number of the Author to find") final Long authorNumber,
+            @RequestParam(value = "size", required = false) @Parameter(description = "small or medium, for a smaller copy of the photo") final String size,
+            final WebRequest request) {
 
         Author authorDetails = authorService.findByAuthorNumber(authorNumber)
                 .orElseThrow(() -> new NotFoundException(Author.class, authorNumber));
@@ -139,17 +142,7 @@ public class AuthorController {
             return ResponseEntity.ok().build();
         }
 
-        String photoFile = authorDetails.getPhoto().getPhotoFile();
-        byte[] image = this.fileStorageService.getFile(photoFile);
-        String fileFormat = this.fileStorageService.getExtension(authorDetails.getPhoto().getPhotoFile())
-                .orElseThrow(() -> new ValidationException("Unable to get file extension"));
-
-        if (image == null) {
-            return ResponseEntity.ok().build();
-        }
-
-        return ResponseEntity.ok().contentType(fileFormat.equals("png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG)
-                .body(image);
+        return this.photoDelivery.photo(authorDetails.getPhoto().getPhotoFile(), size, request);
     }
 
     // Co-authors and their respective books
@@ -182,7 +175,6 @@ public class AuthorController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
-        this.fileStorageService.deleteFile(author.getPhoto().getPhotoFile());
         authorService.removeAuthorPhoto(author.getAuthorNumber(), author.getVersion());
 
         return ResponseEntity.ok().build();
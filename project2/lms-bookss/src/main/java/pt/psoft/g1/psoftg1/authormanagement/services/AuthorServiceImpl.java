@@ -10,8 +10,9 @@ import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
 import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookCache;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
-import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.PhotoReferences;
 
 import java.util.List;
 import java.util.Optional;
@@ -22,7 +23,8 @@ public class AuthorServiceImpl implements AuthorService {
     private final AuthorRepository authorRepository;
     private final BookRepository bookRepository;
     private final AuthorMapper mapper;
-    private final PhotoRepository photoRepository;
+    private final PhotoReferences photoReferences;
+    private final BookCache bookCache;
 
     @Override
     public Iterable<Author> findAll() {
@@ -57,7 +59,9 @@ public class AuthorServiceImpl implements AuthorService {
             resource.setPhotoURI(null);
         }
         final Author author = mapper.create(resource);
-        return authorRepository.save(author);
+        final Author saved = authorRepository.save(author);
+        photoReferences.acquire(resource.getPhotoURI(), resource.getPhoto());
+        return saved;
     }
 
     @Override
@@ -88,7 +92,13 @@ public class AuthorServiceImpl implements AuthorService {
         // in the meantime some other user might have changed this object on the
         // database, so concurrency control will still be applied when we try to save
         // this updated object
-        return authorRepository.save(author);
+        final Author saved = authorRepository.save(author);
+        photoReferences.acquire(request.getPhotoURI(), request.getPhoto());
+        if (request.getName() != null) {
+            // cached books hold the author, and with it the old name
+            bookRepository.findBooksByAuthorNumber(authorNumber).forEach(book -> bookCache.invalidate(book.getIsbn()));
+        }
+        return saved;
     }
 
     @Override
@@ -109,7 +119,7 @@ public class AuthorServiceImpl implements AuthorService {
         String photoFile = author.getPhoto().getPhotoFile();
         author.removePhoto(desiredVersion);
         Optional<Author> updatedAuthor = Optional.of(authorRepository.save(author));
-        photoRepository.deleteByPhotoFile(photoFile);
+        photoReferences.release(photoFile);
         return updatedAuthor;
     }
 
@@ -1,12 +1,12 @@
 package pt.psoft.g1.psoftg1.bookmanagement.api;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
-import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.WebRequest;
@@ -23,6 +23,7 @@ import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.shared.api.ListResponse;
 import pt.psoft.g1.psoftg1.shared.services.ConcurrencyService;
 import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.PhotoDelivery;
 import pt.psoft.g1.psoftg1.shared.services.SearchRequest;
 
 import java.util.Comparator;
@@ -39,6 +40,7 @@ public class BookController {
     private final BookService bookService;
     private final ConcurrencyService concurrencyService;
     private final FileStorageService fileStorageService;
+    private final PhotoDelivery photoDelivery;
 
     private final BookViewMapper bookViewMapper;
 
@@ -153,7 +155,9 @@ public class BookController {
     @Operation(summary = "Gets a book photo")
     @GetMapping("/{isbn}/photo")
     @ResponseStatus(HttpStatus.OK)
-    public ResponseEntity<byte[]> getSpecificBookPhoto(@PathVariable("isbn") final String isbn) {
+    public ResponseEntity<Resource> getSpecificBookPhoto(@PathVariable("isbn") final String isbn,
+            @RequestParam(value = "size", required = false) @Parameter(description = "small or medium, for a smaller copy of the photo") final String size,
+            final WebRequest request) {
 
         Book book = bookService.findByIsbn(isbn);
 
@@ -162,18 +166,7 @@ public class BookController {
             return ResponseEntity.ok().build();
         }
 
-        String photoFile = book.getPhoto().getPhotoFile();
-        byte[] image = fileStorageService.getFile(photoFile);
-        String fileFormat = fileStorageService.getExtension(book.getPhoto().getPhotoFile())
-                .orElseThrow(() -> new ValidationException("Unable to get file extension"));
-
-        if (image == null) {
-            return ResponseEntity.ok().build();
-        }
-
-        return ResponseEntity.ok().contentType(fileFormat.equals("png") ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG)
-                .body(image);
-
+        return photoDelivery.photo(book.getPhoto().getPhotoFile(), size, request);
     }
 
     @Operation(summary = "Deletes a book photo")
@@ -185,7 +178,6 @@ public class BookController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
-        fileStorageService.deleteFile(book.getPhoto().getPhotoFile());
         bookService.removeBookPhoto(book.getIsbn(), book.getVersion());
 
         return ResponseEntity.ok().build();
@@ -48,6 +48,9 @@ public abstract class BookViewMapper extends MapperInterface {
 
         links.put("authors", authorLinks);
         links.put("photo", generatePhotoUrl(book));
+        String photoContentUri = generatePhotoContentUrl(book);
+        if (photoContentUri != null)
+            links.put("photoContent", photoContentUri);
 
         return links;
     }
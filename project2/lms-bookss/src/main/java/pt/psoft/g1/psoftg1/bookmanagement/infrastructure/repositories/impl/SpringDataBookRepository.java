@@ -25,9 +25,13 @@ import java.util.Optional;
 
 public interface SpringDataBookRepository extends BookRepository, BookRepoCustom, CrudRepository<Book, Isbn> {
 
-    @Query("SELECT b " + "FROM Book b " + "WHERE b.isbn.isbn = :isbn")
+    @Query("SELECT b " + "FROM Book b " + "LEFT JOIN FETCH b.authors " + "WHERE b.isbn.isbn = :isbn")
     Optional<Book> findByIsbn(@Param("isbn") String isbn);
 
+    @Override
+    @Query("SELECT b.isbn.isbn FROM Book b")
+    List<String> listAllIsbns();
+
 //    @Override
 //    @Query("SELECT new pt.psoft.g1.psoftg1.bookmanagement.services.BookCountDTO(b, COUNT(l)) " + "FROM Book b "
 //            + "JOIN Lending l ON l.book = b " + "WHERE l.startDate > :oneYearAgo " + "GROUP BY b "
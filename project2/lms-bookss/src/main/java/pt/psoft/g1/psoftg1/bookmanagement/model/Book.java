@@ -5,6 +5,8 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import org.hibernate.StaleObjectStateException;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
+import pt.psoft.g1.psoftg1.bookmanagement.services.BookCacheListener;
+import pt.psoft.g1.psoftg1.bookmanagement.services.IsbnFilterListener;
 import pt.psoft.g1.psoftg1.bookmanagement.services.UpdateBookRequest;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
@@ -15,6 +17,7 @@ import java.util.List;
 import java.util.Objects;
 
 @Entity
+@EntityListeners({ BookCacheListener.class, IsbnFilterListener.class })
 @Table(name = "Book", uniqueConstraints = { @UniqueConstraint(name = "uc_book_isbn", columnNames = { "ISBN" }) })
 public class Book extends EntityWithPhoto {
     @Id
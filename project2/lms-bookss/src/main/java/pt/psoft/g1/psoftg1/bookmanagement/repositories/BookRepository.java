@@ -24,6 +24,8 @@ public interface BookRepository {
 
     Optional<Book> findByIsbn(@Param("isbn") String isbn);
 
+    List<String> listAllIsbns();
+
 //    Page<BookCountDTO> findTop5BooksLent(@Param("oneYearAgo") LocalDate oneYearAgo, Pageable pageable);
 
     List<Book> findBooksByAuthorNumber(Long authorNumber);
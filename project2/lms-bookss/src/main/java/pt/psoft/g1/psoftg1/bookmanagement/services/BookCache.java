@@ -0,0 +1,145 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of books by ISBN, holding at most {@code bookCacheMaxSize} books and evicting the least
+ * recently read one when full ({@code 0} disables it).
+ * <p>
+ * Cached books are detached snapshots shared by every reader, so they must not be modified: code that changes a
+ * book loads its own copy from the repository, and {@link BookCacheListener} invalidates the ISBN whenever a book
+ * is written. A book loaded outside a transaction is detached from the persistence context that is open for the
+ * request before it is cached, so the caller's later loads get a managed instance of their own; one loaded inside a
+ * transaction is managed by it and may carry its uncommitted changes, so it is returned without being cached.
+ * <p>
+ * Every invalidation bumps a generation, and a book loaded while the generation changed is not stored,
+ * so a read that raced with a write never caches the old state; an entry is also never replaced by a book with an
+ * older {@code version}.
+ * <p>
+ * Hits, misses, evictions and size are published as the {@code cache.*} meters, tagged {@code cache=books}.
+ */
+@Component
+@PropertySource({"classpath:config/library.properties"})
+public class BookCache implements MeterBinder {
+    private final int maxSize;
+    private final Map<String, Book> books;
+    private final EntityManager entityManager;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public BookCache(@Value("${bookCacheMaxSize}") final int maxSize, final EntityManager entityManager) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("Book cache size cannot be negative");
+        this.maxSize = maxSize;
+        this.entityManager = entityManager;
+        this.books = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Book> eldest) {
+                if (size() <= BookCache.this.maxSize)
+                    return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @param load loads the book when it is not cached
+     * @return the book with the given ISBN, if there is one
+     */
+    public Optional<Book> get(final String isbn, final Function<String, Optional<Book>> load) {
+        final long loadGeneration;
+        synchronized (this) {
+            final Book cached = books.get(isbn);
+            if (cached != null) {
+                hits++;
+                return Optional.of(cached);
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        final Optional<Book> loaded = load.apply(isbn);
+        if (loaded.isEmpty() || TransactionSynchronizationManager.isActualTransactionActive())
+            return loaded;
+        entityManager.detach(loaded.get());
+        store(loaded.get(), loadGeneration);
+        return loaded;
+    }
+
+    /**
+     * Evicts the book, now and again once the surrounding transaction completes.
+     */
+    public void invalidate(final String isbn) {
+        doInvalidate(isbn);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    doInvalidate(isbn);
+                }
+            });
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, books.size());
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", this, cache -> cache.stats().hits())
+                .tags("cache", "books", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, cache -> cache.stats().misses())
+                .tags("cache", "books", "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", this, cache -> cache.stats().evictions())
+                .tags("cache", "books")
+                .register(registry);
+        Gauge.builder("cache.size", this, cache -> cache.stats().size())
+                .tags("cache", "books")
+                .register(registry);
+    }
+
+    private synchronized void store(final Book book, final long loadGeneration) {
+        if (maxSize == 0 || generation != loadGeneration)
+            return;
+        final Book current = books.get(book.getIsbn());
+        if (current != null && isOlder(book.getVersion(), current.getVersion()))
+            return;
+        books.put(book.getIsbn(), book);
+    }
+
+    private synchronized void doInvalidate(final String isbn) {
+        generation++;
+        books.remove(isbn);
+    }
+
+    private static boolean isOlder(final Long version, final Long than) {
+        return than != null && (version == null || version < than);
+    }
+
+    /**
+     * @param size number of books currently cached
+     */
+    public record Stats(long hits, long misses, long evictions, int size) {
+    }
+}
@@ -0,0 +1,26 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+
+/**
+ * JPA entity listener that evicts every written {@code Book} from the {@link BookCache}, whichever code path
+ * wrote it, including updates replicated from other instances by {@code BookRabbitmqController}.
+ * <p>
+ * The cache is optional so that JPA-only slices still work.
+ */
+@RequiredArgsConstructor
+public class BookCacheListener {
+    private final ObjectProvider<BookCache> bookCache;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void onWrite(final Book book) {
+        bookCache.ifAvailable(cache -> cache.invalidate(book.getIsbn()));
+    }
+}
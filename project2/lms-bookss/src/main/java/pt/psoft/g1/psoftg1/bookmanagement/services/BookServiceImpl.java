@@ -16,7 +16,7 @@ import pt.psoft.g1.psoftg1.authormanagement.repositories.AuthorRepository;
 import pt.psoft.g1.psoftg1.exceptions.ConflictException;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.genremanagement.model.Genre;
-import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+import pt.psoft.g1.psoftg1.shared.services.PhotoReferences;
 import pt.psoft.g1.psoftg1.shared.services.Page;
 
 import java.util.ArrayList;
@@ -31,9 +31,11 @@ public class BookServiceImpl implements BookService {
     private final BookRepository bookRepository;
     private final GenreRepository genreRepository;
     private final AuthorRepository authorRepository;
-    private final PhotoRepository photoRepository;
+    private final PhotoReferences photoReferences;
 
     private final BookEventsPublisher bookEventsPublisher;
+    private final BookCache bookCache;
+    private final IsbnFilter isbnFilter;
 
     @Value("${suggestionsLimitPerGenre}")
     private long suggestionsLimitPerGenre;
@@ -48,6 +50,7 @@ public class BookServiceImpl implements BookService {
         final List<Long> authorIds = request.getAuthors();
 
         Book savedBook = create(isbn, title, description, photoURI, genre, authorIds);
+        photoReferences.acquire(photoURI, request.getPhoto());
 
         if( savedBook!=null ) {
             bookEventsPublisher.sendBookCreated(savedBook);
@@ -78,7 +81,11 @@ public class BookServiceImpl implements BookService {
                             String genreName,
                             List<Long> authorIds) {
 
-        if (bookRepository.findByIsbn(isbn).isPresent()) {
+        // most new ISBNs are known to be absent, and replicated creates of a book this instance just created are
+        // known to be present, so only the others are looked up
+        final IsbnFilter.Membership membership = isbnFilter.check(isbn);
+        if (membership == IsbnFilter.Membership.PRESENT
+                || membership == IsbnFilter.Membership.UNKNOWN && bookRepository.findByIsbn(isbn).isPresent()) {
             throw new ConflictException("Book with ISBN " + isbn + " already exists");
         }
 
@@ -97,7 +104,7 @@ public class BookServiceImpl implements BookService {
     @Override
     public Book update(UpdateBookRequest request, Long currentVersion) {
 
-        var book = findByIsbn(request.getIsbn());
+        var book = loadByIsbn(request.getIsbn());
 
         List<Long> authorsId = request.getAuthors();
 
@@ -112,6 +119,7 @@ public class BookServiceImpl implements BookService {
         String description = request.getDescription();
 
         Book updatedBook = update( book, currentVersion, title, description, photoURI, genreId, authorsId);
+        photoReferences.acquire(photoURI, photo);
         if( updatedBook!=null ) {
             bookEventsPublisher.sendBookUpdated(updatedBook, currentVersion);
         }
@@ -130,7 +138,7 @@ public class BookServiceImpl implements BookService {
         final String genre = bookViewAMQP.getGenre();
         final List<Long> authorIds = bookViewAMQP.getAuthorIds();
 
-        var book = findByIsbn(isbn);
+        var book = loadByIsbn(isbn);
 
         Book bookUpdated = update(book, version, title, description, photoURI, genre, authorIds);
 
@@ -177,7 +185,7 @@ public class BookServiceImpl implements BookService {
 
     @Override
     public Book removeBookPhoto(String isbn, long desiredVersion) {
-        Book book = this.findByIsbn(isbn);
+        Book book = loadByIsbn(isbn);
         String photoFile;
         try {
             photoFile = book.getPhoto().getPhotoFile();
@@ -189,7 +197,7 @@ public class BookServiceImpl implements BookService {
 
         var deletedBook = bookRepository.save(book);
         if( deletedBook!=null ) {
-            photoRepository.deleteByPhotoFile(photoFile);
+            photoReferences.release(photoFile);
 
             bookEventsPublisher.sendBookDeleted(deletedBook, desiredVersion);
         }
@@ -210,7 +218,17 @@ public class BookServiceImpl implements BookService {
         return bookRepository.findByAuthorName(authorName + "%");
     }
 
+    /**
+     * @return the cached snapshot of the book, which must not be modified
+     */
     public Book findByIsbn(String isbn) {
+        return bookCache.get(isbn, bookRepository::findByIsbn).orElseThrow(() -> new NotFoundException(Book.class, isbn));
+    }
+
+    /**
+     * Loads a copy of the book that can be modified and saved.
+     */
+    private Book loadByIsbn(String isbn) {
         return this.bookRepository.findByIsbn(isbn).orElseThrow(() -> new NotFoundException(Book.class, isbn));
     }
 
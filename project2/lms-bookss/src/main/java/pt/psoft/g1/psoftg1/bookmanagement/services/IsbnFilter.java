@@ -0,0 +1,147 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.shared.services.TransactionCallbacks;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tells whether a book with a given ISBN may exist without asking the database.
+ * <p>
+ * It is a Bloom filter sized for {@code isbnFilterExpectedBooks} ISBNs at a 1% false positive rate, so an ISBN it
+ * has never been given is {@link Membership#ABSENT} for certain, and any other one is {@link Membership#UNKNOWN}
+ * and must be looked up. The {@code isbnFilterRecentSize} ISBNs most recently committed are also kept exactly, so
+ * creating a book that was just created, as duplicate or echoed events do, is {@link Membership#PRESENT} without
+ * a lookup.
+ * <p>
+ * Bits are only ever set, never cleared, so a book that is removed, or whose insert rolls back, is at worst
+ * looked up. It is filled from the database once the application is ready (see {@link IsbnFilterReconciliation})
+ * and kept current by {@link IsbnFilterListener}; until then no ISBN is absent. The unique constraint on
+ * {@code Book.isbn} remains the final guard against duplicates.
+ */
+@Component
+@PropertySource({"classpath:config/library.properties"})
+public class IsbnFilter {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    public enum Membership {
+        ABSENT, PRESENT, UNKNOWN
+    }
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final Map<String, Boolean> recent;
+    private volatile boolean loaded;
+
+    public IsbnFilter(@Value("${isbnFilterExpectedBooks}") final int expectedBooks,
+                      @Value("${isbnFilterRecentSize}") final int recentSize) {
+        if (expectedBooks < 1)
+            throw new IllegalArgumentException("ISBN filter must expect at least one book");
+        if (recentSize < 0)
+            throw new IllegalArgumentException("ISBN filter recent size cannot be negative");
+        final double ln2 = Math.log(2);
+        final long words = (long) Math.ceil(-expectedBooks * Math.log(FALSE_POSITIVE_RATE) / (ln2 * ln2) / Long.SIZE);
+        this.bits = new AtomicLongArray(Math.toIntExact(words));
+        this.bitCount = words * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedBooks * ln2));
+        this.recent = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Boolean> eldest) {
+                return size() > recentSize;
+            }
+        };
+    }
+
+    /**
+     * @return whether the filter has been filled from the database, i.e. whether it can tell an ISBN is absent
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public Membership check(final String isbn) {
+        synchronized (recent) {
+            if (recent.containsKey(isbn))
+                return Membership.PRESENT;
+        }
+        if (!loaded)
+            return Membership.UNKNOWN;
+
+        final long hash = hash(isbn);
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = bitOf(hash, i);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                return Membership.ABSENT;
+        }
+        return Membership.UNKNOWN;
+    }
+
+    /**
+     * Adds the ISBN of a book being inserted. It may be found right away, and is known to be present once the
+     * current transaction commits.
+     */
+    public void add(final String isbn) {
+        set(isbn);
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (recent) {
+                recent.put(isbn, Boolean.TRUE);
+            }
+        });
+    }
+
+    /**
+     * Forgets that the ISBN is known to be present; it stays in the Bloom filter, so it will be looked up.
+     */
+    public void removed(final String isbn) {
+        synchronized (recent) {
+            recent.remove(isbn);
+        }
+    }
+
+    /**
+     * Adds the ISBNs of every book, keeping those added meanwhile, and starts reporting absent ISBNs.
+     */
+    public void rebuild(final Collection<String> isbns) {
+        isbns.forEach(this::set);
+        loaded = true;
+    }
+
+    private void set(final String isbn) {
+        final long hash = hash(isbn);
+        for (int i = 0; i < hashCount; i++) {
+            final long bit = bitOf(hash, i);
+            final int word = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                // another bit of the same word was set meanwhile, try again
+            }
+        }
+    }
+
+    /**
+     * @return the {@code i}-th bit of the ISBN, derived from the two halves of its hash
+     */
+    private long bitOf(final long hash, final int i) {
+        return Math.floorMod((int) hash + (long) i * (int) (hash >>> 32), bitCount);
+    }
+
+    /**
+     * FNV-1a over the characters, followed by the MurmurHash3 finalizer so both halves are well mixed.
+     */
+    private static long hash(final String isbn) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < isbn.length(); i++) {
+            hash = (hash ^ isbn.charAt(i)) * 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
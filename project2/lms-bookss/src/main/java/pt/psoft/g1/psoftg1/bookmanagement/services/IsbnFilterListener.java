@@ -0,0 +1,28 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+
+/**
+ * JPA entity listener that keeps the {@link IsbnFilter} current with every inserted or removed {@code Book},
+ * whichever code path wrote it.
+ * <p>
+ * The filter is optional so that JPA-only slices still work.
+ */
+@RequiredArgsConstructor
+public class IsbnFilterListener {
+    private final ObjectProvider<IsbnFilter> isbnFilter;
+
+    @PostPersist
+    void onInsert(final Book book) {
+        isbnFilter.ifAvailable(filter -> filter.add(book.getIsbn()));
+    }
+
+    @PostRemove
+    void onRemove(final Book book) {
+        isbnFilter.ifAvailable(filter -> filter.removed(book.getIsbn()));
+    }
+}
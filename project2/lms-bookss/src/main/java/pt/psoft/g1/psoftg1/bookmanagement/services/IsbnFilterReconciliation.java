@@ -0,0 +1,22 @@
+package pt.psoft.g1.psoftg1.bookmanagement.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.bookmanagement.repositories.BookRepository;
+
+/**
+ * Fills the {@link IsbnFilter} from the {@code Book} table once the application is ready.
+ */
+@Component
+@RequiredArgsConstructor
+public class IsbnFilterReconciliation {
+    private final BookRepository bookRepository;
+    private final IsbnFilter isbnFilter;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        isbnFilter.rebuild(bookRepository.listAllIsbns());
+    }
+}
@@ -0,0 +1,63 @@
+package pt.psoft.g1.psoftg1.bootstrapping;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl.SegmentPhotoStore;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Moves the photos left as files in {@code file.upload-dir} into the segment files, keeping their modification time,
+ * when the application is run with {@code file.store=segments} and the {@code migrate-photos} profile.
+ * <p>
+ * Each file is deleted once its photo is stored, so the migration can be run again after being interrupted; a file
+ * whose photo is already in the segments was stored by such a run, and is only deleted.
+ */
+@Component
+@RequiredArgsConstructor
+@Profile("migrate-photos")
+@ConditionalOnProperty(prefix = "file", name = "store", havingValue = "segments")
+@Order(1)
+public class PhotoStoreMigration implements CommandLineRunner {
+    private final FileStorageProperties fileStorageProperties;
+    private final SegmentPhotoStore segmentPhotoStore;
+
+    @Override
+    public void run(final String... args) throws IOException {
+        migrate();
+    }
+
+    /**
+     * @return the number of photos moved into the segments
+     */
+    public int migrate() throws IOException {
+        final Path uploadDir = Paths.get(fileStorageProperties.getUploadDir()).toAbsolutePath().normalize();
+        int migrated = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(uploadDir, Files::isRegularFile)) {
+            for (final Path file : files) {
+                final String fileName = file.getFileName().toString();
+                if (!segmentPhotoStore.contains(fileName)) {
+                    final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    try (InputStream content = Files.newInputStream(file)) {
+                        segmentPhotoStore.store(fileName, content, attributes.size(),
+                                attributes.lastModifiedTime().toMillis());
+                    }
+                    migrated++;
+                }
+                Files.delete(file);
+            }
+        }
+        return migrated;
+    }
+}
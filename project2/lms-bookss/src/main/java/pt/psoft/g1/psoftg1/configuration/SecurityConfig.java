@@ -118,6 +118,9 @@ public class SecurityConfig {
                 //.requestMatchers(HttpMethod.GET, "/api/books/suggestions").hasRole(Role.READER)
                 .requestMatchers(HttpMethod.POST, "/api/books/search").hasAnyRole(Role.LIBRARIAN, Role.READER)
                 // endBooks
+                // photos
+                .requestMatchers(HttpMethod.GET, "/api/photos/{photoFile}").hasAnyRole(Role.READER, Role.LIBRARIAN)
+                // end photos
 //                // genres
 //                .requestMatchers(HttpMethod.GET, "/api/genres/top5").hasRole(Role.LIBRARIAN)
 //                .requestMatchers(HttpMethod.GET, "/api/genres/avgLendings").hasRole(Role.LIBRARIAN)
@@ -4,6 +4,8 @@ import org.mapstruct.Named;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import pt.psoft.g1.psoftg1.authormanagement.model.Author;
 import pt.psoft.g1.psoftg1.bookmanagement.model.Book;
+import pt.psoft.g1.psoftg1.shared.model.EntityWithPhoto;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -32,6 +34,17 @@ public abstract class MapperInterface {
         return i.orElse(null);
     }
 
+    /**
+     * @return the URL of the photo of the entity, which never changes content, or null if the photo is not named
+     *         after its content
+     */
+    protected String generatePhotoContentUrl(EntityWithPhoto entity) {
+        if (entity.getPhoto() == null || FileStorageService.contentHash(entity.getPhoto().getPhotoFile()).isEmpty())
+            return null;
+        return ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/photos/{photoFile}")
+                .buildAndExpand(entity.getPhoto().getPhotoFile()).toUri().toString();
+    }
+
     @Named(value = "bookLink")
     protected Map<String, String> mapBookLink(Book book) {
         Map<String, String> bookLink = new HashMap<>();
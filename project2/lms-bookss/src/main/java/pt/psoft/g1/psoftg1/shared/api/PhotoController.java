@@ -0,0 +1,51 @@
+package pt.psoft.g1.psoftg1.shared.api;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageService;
+import pt.psoft.g1.psoftg1.shared.services.PhotoDelivery;
+import pt.psoft.g1.psoftg1.shared.services.PhotoReferences;
+
+import java.time.Duration;
+
+@Tag(name = "Photos", description = "Endpoints for downloading photos by content")
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/photos")
+public class PhotoController {
+    // a photo named after its content never changes, so it can be cached for good
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+    private final PhotoDelivery photoDelivery;
+    private final PhotoReferences photoReferences;
+
+    /**
+     * Only sends the photos of books and authors, which every user may see, so they can be cached publicly.
+     */
+    @Operation(summary = "Gets a book or author photo by the name given to its content")
+    @GetMapping("/{photoFile}")
+    public ResponseEntity<Resource> getPhoto(@PathVariable("photoFile") final String photoFile,
+                                             final WebRequest request) {
+        if (FileStorageService.contentHash(photoFile).isEmpty() || !photoReferences.isCatalogued(photoFile))
+            throw new NotFoundException("Photo not found: " + photoFile);
+
+        final ResponseEntity<Resource> photo = photoDelivery.photo(photoFile, request);
+        if (!photo.hasBody())
+            throw new NotFoundException("Photo not found: " + photoFile);
+
+        return ResponseEntity.status(photo.getStatusCode())
+                .headers(photo.getHeaders())
+                .cacheControl(IMMUTABLE)
+                .body(photo.getBody());
+    }
+}
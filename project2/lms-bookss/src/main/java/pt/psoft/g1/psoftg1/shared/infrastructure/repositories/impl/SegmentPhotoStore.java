@@ -0,0 +1,370 @@
+package pt.psoft.g1.psoftg1.shared.infrastructure.repositories.impl;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import pt.psoft.g1.psoftg1.exceptions.FileStorageException;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoStore;
+import pt.psoft.g1.psoftg1.shared.services.ByteBufferResource;
+import pt.psoft.g1.psoftg1.shared.services.FileStorageProperties;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Appends photos to memory-mapped segment files of {@code file.segment-size} bytes in
+ * {@code file.upload-dir/segments}, instead of writing a file per photo.
+ * <p>
+ * A record is a header (magic, CRC-32, kind, time stored, name and content lengths) followed by the file name and
+ * the content; deleting a photo appends a tombstone record. Segments are preallocated, so a zero magic marks the end
+ * of the records, and a record is only written after its content, so a record torn by a crash is dropped when the
+ * segments are opened again. The index of the live photos is kept in memory and rebuilt on startup by replaying the
+ * records of every segment, oldest first.
+ * <p>
+ * Once more than half of a full segment is taken by replaced or deleted photos and by tombstones, its live records
+ * are copied to the segment being written and the file is deleted. Photos are read straight from the mappings, which
+ * stay valid after their segment was compacted away.
+ */
+@Component
+@ConditionalOnProperty(prefix = "file", name = "store", havingValue = "segments")
+public class SegmentPhotoStore implements PhotoStore, DisposableBean {
+    static final String SEGMENTS_DIR = "segments";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private static final int MAGIC = 0x50485431;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    // magic, crc, kind, storedAt, name length, content length
+    private static final int HEADER_SIZE = 4 + 4 + 1 + 8 + 2 + 4;
+    private static final int CRC_START = 8;
+    private static final double COMPACTION_RATIO = 0.5;
+
+    private final Path location;
+    private final int segmentSize;
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final Map<String, Location> index = new HashMap<>();
+    private Segment active;
+
+    public SegmentPhotoStore(final FileStorageProperties fileStorageProperties) {
+        this.location = Paths.get(fileStorageProperties.getUploadDir(), SEGMENTS_DIR).toAbsolutePath().normalize();
+        this.segmentSize = Math.toIntExact(fileStorageProperties.getSegmentSize());
+        try {
+            Files.createDirectories(location);
+            open();
+        } catch (final IOException ex) {
+            throw new FileStorageException("Could not open the photo segments in " + location, ex);
+        }
+    }
+
+    @Override
+    public void store(final String fileName, final InputStream content, final long size) throws IOException {
+        store(fileName, content, size, System.currentTimeMillis());
+    }
+
+    /**
+     * Stores the file as last modified at {@code lastModified}, such as when it is imported from another store.
+     */
+    public synchronized void store(final String fileName, final InputStream content, final long size,
+                                   final long lastModified) throws IOException {
+        final ReadableByteChannel source = Channels.newChannel(content);
+        final Location stored = append(PUT, fileName, lastModified, Math.toIntExact(size), target -> {
+            while (target.hasRemaining()) {
+                if (source.read(target) == -1)
+                    throw new EOFException("Photo " + fileName + " is shorter than " + size + " bytes");
+            }
+        });
+        stored.segment().force(stored.offset(), stored.length());
+        retire(index.put(fileName, stored));
+        stored.segment().live += stored.length();
+        compact();
+    }
+
+    @Override
+    public synchronized boolean delete(final String fileName) throws IOException {
+        if (!index.containsKey(fileName))
+            return false;
+        final Location tombstone = append(DELETE, fileName, System.currentTimeMillis(), 0, target -> {
+        });
+        tombstone.segment().force(tombstone.offset(), tombstone.length());
+        retire(index.remove(fileName));
+        compact();
+        return true;
+    }
+
+    @Override
+    public synchronized Optional<StoredPhoto> find(final String fileName) {
+        final Location found = index.get(fileName);
+        if (found == null)
+            return Optional.empty();
+        final ByteBuffer content = found.segment().buffer
+                .slice(found.contentOffset(), found.contentLength())
+                .asReadOnlyBuffer();
+        return Optional.of(new StoredPhoto(found.contentLength(), found.storedAt(),
+                new ByteBufferResource(content, found.storedAt(), fileName + " in " + found.segment().path)));
+    }
+
+    /**
+     * @return whether a photo of that name is stored
+     */
+    public synchronized boolean contains(final String fileName) {
+        return index.containsKey(fileName);
+    }
+
+    /**
+     * @return the number of segment files
+     */
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void destroy() throws IOException {
+        for (final Segment segment : segments.values()) {
+            segment.channel.close();
+        }
+    }
+
+    private void open() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(location, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (final Path file : files) {
+                final int id = idOf(file);
+                segments.put(id, null);
+            }
+        }
+        final List<Integer> ids = new ArrayList<>(segments.keySet());
+        for (final Integer id : ids) {
+            final boolean last = id.equals(segments.lastKey());
+            final Segment segment = Segment.open(segmentPath(id), id, last);
+            segments.put(id, segment);
+            for (final Record record : segment.records()) {
+                if (record.kind() == PUT)
+                    index.put(record.name(), record.location(segment));
+                else
+                    index.remove(record.name());
+            }
+        }
+        for (final Location live : index.values()) {
+            live.segment().live += live.length();
+        }
+        active = segments.isEmpty() ? roll() : segments.lastEntry().getValue();
+        compact();
+    }
+
+    /**
+     * Writes a record to the active segment, rolling over to a new segment when it does not fit.
+     */
+    private Location append(final byte kind, final String fileName, final long storedAt, final int contentLength,
+                            final ContentWriter content) throws IOException {
+        final byte[] name = fileName.getBytes(StandardCharsets.UTF_8);
+        if (name.length > 0xffff)
+            throw new IOException("Photo name too long: " + fileName);
+        final int length = HEADER_SIZE + name.length + contentLength;
+        if (length > segmentSize)
+            throw new IOException("Photo " + fileName + " does not fit in a segment of " + segmentSize + " bytes");
+        if (active.end + length > active.capacity())
+            active = roll();
+
+        final Segment segment = active;
+        final MappedByteBuffer buffer = segment.buffer;
+        final int offset = segment.end;
+        try {
+            buffer.put(offset + 8, kind);
+            buffer.putLong(offset + 9, storedAt);
+            buffer.putShort(offset + 17, (short) name.length);
+            buffer.putInt(offset + 19, contentLength);
+            buffer.put(offset + HEADER_SIZE, name);
+            content.write(buffer.slice(offset + HEADER_SIZE + name.length, contentLength));
+        } catch (IOException | RuntimeException e) {
+            buffer.put(offset, new byte[length]);
+            throw e;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset + CRC_START, length - CRC_START));
+        buffer.putInt(offset + 4, (int) crc.getValue());
+        // the record only exists once its magic is written
+        buffer.putInt(offset, MAGIC);
+        segment.end += length;
+        return new Location(segment, offset, length, name.length, contentLength, storedAt);
+    }
+
+    /**
+     * Marks a record that is no longer the latest of its photo as dead.
+     */
+    private void retire(final Location previous) {
+        if (previous != null)
+            previous.segment().live -= previous.length();
+    }
+
+    /**
+     * Compacts every full segment in which dead records take more than {@link #COMPACTION_RATIO} of the space.
+     */
+    private void compact() throws IOException {
+        for (final Segment segment : List.copyOf(segments.values())) {
+            if (segment == active || (segment.end > 0 && segment.live >= segment.end * (1 - COMPACTION_RATIO)))
+                continue;
+            final Segment written = active;
+            for (final Record record : segment.records()) {
+                if (record.kind() == PUT) {
+                    final Location current = index.get(record.name());
+                    if (current == null || current.segment() != segment || current.offset() != record.offset())
+                        continue;
+                    final ByteBuffer content = segment.buffer.slice(record.contentOffset(), record.contentLength());
+                    final Location copy = append(PUT, record.name(), record.storedAt(), record.contentLength(),
+                            target -> target.put(content));
+                    index.put(record.name(), copy);
+                    copy.segment().live += copy.length();
+                } else if (segment.id != segments.firstKey() && !index.containsKey(record.name())) {
+                    // older segments may still hold the photo the tombstone deletes
+                    append(DELETE, record.name(), record.storedAt(), 0, target -> {
+                    });
+                }
+            }
+            for (final Segment copiedTo : segments.tailMap(written.id, true).values()) {
+                copiedTo.buffer.force();
+            }
+            segments.remove(segment.id);
+            segment.channel.close();
+            Files.delete(segment.path);
+        }
+    }
+
+    private Segment roll() throws IOException {
+        final int id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        final Segment segment = Segment.create(segmentPath(id), id, segmentSize);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private Path segmentPath(final int id) {
+        return location.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private static int idOf(final Path file) {
+        final String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @FunctionalInterface
+    private interface ContentWriter {
+        void write(ByteBuffer target) throws IOException;
+    }
+
+    private record Location(Segment segment, int offset, int length, int nameLength, int contentLength,
+                            long storedAt) {
+        int contentOffset() {
+            return offset + HEADER_SIZE + nameLength;
+        }
+    }
+
+    private record Record(byte kind, String name, long storedAt, int offset, int length, int contentOffset,
+                          int contentLength) {
+        Location location(final Segment segment) {
+            return new Location(segment, offset, length, contentOffset - offset - HEADER_SIZE, contentLength,
+                    storedAt);
+        }
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        // end of the records, where the next one is written
+        private int end;
+        // bytes taken by the latest records of stored photos
+        private long live;
+
+        private Segment(final int id, final Path path, final FileChannel channel, final MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment create(final Path path, final int id, final int size) throws IOException {
+            final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        /**
+         * @param writable whether records may be appended, which only the latest segment takes
+         */
+        static Segment open(final Path path, final int id, final boolean writable) throws IOException {
+            final FileChannel channel = writable
+                    ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(path, StandardOpenOption.READ);
+            final MappedByteBuffer buffer = channel.map(
+                    writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                    0, Math.toIntExact(channel.size()));
+            final Segment segment = new Segment(id, path, channel, buffer);
+            final List<Record> records = segment.scan(buffer.capacity());
+            segment.end = records.isEmpty() ? 0 : records.get(records.size() - 1).offset()
+                    + records.get(records.size() - 1).length();
+            if (writable && segment.end + 4 <= buffer.capacity() && buffer.getInt(segment.end) != 0) {
+                // a torn record: clear it so that no part of it is taken for a record later
+                buffer.put(segment.end, new byte[buffer.capacity() - segment.end]);
+            }
+            return segment;
+        }
+
+        int capacity() {
+            return buffer.capacity();
+        }
+
+        void force(final int offset, final int length) {
+            buffer.force(offset, length);
+        }
+
+        List<Record> records() {
+            return scan(end);
+        }
+
+        /**
+         * @return the valid records before {@code limit}, up to the end marker or the first torn record
+         */
+        private List<Record> scan(final int limit) {
+            final List<Record> records = new ArrayList<>();
+            int offset = 0;
+            while (offset + HEADER_SIZE <= limit && buffer.getInt(offset) == MAGIC) {
+                final byte kind = buffer.get(offset + 8);
+                final long storedAt = buffer.getLong(offset + 9);
+                final int nameLength = Short.toUnsignedInt(buffer.getShort(offset + 17));
+                final int contentLength = buffer.getInt(offset + 19);
+                final long length = (long) HEADER_SIZE + nameLength + contentLength;
+                if (contentLength < 0 || offset + length > limit || (kind != PUT && kind != DELETE))
+                    break;
+                final CRC32 crc = new CRC32();
+                crc.update(buffer.slice(offset + CRC_START, (int) length - CRC_START));
+                if ((int) crc.getValue() != buffer.getInt(offset + 4))
+                    break;
+                final byte[] name = new byte[nameLength];
+                buffer.get(offset + HEADER_SIZE, name);
+                records.add(new Record(kind, new String(name, StandardCharsets.UTF_8), storedAt, offset,
+                        (int) length, offset + HEADER_SIZE + nameLength, contentLength));
+                offset += (int) length;
+            }
+            return records;
+        }
+    }
+}
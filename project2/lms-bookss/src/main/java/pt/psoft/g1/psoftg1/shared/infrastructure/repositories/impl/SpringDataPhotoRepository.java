@@ -21,6 +21,20 @@ public interface SpringDataPhotoRepository extends PhotoRepository, CrudReposito
     @Override
     @Modifying
     @Transactional
-    @Query("DELETE " + "FROM Photo p " + "WHERE p.photoFile = :photoFile")
+    @Query("DELETE " + "FROM Photo p " + "WHERE p.photoFile = :photoFile "
+            + "AND NOT EXISTS (SELECT b FROM Book b WHERE b.photo = p) "
+            + "AND NOT EXISTS (SELECT a FROM Author a WHERE a.photo = p)")
     void deleteByPhotoFile(String photoFile);
+
+    @Override
+    @Query("SELECT COUNT(p) " + "FROM Photo p " + "WHERE p.photoFile = :photoFile "
+            + "AND (EXISTS (SELECT b FROM Book b WHERE b.photo = p) "
+            + "OR EXISTS (SELECT a FROM Author a WHERE a.photo = p))")
+    long countReferences(String photoFile);
+
+    @Override
+    @Query("SELECT COUNT(p) " + "FROM Photo p " + "WHERE p.photoFile = :photoFile "
+            + "AND (EXISTS (SELECT b FROM Book b WHERE b.photo = p) "
+            + "OR EXISTS (SELECT a FROM Author a WHERE a.photo = p))")
+    long countCatalogueReferences(String photoFile);
 }
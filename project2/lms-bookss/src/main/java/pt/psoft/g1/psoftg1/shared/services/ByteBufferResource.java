@@ -0,0 +1,80 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Content held in a buffer, typically direct or memory-mapped, so it can be sent without being copied onto the heap.
+ * <p>
+ * Every stream reads its own {@link ByteBuffer#duplicate() duplicate} of the buffer from the start, so any number of
+ * requests can read it at once; the buffer itself must not be modified.
+ */
+public class ByteBufferResource extends AbstractResource {
+    private final ByteBuffer content;
+    private final long lastModified;
+    private final String description;
+
+    public ByteBufferResource(final ByteBuffer content, final long lastModified, final String description) {
+        this.content = content;
+        this.lastModified = lastModified;
+        this.description = description;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new BufferInputStream(content);
+    }
+
+    @Override
+    public long contentLength() {
+        return content.limit();
+    }
+
+    @Override
+    public long lastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private BufferInputStream(final ByteBuffer content) {
+            this.buffer = content.duplicate().rewind();
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (len == 0)
+                return 0;
+            if (!buffer.hasRemaining())
+                return -1;
+            final int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
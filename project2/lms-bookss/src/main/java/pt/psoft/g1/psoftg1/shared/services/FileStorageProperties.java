@@ -17,4 +17,7 @@ import org.springframework.stereotype.Component;
 public class FileStorageProperties {
     private String uploadDir;
     private long photoMaxSize;
+    // directory: a file per photo | segments: photos appended to memory-mapped segment files
+    private String store = "directory";
+    private long segmentSize = 64L * 1024 * 1024;
 }
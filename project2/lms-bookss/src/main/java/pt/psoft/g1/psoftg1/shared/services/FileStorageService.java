@@ -21,25 +21,29 @@
 package pt.psoft.g1.psoftg1.shared.services;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
 import pt.psoft.g1.psoftg1.exceptions.FileStorageException;
 import pt.psoft.g1.psoftg1.shared.api.UploadFileResponse;
 import pt.psoft.g1.psoftg1.shared.model.FileUtils;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoStore;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoStore.StoredPhoto;
 
 /**
  * <p>
@@ -51,36 +55,51 @@ import pt.psoft.g1.psoftg1.shared.model.FileUtils;
 @Service
 public class FileStorageService {
 
-    private final Path fileStorageLocation;
+    // photos are named after the SHA-256 of their content
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("([0-9a-f]{64})\\.[^.]*");
+
+    private final PhotoStore photoStore;
+    private final PhotoCache photoCache;
+    private final PhotoVariants photoVariants;
     private long photoMaxSize;
     private final String[] validImageFormats = { "image/png", "image/jpeg" };
 
     @Autowired
-    public FileStorageService(final FileStorageProperties fileStorageProperties) {
-        this.fileStorageLocation = Paths.get(fileStorageProperties.getUploadDir()).toAbsolutePath().normalize();
+    public FileStorageService(final FileStorageProperties fileStorageProperties, final PhotoCache photoCache,
+                              final PhotoStore photoStore, final PhotoVariants photoVariants) {
+        this.photoStore = photoStore;
+        this.photoCache = photoCache;
+        this.photoVariants = photoVariants;
         this.photoMaxSize = fileStorageProperties.getPhotoMaxSize();
-
-        try {
-            Files.createDirectories(fileStorageLocation);
-        } catch (final Exception ex) {
-            throw new FileStorageException("Could not create the directory where the uploaded files will be stored.",
-                    ex);
-        }
     }
 
     public String storeFile(final String prefix, final MultipartFile file) {
         // final String fileName = prefix + "_" + determineFileName(file);
         // files will contain only the generated uuid passed as prefix
         final String fileName = prefix + "." + getExtension(file.getOriginalFilename()).orElse("");
+        store(fileName, file);
+        return fileName;
+    }
 
-        // Copy file to the target location (Replacing existing file with the same name)
-        try {
-            final Path targetLocation = fileStorageLocation.resolve(fileName);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Stores the uploaded photo under {@code fileName} again if it is no longer stored, as when
+     * {@link #getRequestPhoto} found it stored but it was deleted before being referenced.
+     */
+    public void storeIfMissing(final String fileName, final MultipartFile file) {
+        if (findPhoto(fileName).isEmpty()) {
+            store(fileName, file);
+        }
+    }
 
-            return fileName;
+    private void store(final String fileName, final MultipartFile file) {
+        // Store the file (Replacing existing file with the same name)
+        try (InputStream content = file.getInputStream()) {
+            photoStore.store(fileName, content, file.getSize());
+            photoVariants.generate(fileName);
         } catch (final IOException ex) {
             throw new FileStorageException("Could not store file " + fileName + ". Please try again!", ex);
+        } finally {
+            photoCache.invalidate(fileName);
         }
     }
 
@@ -89,29 +108,31 @@ public class FileStorageService {
             throw new IllegalArgumentException("Received null reference to file path");
         }
 
-        Path filePath = Paths.get(this.fileStorageLocation + "/" + file);
         try {
-            Files.delete(filePath);
+            if (!photoStore.delete(file)) {
+                throw new NotFoundException("Reader photo could not be deleted as his photo file doesn't exist.");
+            }
+            photoVariants.delete(file);
         } catch (IOException e) {
-            throw new NotFoundException("Reader photo could not be deleted as his photo file doesn't exist.");
+            throw new FileStorageException("Could not delete file " + file + ". Please try again!", e);
+        } finally {
+            photoCache.invalidate(file);
         }
     }
 
-    public byte[] getFile(final String fileName) {
-        String photoPathString = this.fileStorageLocation + "/" + fileName;
-        Path photoPath = Paths.get(photoPathString);
-        byte[] image = null;
+    /**
+     * @return the stored photo with the given name, if there is one
+     */
+    public Optional<StoredPhoto> findPhoto(final String fileName) {
         try {
-            image = Files.readAllBytes(photoPath);
+            return photoStore.find(fileName);
         } catch (IOException e) {
-            return null;
+            return Optional.empty();
         }
-
-        return image;
     }
 
-    // Returns the string of the fileName of the file (UUID.FILE_FORMAT) stored in the uploads folder | null for error
-    // or no photo
+    // Returns the string of the fileName of the file (SHA256_OF_CONTENT.FILE_FORMAT) stored in the uploads folder | null
+    // for error or no photo
     public String getRequestPhoto(MultipartFile file) {
         UploadFileResponse up = null;
         if (file != null) {
@@ -139,19 +160,29 @@ public class FileStorageService {
                 throw new ValidationException("Images can only be png or jpeg");
             }
 
-            String photoUUID = UUID.randomUUID().toString();
-
+            String photoHash;
             try {
-                up = FileUtils.doUploadFile(this, photoUUID, file);
-            } catch (Exception e) {
+                photoHash = HexFormat.of().formatHex(digest(file));
+            } catch (IOException e) {
                 return null;
-                // throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR);
             }
 
             // String fileFormat = validImageFormats[formatIndex].split("/")[1];
             String originalFileName = file.getOriginalFilename();
             String fileFormat = originalFileName.substring(originalFileName.lastIndexOf('.') + 1);
-            return photoUUID + "." + fileFormat;
+            String fileName = photoHash + "." + fileFormat;
+
+            // a photo already uploaded is stored once, and shared
+            if (findPhoto(fileName).isEmpty()) {
+                try {
+                    up = FileUtils.doUploadFile(this, photoHash, file);
+                } catch (Exception e) {
+                    return null;
+                    // throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR);
+                }
+            }
+
+            return fileName;
         }
 
         return null;
@@ -169,21 +200,35 @@ public class FileStorageService {
         return UUID.randomUUID().toString() + "." + getExtension(file.getOriginalFilename()).orElse("");
     }
 
+    /**
+     * @return the SHA-256 of the content of the file, if it was named after it by {@link #getRequestPhoto}
+     */
+    public static Optional<byte[]> contentHash(final String fileName) {
+        final Matcher matcher = CONTENT_ADDRESSED.matcher(fileName);
+        return matcher.matches() ? Optional.of(HexFormat.of().parseHex(matcher.group(1))) : Optional.empty();
+    }
+
+    private static byte[] digest(final MultipartFile file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream content = new DigestInputStream(file.getInputStream(), digest)) {
+            content.transferTo(OutputStream.nullOutputStream());
+        }
+        return digest.digest();
+    }
+
     public Optional<String> getExtension(final String filename) {
         return Optional.ofNullable(filename).filter(f -> f.contains("."))
                 .map(f -> f.substring(filename.lastIndexOf(".") + 1));
     }
 
     public Resource loadFileAsResource(final String fileName) {
-        try {
-            final Path filePath = fileStorageLocation.resolve(fileName).normalize();
-            final Resource resource = new UrlResource(filePath.toUri());
-            if (resource.exists()) {
-                return resource;
-            }
-            throw new NotFoundException("File not found " + fileName);
-        } catch (final MalformedURLException ex) {
-            throw new NotFoundException("File not found " + fileName, ex);
-        }
+        return findPhoto(fileName)
+                .map(StoredPhoto::content)
+                .orElseThrow(() -> new NotFoundException("File not found " + fileName));
     }
 }
@@ -0,0 +1,135 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of photo contents by {@code Photo.photoFile}, holding at most {@code photoCacheMaxBytes} bytes
+ * of photos and evicting the least recently read ones when full ({@code 0} disables it).
+ * <p>
+ * Contents are held in read-only direct buffers, outside the heap, so cached photos add no GC pressure; a photo
+ * larger than a quarter of the cache is never cached. {@link FileStorageService} invalidates a file whenever it
+ * stores or deletes it. Every invalidation bumps a generation, and a photo loaded while the generation changed is
+ * not stored, so a read that raced with a write never caches the old content.
+ * <p>
+ * Hits, misses, evictions, size and bytes are published as the {@code cache.*} meters, tagged {@code cache=photos}.
+ */
+@Component
+@PropertySource({"classpath:config/library.properties"})
+public class PhotoCache implements MeterBinder {
+    private final long maxBytes;
+    private final Map<String, CachedPhoto> photos = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public PhotoCache(@Value("${photoCacheMaxBytes}") final long maxBytes) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("Photo cache size cannot be negative");
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return whether a photo of {@code size} bytes would be cached, i.e. whether it is worth loading it into memory
+     */
+    public boolean accepts(final long size) {
+        return maxBytes > 0 && size <= maxBytes / 4;
+    }
+
+    /**
+     * @param load loads the photo when it is not cached
+     * @return the photo stored in the file, if there is one
+     */
+    public Optional<CachedPhoto> get(final String photoFile, final Function<String, Optional<CachedPhoto>> load) {
+        final long loadGeneration;
+        synchronized (this) {
+            final CachedPhoto cached = photos.get(photoFile);
+            if (cached != null) {
+                hits++;
+                return Optional.of(cached);
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        final Optional<CachedPhoto> loaded = load.apply(photoFile);
+        loaded.ifPresent(photo -> store(photoFile, photo, loadGeneration));
+        return loaded;
+    }
+
+    public synchronized void invalidate(final String photoFile) {
+        generation++;
+        final CachedPhoto removed = photos.remove(photoFile);
+        if (removed != null)
+            bytes -= removed.size();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, photos.size(), bytes);
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", this, cache -> cache.stats().hits())
+                .tags("cache", "photos", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, cache -> cache.stats().misses())
+                .tags("cache", "photos", "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", this, cache -> cache.stats().evictions())
+                .tags("cache", "photos")
+                .register(registry);
+        Gauge.builder("cache.size", this, cache -> cache.stats().size())
+                .tags("cache", "photos")
+                .register(registry);
+        Gauge.builder("cache.bytes", this, cache -> cache.stats().bytes())
+                .tags("cache", "photos")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private synchronized void store(final String photoFile, final CachedPhoto photo, final long loadGeneration) {
+        if (!accepts(photo.size()) || generation != loadGeneration)
+            return;
+        final CachedPhoto previous = photos.put(photoFile, photo);
+        bytes += photo.size() - (previous == null ? 0 : previous.size());
+
+        // the buffers of evicted photos are freed once they are no longer being sent
+        final Iterator<CachedPhoto> eldest = photos.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().size();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * @param content read-only; use a {@link ByteBuffer#duplicate() duplicate} to read it
+     */
+    public record CachedPhoto(ByteBuffer content, long lastModified, String etag) {
+        public int size() {
+            return content.limit();
+        }
+    }
+
+    /**
+     * @param size  number of photos currently cached
+     * @param bytes bytes of direct memory held by them
+     */
+    public record Stats(long hits, long misses, long evictions, int size, long bytes) {
+    }
+}
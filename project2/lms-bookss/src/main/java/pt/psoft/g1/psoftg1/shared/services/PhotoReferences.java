@@ -0,0 +1,79 @@
+package pt.psoft.g1.psoftg1.shared.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import pt.psoft.g1.psoftg1.exceptions.FileStorageException;
+import pt.psoft.g1.psoftg1.exceptions.NotFoundException;
+import pt.psoft.g1.psoftg1.shared.repositories.PhotoRepository;
+
+/**
+ * Counts the references to photo files, which are named after their content and so shared by every book, author and
+ * reader given the same photo.
+ * <p>
+ * Releasing a reference deletes the unreferenced {@code Photo} rows of the file, and the stored file itself once the
+ * transaction commits with no entity left referring to it. An upload of a photo that is already stored is not stored
+ * again, so the file may be deleted by such a release before the new reference commits; acquiring the reference
+ * therefore stores the upload again once it commits if the file is gone. Both run under a lock on the file name, so
+ * the file is either counted as referenced or stored again.
+ */
+@Service
+@RequiredArgsConstructor
+public class PhotoReferences {
+    private static final int LOCK_STRIPES = 64;
+
+    private final PhotoRepository photoRepository;
+    private final FileStorageService fileStorageService;
+    private final Object[] locks = newLocks();
+
+    /**
+     * To be called once the entity refers to {@code photoFile}, uploaded as {@code photo}; does nothing if either is
+     * missing.
+     */
+    public void acquire(final String photoFile, final MultipartFile photo) {
+        if (photoFile == null || photo == null)
+            return;
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (lockFor(photoFile)) {
+                fileStorageService.storeIfMissing(photoFile, photo);
+            }
+        });
+    }
+
+    /**
+     * @return whether {@code photoFile} is the photo of a book or an author, as opposed to only that of readers
+     */
+    public boolean isCatalogued(final String photoFile) {
+        return photoRepository.countCatalogueReferences(photoFile) > 0;
+    }
+
+    /**
+     * To be called once the entity no longer refers to {@code photoFile}.
+     */
+    public void release(final String photoFile) {
+        photoRepository.deleteByPhotoFile(photoFile);
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (lockFor(photoFile)) {
+                if (photoRepository.countReferences(photoFile) > 0)
+                    return;
+                try {
+                    fileStorageService.deleteFile(photoFile);
+                } catch (NotFoundException | FileStorageException e) {
+                    // already gone, or left behind unreferenced, which is harmless
+                }
+            }
+        });
+    }
+
+    private Object lockFor(final String photoFile) {
+        return locks[Math.floorMod(photoFile.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static Object[] newLocks() {
+        final Object[] locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+}